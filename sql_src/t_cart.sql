@@ -8,5 +8,6 @@ CREATE TABLE t_cart (
 	created_time DATETIME COMMENT '创建时间',
 	modified_user VARCHAR(20) COMMENT '修改人',
 	modified_time DATETIME COMMENT '修改时间',
-	PRIMARY KEY (cid)
+	PRIMARY KEY (cid),
+	UNIQUE KEY uk_uid_pid (uid, pid)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
\ No newline at end of file
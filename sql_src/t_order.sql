@@ -1,5 +1,5 @@
 CREATE TABLE t_order (
-	oid INT AUTO_INCREMENT COMMENT '订单id',
+	oid BIGINT NOT NULL COMMENT '订单id（应用生成的64位id）',
 	uid INT NOT NULL COMMENT '用户id',
 	recv_name VARCHAR(20) NOT NULL COMMENT '收货人姓名',
 	recv_phone VARCHAR(20) COMMENT '收货人电话',
@@ -19,8 +19,8 @@ CREATE TABLE t_order (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
 CREATE TABLE t_order_item (
-	id INT AUTO_INCREMENT COMMENT '订单中的商品记录的id',
-	oid INT NOT NULL COMMENT '所归属的订单的id',
+	id BIGINT NOT NULL COMMENT '订单中的商品记录的id（应用生成的64位id）',
+	oid BIGINT NOT NULL COMMENT '所归属的订单的id',
 	pid INT NOT NULL COMMENT '商品的id',
 	title VARCHAR(100) NOT NULL COMMENT '商品标题',
 	image VARCHAR(500) COMMENT '商品图片',
@@ -30,5 +30,7 @@ CREATE TABLE t_order_item (
 	created_time DATETIME COMMENT '创建时间',
 	modified_user VARCHAR(20) COMMENT '修改人',
 	modified_time DATETIME COMMENT '修改时间',
-	PRIMARY KEY (id)
+	PRIMARY KEY (id),
+	KEY idx_oid (oid),
+	KEY idx_created_time (created_time) COMMENT '启动时按时间汇总近期销量'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
\ No newline at end of file
@@ -10,12 +10,14 @@ CREATE TABLE t_product (
   num int(10) DEFAULT NULL COMMENT '库存数量',
   image varchar(500) DEFAULT NULL COMMENT '图片路径',
   status int(1) DEFAULT '1' COMMENT '商品状态  1：上架   2：下架   3：删除',
-  priority int(10) DEFAULT NULL COMMENT '显示优先级',
+  priority int(10) NOT NULL DEFAULT '0' COMMENT '显示优先级',
   created_time datetime DEFAULT NULL COMMENT '创建时间',
   modified_time datetime DEFAULT NULL COMMENT '最后修改时间',
   created_user varchar(50) DEFAULT NULL COMMENT '创建人',
   modified_user varchar(50) DEFAULT NULL COMMENT '最后修改人',
-  PRIMARY KEY (id)
+  PRIMARY KEY (id),
+  KEY idx_category_status_priority (category_id, status, priority, id) COMMENT '按分类列出商品（键集分页）',
+  KEY idx_status_priority (status, priority, id) COMMENT '热销排行'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
 LOCK TABLES t_product WRITE;
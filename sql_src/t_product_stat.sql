@@ -0,0 +1,6 @@
+CREATE TABLE t_product_stat (
+	pid INT NOT NULL COMMENT '商品id',
+	view_count BIGINT NOT NULL DEFAULT 0 COMMENT '累计浏览次数',
+	modified_time DATETIME COMMENT '最后写入时间',
+	PRIMARY KEY (pid)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
@@ -59,6 +59,26 @@ public class BaseController {
             result.setState(4007);
             result.setMessage("购物车数据不存在的异常");
         }
+        else if(e instanceof CartOperationException){
+            result.setState(4008);
+            result.setMessage("购物车操作参数不合法的异常");
+        }
+        else if(e instanceof StockNotEnoughException){
+            result.setState(4009);
+            result.setMessage("商品库存不足的异常");
+        }
+        else if(e instanceof FlashSaleException){
+            result.setState(4010);
+            result.setMessage("秒杀抢购的异常");
+        }
+        else if(e instanceof OrderNotFoundException){
+            result.setState(4011);
+            result.setMessage("订单数据不存在的异常");
+        }
+        else if(e instanceof BatchSizeLimitException){
+            result.setState(4012);
+            result.setMessage("批量操作的数据超出上限的异常");
+        }
         // 笼统的异常从5000开始
         else if(e instanceof InsertException){
             result.setState(5000);
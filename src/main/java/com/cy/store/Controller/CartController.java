@@ -2,9 +2,12 @@ package com.cy.store.Controller;
 
 import com.cy.store.service.ICartService;
 import com.cy.store.util.JsonResult;
+import com.cy.store.vo.CartOperation;
 import com.cy.store.vo.CartVO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -62,4 +65,14 @@ public class CartController extends BaseController {
         List<CartVO> data = cartService.getVOByCid(getUidFromSession(session), cids);
         return new JsonResult<>(OK, data);
     }
+
+    // 批量修改：[{"cid":1,"num":3},{"pid":10000017,"delta":-1}]
+    @PostMapping("batch")
+    public JsonResult<List<CartVO>> batch(@RequestBody List<CartOperation> operations, HttpSession session) {
+        List<CartVO> data = cartService.batchUpdate(
+                getUidFromSession(session),
+                operations,
+                getUsernameFromSession(session));
+        return new JsonResult<>(OK, data);
+    }
 }
@@ -0,0 +1,35 @@
+package com.cy.store.Controller;
+
+import com.cy.store.cache.CategoryTree;
+import com.cy.store.service.ICategoryService;
+import com.cy.store.util.JsonResult;
+import com.cy.store.vo.CategoryVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+
+@RequestMapping("categories")
+@RestController
+public class CategoryController extends BaseController {
+    @Autowired
+    private ICategoryService categoryService;
+
+    // 完整的分类树；浏览器带上次的ETag（If-None-Match）请求时，分类未变化则返回304
+    @GetMapping({"/", ""})
+    public ResponseEntity<JsonResult<List<CategoryVO>>> getTree(WebRequest request) {
+        CategoryTree tree = categoryService.getTree();
+        if (request.checkNotModified(tree.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(tree.getEtag())
+                .body(new JsonResult<>(OK, tree.getRoots()));
+    }
+}
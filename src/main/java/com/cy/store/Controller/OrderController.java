@@ -3,6 +3,7 @@ package com.cy.store.Controller;
 import com.cy.store.entity.Order;
 import com.cy.store.service.IOrderService;
 import com.cy.store.util.JsonResult;
+import com.cy.store.vo.OrderTicketVO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -23,4 +24,29 @@ public class OrderController extends BaseController {
 
         return new JsonResult<>(OK,data);
     }
+
+    @RequestMapping("submit")
+    public JsonResult<OrderTicketVO> submit(Integer aid, Integer[] cids, HttpSession session){
+        Integer uid = getUidFromSession(session);
+        String username = getUsernameFromSession(session);
+        OrderTicketVO data = orderService.submit(aid,uid,username,cids);
+
+        return new JsonResult<>(OK,data);
+    }
+
+    @RequestMapping("ticket")
+    public JsonResult<OrderTicketVO> getTicket(String token, HttpSession session){
+        OrderTicketVO data = orderService.getTicket(getUidFromSession(session),token);
+
+        return new JsonResult<>(OK,data);
+    }
+
+    @RequestMapping("flash_sale")
+    public JsonResult<Order> flashSale(Integer aid, Integer pid, HttpSession session){
+        Integer uid = getUidFromSession(session);
+        String username = getUsernameFromSession(session);
+        Order data = orderService.flashSale(aid,uid,username,pid);
+
+        return new JsonResult<>(OK,data);
+    }
 }
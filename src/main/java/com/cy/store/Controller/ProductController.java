@@ -2,14 +2,25 @@ package com.cy.store.Controller;
 
 import com.cy.store.entity.Product;
 import com.cy.store.service.IProductService;
+import com.cy.store.search.ProductFacetIndex;
 import com.cy.store.util.JsonResult;
+import com.cy.store.vo.CursorPageVO;
+import com.cy.store.vo.FacetPageVO;
+import com.cy.store.vo.PageVO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpSession;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("products")
@@ -17,16 +28,96 @@ public class ProductController extends BaseController {
     @Autowired
     private IProductService productService;
 
+    // 直接返回缓存中序列化好的响应体
     @RequestMapping("hot_list")
-    public JsonResult<List<Product>> getHotList() {
-        List<Product> data = productService.findHotList();
-        return new JsonResult<List<Product>>(OK,data);
+    public ResponseEntity<byte[]> getHotList() {
+        byte[] data = productService.findHotListJson();
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(data);
     }
 
     @GetMapping("{id}/details")
-    public JsonResult<Product> getById(@PathVariable("id") Integer id){
+    public JsonResult<Product> getById(@PathVariable("id") Integer id, HttpSession session){
         // 调用业务对象执行获取数据
         Product data = productService.findById(id);
+        // 登录用户记录浏览历史
+        productService.recordView(getLoggedInUid(session), id);
         return new JsonResult<>(OK,data);
     }
+
+    // 当前登录用户最近浏览的商品，未登录时返回空列表
+    @GetMapping("recent")
+    public JsonResult<List<Product>> getRecent(HttpSession session) {
+        Integer uid = getLoggedInUid(session);
+        List<Product> data = uid == null ? new ArrayList<>() : productService.findRecentViews(uid);
+        return new JsonResult<>(OK, data);
+    }
+
+    // 买了该商品的用户还买了：10000017/also_bought?limit=10
+    @GetMapping("{id}/also_bought")
+    public JsonResult<List<Product>> getAlsoBought(@PathVariable("id") Integer id, Integer limit) {
+        List<Product> data = productService.findAlsoBought(id, limit);
+        return new JsonResult<>(OK, data);
+    }
+
+    // 标题、卖点相似的商品：10000017/similar?limit=10
+    @GetMapping("{id}/similar")
+    public JsonResult<List<Product>> getSimilar(@PathVariable("id") Integer id, Integer limit) {
+        List<Product> data = productService.findSimilar(id, limit);
+        return new JsonResult<>(OK, data);
+    }
+
+    // 批量查询商品详情：batch?ids=10000001,10000017，最多100个（超出时返回4012），按ids的顺序返回
+    @GetMapping("batch")
+    public JsonResult<List<Product>> getByIds(Integer[] ids) {
+        List<Product> data = productService.findByIds(ids == null ? null : Arrays.asList(ids));
+        return new JsonResult<>(OK, data);
+    }
+
+    // 商品检索：search?keyword=笔记本&page=1&size=20
+    @RequestMapping("search")
+    public JsonResult<PageVO<Product>> search(String keyword, Integer page, Integer size) {
+        PageVO<Product> data = productService.search(keyword, page, size);
+        return new JsonResult<>(OK, data);
+    }
+
+    // 输入联想：suggest?prefix=lx
+    @RequestMapping("suggest")
+    public JsonResult<List<String>> suggest(String prefix, Integer limit) {
+        List<String> data = productService.suggest(prefix, limit);
+        return new JsonResult<>(OK, data);
+    }
+
+    // 分面筛选：facets?categoryId=163&categoryId=164&priceBand=200-1000&page=1&size=20，只返回上架的商品
+    @RequestMapping("facets")
+    public JsonResult<FacetPageVO<Product>> facets(String[] categoryId, String[] itemType, String[] priceBand,
+                                                   Integer page, Integer size) {
+        Map<String, List<String>> filters = new HashMap<>();
+        if (categoryId != null) {
+            filters.put(ProductFacetIndex.CATEGORY, Arrays.asList(categoryId));
+        }
+        if (itemType != null) {
+            filters.put(ProductFacetIndex.ITEM_TYPE, Arrays.asList(itemType));
+        }
+        if (priceBand != null) {
+            filters.put(ProductFacetIndex.PRICE_BAND, Arrays.asList(priceBand));
+        }
+        FacetPageVO<Product> data = productService.facets(filters, page, size);
+        return new JsonResult<>(OK, data);
+    }
+
+    // 分类商品列表：category/163?size=20，下一页带上返回的nextPriority和nextId
+    @GetMapping("category/{categoryId}")
+    public JsonResult<CursorPageVO<Product>> listByCategory(@PathVariable("categoryId") Integer categoryId,
+                                                            Integer lastPriority, Integer lastId, Integer size) {
+        CursorPageVO<Product> data = productService.findByCategory(categoryId, lastPriority, lastId, size);
+        return new JsonResult<>(OK, data);
+    }
+
+    /** 商品相关的请求不要求登录，未登录时返回null */
+    private Integer getLoggedInUid(HttpSession session) {
+        if (session == null || session.getAttribute("uid") == null) {
+            return null;
+        }
+        return getUidFromSession(session);
+    }
 }
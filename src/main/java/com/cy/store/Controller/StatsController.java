@@ -0,0 +1,43 @@
+package com.cy.store.Controller;
+
+import com.cy.store.cache.ProductCache;
+import com.cy.store.rank.ProductViewCounter;
+import com.cy.store.sale.FlashSaleOrderWriter;
+import com.cy.store.sale.FlashSaleStock;
+import com.cy.store.util.JsonResult;
+import com.cy.store.vo.CacheStatsVO;
+import com.cy.store.vo.FlashSaleSummaryVO;
+import com.cy.store.vo.ViewCounterStatsVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/** 内存缓存等运行指标的查询 */
+@RequestMapping("stats")
+@RestController
+public class StatsController extends BaseController {
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private ProductViewCounter productViewCounter;
+    @Autowired
+    private FlashSaleStock flashSaleStock;
+    @Autowired
+    private FlashSaleOrderWriter flashSaleOrderWriter;
+
+    @RequestMapping("product_cache")
+    public JsonResult<CacheStatsVO> getProductCacheStats() {
+        return new JsonResult<>(OK, productCache.getStats());
+    }
+
+    @RequestMapping("product_views")
+    public JsonResult<ViewCounterStatsVO> getProductViewStats() {
+        return new JsonResult<>(OK, productViewCounter.getStats());
+    }
+
+    @RequestMapping("flash_sale")
+    public JsonResult<FlashSaleSummaryVO> getFlashSaleStats() {
+        return new JsonResult<>(OK, new FlashSaleSummaryVO(flashSaleStock.getStats(),
+                flashSaleOrderWriter.pending(), flashSaleOrderWriter.retrying()));
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.MultipartConfigFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.util.unit.DataSize;
 import org.springframework.util.unit.DataUnit;
 
@@ -15,6 +16,8 @@ import javax.servlet.MultipartConfigElement;
 @SpringBootApplication
 // MapperScan注解：指定当前项目中的Mapper接口路径的位置,项目启动时自动加载接口文件
 @MapperScan("com.cy.store.mapper")
+// 开启定时任务：内存缓存的后台刷新
+@EnableScheduling
 public class StoreApplication {
 
     public static void main(String[] args) {
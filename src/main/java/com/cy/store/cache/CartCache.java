@@ -0,0 +1,421 @@
+package com.cy.store.cache;
+
+import com.cy.store.entity.Cart;
+import com.cy.store.mapper.CartMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 用户购物车的内存模型（延迟写入），位于CartMapper之前
+ * 1.用户第一次访问时加载其全部购物车数据，之后的查询和数量修改都在内存中完成
+ * 2.数量修改只累计为待写入的变化量，定时批量写回t_cart，同一条数据的多次修改合并为一次写入；
+ *   写入的是变化量（num = GREATEST(1, num + 变化量)），不会覆盖其他实例或其他途径同时写入的数量；
+ *   数据的延迟不超过配置的写入间隔，下单前由业务层调用flush(uid)立即写入；
+ *   每批数据是一条UPDATE语句，自动提交；不能在事务中调用flush，否则写入会随调用方的事务回滚，
+ *   且持有用户的写入锁期间等待调用方的事务
+ * 3.同一用户的写入由该用户的写入锁串行执行，同一变化量不会被写入两次；定时写入每批只持有本批用户的写入锁，
+ *   flush(uid)最多等待包含该用户的一批写入完成，不必等待整个定时写入
+ * 4.新增购物车数据需要数据库生成的cid，在该用户的锁内同步插入
+ * 5.缓存的用户数有上限，按LRU顺序淘汰；被淘汰的用户如有未写入的修改，仍会在下次写入时写回
+ * 返回的Cart均为副本，可以修改
+ */
+@Component
+public class CartCache {
+    /** 每条SQL语句写入的最大数据条数 */
+    private static final int BATCH_SIZE = 200;
+
+    private final CartMapper cartMapper;
+    private final int maxUsers;
+
+    /** 按访问顺序排列的用户购物车，读写需持有users的锁 */
+    private final LinkedHashMap<Integer, UserCart> users = new LinkedHashMap<>(64, 0.75f, true);
+    /** 有未写入修改的购物车（包括已被淘汰的），全部写入后移除 */
+    private final ConcurrentHashMap<Integer, UserCart> dirty = new ConcurrentHashMap<>();
+    private final SingleFlight<Integer, UserCart> loads = new SingleFlight<>();
+
+    public CartCache(CartMapper cartMapper, @Value("${cart.cache.max-users}") int maxUsers) {
+        this.cartMapper = cartMapper;
+        this.maxUsers = maxUsers;
+    }
+
+    /**
+     * 查询用户的购物车数据
+     * @param uid 用户id
+     * @return 按加入时间从新到旧排列
+     */
+    public List<Cart> getCarts(Integer uid) {
+        while (true) {
+            UserCart cart = get(uid);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                List<Cart> result = new ArrayList<>(cart.lines.size());
+                for (Line line : cart.lines) {
+                    result.add(copy(line.cart));
+                }
+                return result;
+            }
+        }
+    }
+
+    /**
+     * 将商品加入用户的购物车：已有该商品时在内存中累加数量（最少为1，与写入时的GREATEST一致），否则由inserter插入数据库后放入
+     * 插入在该用户购物车的锁内执行，同一用户并发添加同一商品时只会插入一次
+     * @param inserter 插入新数据，返回与数据库一致的购物车数据
+     * @return 新的数量
+     */
+    public Integer addByPid(Integer uid, Integer pid, int amount, String username, Supplier<Cart> inserter) {
+        while (true) {
+            UserCart cart = get(uid);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                Integer num = changeNum(cart, line -> line.cart.getPid().equals(pid), amount, 1, username);
+                if (num != null) {
+                    return num;
+                }
+                Cart data = copy(inserter.get());
+                cart.lines.removeIf(line -> line.cart.getCid().equals(data.getCid()));
+                cart.lines.add(0, new Line(data));
+                return data.getNum();
+            }
+        }
+    }
+
+    /**
+     * 数据库中该用户的数据被直接修改之后（如批量修改写入的变化量、新插入的数据）重新查询：
+     * 内存中的数量替换为数据库中的数量加上尚未写入的变化量，内存中没有的数据加入购物车
+     * 查询期间持有该用户的写入锁，不会有变化量在查询之后写入而被重复计入；
+     * 查询时不持有购物车的锁，同一用户的数量修改不必等待
+     * @return 该用户的全部购物车数据
+     */
+    public List<Cart> reload(Integer uid) {
+        while (true) {
+            UserCart cart = get(uid);
+            cart.writeLock.lock();
+            try {
+                List<Cart> result = replace(cart, cartMapper.findByUid(uid));
+                if (result != null) {
+                    return result;
+                }
+            } finally {
+                cart.writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 用查询到的数据替换内存中的数量，调用方需持有该用户的写入锁
+     * @param rows 数据库中该用户的数据，按加入时间从新到旧排列
+     * @return 替换后的全部购物车数据；cart已被淘汰时返回null
+     */
+    private List<Cart> replace(UserCart cart, List<Cart> rows) {
+        synchronized (cart) {
+            if (cart.evicted) {
+                return null;
+            }
+            // 倒序处理，内存中没有的数据依次放到最前面，保持从新到旧的顺序
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                Cart data = rows.get(i);
+                Line line = null;
+                for (Line l : cart.lines) {
+                    if (l.cart.getCid().equals(data.getCid())) {
+                        line = l;
+                        break;
+                    }
+                }
+                if (line == null) {
+                    cart.lines.add(0, new Line(copy(data)));
+                    continue;
+                }
+                line.cart.setNum(Math.max(1, data.getNum() + line.delta));
+                if (line.delta == 0) {
+                    line.cart.setModifiedUser(data.getModifiedUser());
+                    line.cart.setModifiedTime(data.getModifiedTime());
+                }
+            }
+            List<Cart> result = new ArrayList<>(cart.lines.size());
+            for (Line line : cart.lines) {
+                result.add(copy(line.cart));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 修改用户某条购物车数据的数量，数量最少为1
+     * @return 新的数量；该用户没有这条购物车数据时返回null
+     */
+    public Integer addNumByCid(Integer uid, Integer cid, int delta, String username) {
+        return changeNum(uid, line -> line.cart.getCid().equals(cid), delta, 1, username);
+    }
+
+    /**
+     * 立即写入某个用户未写入的修改，返回时数据库中已是最新数据
+     * @param uid 用户id
+     */
+    public void flush(Integer uid) {
+        checkNoTransaction();
+        UserCart cart = dirty.get(uid);
+        if (cart == null) {
+            return;
+        }
+        // 定时写入正在写该用户时等待这一批完成
+        cart.writeLock.lock();
+        try {
+            write(Collections.singletonList(cart));
+        } finally {
+            cart.writeLock.unlock();
+        }
+    }
+
+    /**
+     * 写入全部未写入的修改，多次调用之间串行执行
+     * @return 写入的数据条数
+     */
+    public synchronized int flush() {
+        checkNoTransaction();
+        List<UserCart> locked = new ArrayList<>();
+        int rows = 0;
+        try {
+            for (UserCart cart : new ArrayList<>(dirty.values())) {
+                cart.writeLock.lock();
+                locked.add(cart);
+                if (pendingLines(locked) >= BATCH_SIZE) {
+                    rows += write(locked);
+                    unlock(locked);
+                }
+            }
+            if (!locked.isEmpty()) {
+                rows += write(locked);
+            }
+        } finally {
+            unlock(locked);
+        }
+        return rows;
+    }
+
+    /** 按配置的间隔定时写入数据库 */
+    @Scheduled(initialDelayString = "${cart.flush-interval}",
+            fixedDelayString = "${cart.flush-interval}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.out.println("购物车数据写入失败，将在下次写入时重试：" + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduledFlush();
+    }
+
+    /** @return 有未写入修改的用户数 */
+    public int dirtyUsers() {
+        return dirty.size();
+    }
+
+    private Integer changeNum(Integer uid, Predicate<Line> match, int delta, int min, String username) {
+        while (true) {
+            UserCart cart = get(uid);
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    return changeNum(cart, match, delta, min, username);
+                }
+            }
+        }
+    }
+
+    /** 修改第一条匹配的数据的数量并累计待写入的变化量，调用方需持有cart的锁 */
+    private Integer changeNum(UserCart cart, Predicate<Line> match, int delta, int min, String username) {
+        for (Line line : cart.lines) {
+            if (match.test(line)) {
+                Cart data = line.cart;
+                int num = Math.max(min, data.getNum() + delta);
+                line.delta += num - data.getNum();
+                data.setNum(num);
+                data.setModifiedUser(username);
+                data.setModifiedTime(new Date());
+                dirty.put(cart.uid, cart);
+                return data.getNum();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 用一条语句写入多个购物车中未写入的变化量，调用方需持有这些用户的写入锁
+     * 写入前记下每条数据的变化量，写入成功后从中减去，写入期间新的修改留待下次写入
+     */
+    private int write(Collection<UserCart> carts) {
+        List<Cart> batch = new ArrayList<>();
+        List<Line> batchLines = new ArrayList<>();
+        List<UserCart> batchCarts = new ArrayList<>();
+        for (UserCart cart : carts) {
+            synchronized (cart) {
+                for (Line line : cart.lines) {
+                    if (line.delta != 0) {
+                        Cart data = copy(line.cart);
+                        data.setNum(line.delta);
+                        batch.add(data);
+                        batchLines.add(line);
+                        batchCarts.add(cart);
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            cartMapper.updateNums(batch);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            synchronized (batchCarts.get(i)) {
+                batchLines.get(i).delta -= batch.get(i).getNum();
+            }
+        }
+        for (UserCart cart : carts) {
+            synchronized (cart) {
+                if (!cart.isDirty()) {
+                    dirty.remove(cart.uid, cart);
+                }
+            }
+        }
+        return batch.size();
+    }
+
+    /** @return 这些购物车中待写入的数据条数 */
+    private static int pendingLines(List<UserCart> carts) {
+        int lines = 0;
+        for (UserCart cart : carts) {
+            synchronized (cart) {
+                for (Line line : cart.lines) {
+                    if (line.delta != 0) {
+                        lines++;
+                    }
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static void unlock(List<UserCart> carts) {
+        for (UserCart cart : carts) {
+            cart.writeLock.unlock();
+        }
+        carts.clear();
+    }
+
+    private static void checkNoTransaction() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("购物车数据需在事务开始之前写入");
+        }
+    }
+
+    private UserCart get(Integer uid) {
+        synchronized (users) {
+            UserCart cart = users.get(uid);
+            if (cart != null) {
+                return cart;
+            }
+        }
+        return loads.execute(uid, () -> load(uid));
+    }
+
+    /** 加载用户的购物车，同一用户同时只有一个线程执行 */
+    private UserCart load(Integer uid) {
+        synchronized (users) {
+            UserCart cart = users.get(uid);
+            if (cart != null) {
+                return cart;
+            }
+        }
+        // 被淘汰时还有未写入的修改，直接复用，不能从数据库重新加载
+        UserCart cart = dirty.get(uid);
+        if (cart == null) {
+            cart = new UserCart(uid);
+            for (Cart data : cartMapper.findByUid(uid)) {
+                cart.lines.add(new Line(data));
+            }
+        }
+        synchronized (cart) {
+            cart.evicted = false;
+        }
+        synchronized (users) {
+            users.put(uid, cart);
+            Iterator<Map.Entry<Integer, UserCart>> it = users.entrySet().iterator();
+            while (users.size() > maxUsers) {
+                UserCart eldest = it.next().getValue();
+                it.remove();
+                synchronized (eldest) {
+                    eldest.evicted = true;
+                }
+            }
+        }
+        return cart;
+    }
+
+    private static Cart copy(Cart cart) {
+        Cart copy = new Cart();
+        copy.setCid(cart.getCid());
+        copy.setUid(cart.getUid());
+        copy.setPid(cart.getPid());
+        copy.setPrice(cart.getPrice());
+        copy.setNum(cart.getNum());
+        copy.setCreatedUser(cart.getCreatedUser());
+        copy.setCreatedTime(cart.getCreatedTime());
+        copy.setModifiedUser(cart.getModifiedUser());
+        copy.setModifiedTime(cart.getModifiedTime());
+        return copy;
+    }
+
+    /** 一个用户的购物车，读写需持有其自身的锁；写入数据库需持有writeLock，且须在自身的锁之前获取 */
+    private static final class UserCart {
+        final Integer uid;
+        final ReentrantLock writeLock = new ReentrantLock();
+        /** 按加入时间从新到旧排列 */
+        final List<Line> lines = new ArrayList<>();
+        /** 已被淘汰，持有旧引用的线程需要重新获取 */
+        boolean evicted;
+
+        UserCart(Integer uid) {
+            this.uid = uid;
+        }
+
+        boolean isDirty() {
+            for (Line line : lines) {
+                if (line.delta != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Line {
+        final Cart cart;
+        /** 尚未写入数据库的数量变化量，由所属购物车的锁保护 */
+        int delta;
+
+        Line(Cart cart) {
+            this.cart = cart;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.cy.store.cache;
+
+import com.cy.store.entity.Category;
+import com.cy.store.vo.CategoryVO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品分类树的内存快照（不可变）
+ * 构建时一次性把整张分类表组装成树，重新加载时整体替换快照对象，读线程无需加锁
+ */
+public final class CategoryTree {
+    /** 空分类树：数据库不可用时的占位 */
+    public static final CategoryTree EMPTY =
+            new CategoryTree(Collections.<CategoryVO>emptyList(), Collections.<Integer, CategoryVO>emptyMap(), null);
+
+    /** 顶级分类的父分类id */
+    public static final int ROOT_ID = 0;
+
+    private final List<CategoryVO> roots;
+    private final Map<Integer, CategoryVO> nodes;
+    /** 构建快照时的数据版本 */
+    private final String version;
+
+    private CategoryTree(List<CategoryVO> roots, Map<Integer, CategoryVO> nodes, String version) {
+        this.roots = roots;
+        this.nodes = nodes;
+        this.version = version;
+    }
+
+    /**
+     * 根据全表数据构建分类树，已删除的分类及其下级分类不出现在树中
+     * @param all t_product_category中的全部数据
+     * @param version 数据版本
+     * @return 分类树快照
+     */
+    public static CategoryTree build(List<Category> all, String version) {
+        Map<Integer, List<Category>> childrenByParent = new HashMap<>();
+        for (Category c : all) {
+            if (c.getId() == null || c.getStatus() == null || c.getStatus() != 1) {
+                continue;
+            }
+            int parent = c.getParentId() == null ? ROOT_ID : c.getParentId();
+            childrenByParent.computeIfAbsent(parent, k -> new ArrayList<>()).add(c);
+        }
+        Map<Integer, CategoryVO> nodes = new HashMap<>(all.size() * 4 / 3 + 1);
+        List<CategoryVO> roots = assemble(ROOT_ID, childrenByParent, nodes);
+        return new CategoryTree(roots, Collections.unmodifiableMap(nodes), version);
+    }
+
+    /** 组装parent的子树，按排序号、id升序 */
+    private static List<CategoryVO> assemble(int parent, Map<Integer, List<Category>> childrenByParent,
+                                             Map<Integer, CategoryVO> nodes) {
+        List<Category> children = childrenByParent.get(parent);
+        if (children == null) {
+            return Collections.emptyList();
+        }
+        children.sort(Comparator.comparing((Category c) -> c.getSortOrder() == null ? 0 : c.getSortOrder())
+                .thenComparing(Category::getId));
+        List<CategoryVO> list = new ArrayList<>(children.size());
+        for (Category c : children) {
+            // 防止数据中出现环
+            if (nodes.containsKey(c.getId())) {
+                continue;
+            }
+            CategoryVO node = new CategoryVO(c.getId(), c.getName(), null);
+            nodes.put(c.getId(), node);
+            node.setChildren(assemble(c.getId(), childrenByParent, nodes));
+            list.add(node);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /** @return 顶级分类，列表及节点均为共享数据，不可修改 */
+    public List<CategoryVO> getRoots() {
+        return roots;
+    }
+
+    /**
+     * 获取某个分类节点（包含其子树）
+     * @param id 分类id
+     * @return 分类节点，不存在或已删除时返回null
+     */
+    public CategoryVO getNode(Integer id) {
+        return nodes.get(id);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /** @return 用于条件GET的强ETag，数据版本不变时保持不变 */
+    public String getEtag() {
+        return "\"" + version + "\"";
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+}
@@ -0,0 +1,86 @@
+package com.cy.store.cache;
+
+import com.cy.store.entity.District;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 省市区字典的内存快照（不可变）
+ * 以6位行政代号为key：父代号 -> 子区域列表，代号 -> 名称，查询均为O(1)
+ * 重新加载时整体替换快照对象，读线程无需加锁
+ */
+public final class DistrictDictionary {
+    /** 空字典：数据库不可用时的占位 */
+    public static final DistrictDictionary EMPTY =
+            new DistrictDictionary(Collections.<String, List<District>>emptyMap(),
+                    Collections.<String, String>emptyMap(), null);
+
+    private final Map<String, List<District>> childrenByParent;
+    private final Map<String, String> nameByCode;
+    /** 构建快照时的数据版本，用于判断表数据是否变化 */
+    private final String version;
+
+    private DistrictDictionary(Map<String, List<District>> childrenByParent,
+                               Map<String, String> nameByCode,
+                               String version) {
+        this.childrenByParent = childrenByParent;
+        this.nameByCode = nameByCode;
+        this.version = version;
+    }
+
+    /**
+     * 根据全表数据构建字典
+     * @param all t_dict_district中的全部数据
+     * @param version 数据版本
+     * @return 字典快照
+     */
+    public static DistrictDictionary build(List<District> all, String version) {
+        Map<String, List<District>> children = new HashMap<>(all.size() / 8 + 16);
+        Map<String, String> names = new HashMap<>(all.size() * 4 / 3 + 1);
+        for (District d : all) {
+            if (d.getCode() == null) {
+                continue;
+            }
+            names.put(d.getCode(), d.getName());
+            // 对外只暴露code和name，id和parent在构建时就去掉
+            District node = new District();
+            node.setCode(d.getCode());
+            node.setName(d.getName());
+            children.computeIfAbsent(d.getParent(), k -> new ArrayList<>()).add(node);
+        }
+        for (Map.Entry<String, List<District>> e : children.entrySet()) {
+            List<District> list = e.getValue();
+            list.sort(Comparator.comparing(District::getCode));
+            e.setValue(Collections.unmodifiableList(list));
+        }
+        return new DistrictDictionary(Collections.unmodifiableMap(children),
+                Collections.unmodifiableMap(names), version);
+    }
+
+    /**
+     * 根据父代号获取子区域（按code升序）
+     * @param parent 父代号
+     * @return 子区域列表，不存在时返回空列表；列表及元素均为共享数据，不可修改
+     */
+    public List<District> getChildren(String parent) {
+        List<District> list = childrenByParent.get(parent);
+        return list == null ? Collections.<District>emptyList() : list;
+    }
+
+    public String getName(String code) {
+        return nameByCode.get(code);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return nameByCode.size();
+    }
+}
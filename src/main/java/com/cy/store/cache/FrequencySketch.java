@@ -0,0 +1,66 @@
+package com.cy.store.cache;
+
+/**
+ * 访问频率的近似统计（Count-Min Sketch，计数上限15，定期减半老化）
+ * 用于缓存的准入判断：新数据只有比被淘汰的数据更"热"才允许进入缓存
+ * 非线程安全，由调用方加锁
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final int[][] table;
+    private final int mask;
+    /** 累计增加次数达到该值后，所有计数减半 */
+    private final int sampleSize;
+    private int additions;
+
+    /** @param expectedSize 缓存的容量，计数表宽度取其4倍以减少哈希冲突 */
+    FrequencySketch(int expectedSize) {
+        int width = Integer.highestOneBit(Math.max(16, expectedSize * 4) - 1) << 1;
+        this.table = new int[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = width * 10;
+    }
+
+    /** 记录一次访问 */
+    void increment(int key) {
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexOf(key, i);
+            if (table[i][index] < MAX_COUNT) {
+                table[i][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /** @return 估计的访问频率 */
+    int frequency(int key) {
+        int min = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, table[i][indexOf(key, i)]);
+        }
+        return min;
+    }
+
+    private int indexOf(int key, int row) {
+        long h = (key + SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        h ^= h >>> 32;
+        return (int) h & mask;
+    }
+
+    private void reset() {
+        for (int[] row : table) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] >>>= 1;
+            }
+        }
+        additions /= 2;
+    }
+}
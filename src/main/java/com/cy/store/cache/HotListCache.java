@@ -0,0 +1,191 @@
+package com.cy.store.cache;
+
+import com.cy.store.Controller.BaseController;
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.event.SalesRankingChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import com.cy.store.rank.SalesRanking;
+import com.cy.store.util.JsonResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 热销商品列表的提前刷新缓存
+ * 列表和序列化好的响应体都保存在内存中，由后台线程定时、在商品变化或销量排行变化时重建，
+ * 请求线程从不等待数据库
+ * 列表按实时销量排行（SalesRanking）取前几名上架商品，销量数据不足时按显示优先级补齐
+ * 列表中的商品不含库存，库存变化时不需要重建
+ */
+@Component
+public class HotListCache {
+    /** 热销列表的商品数 */
+    public static final int HOT_LIST_SIZE = 4;
+
+    @Autowired
+    private ProductMapper productMapper;
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private SalesRanking salesRanking;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** 当前的热销列表快照，重建时整体替换 */
+    private volatile Snapshot snapshot;
+
+    /** 后台刷新线程，商品变化时多次刷新请求会被合并为一次 */
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "hot-list-refresher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        WarmUp.run("热销商品列表", this::refresh);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    /** @return 热销商品列表，列表及元素均为共享数据，不可修改 */
+    public List<Product> getList() {
+        return current().list;
+    }
+
+    /** @return 序列化好的JsonResult响应体 */
+    public byte[] getJson() {
+        return current().json;
+    }
+
+    /** 按配置的间隔定时重建 */
+    @Scheduled(initialDelayString = "${product.hot-list.refresh-interval}",
+            fixedDelayString = "${product.hot-list.refresh-interval}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            System.out.println("热销商品列表刷新失败：" + e.getMessage());
+        }
+    }
+
+    /** 商品数据发生变化时在后台重建 */
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        // 列表中的商品不含库存
+        if (event.isStockOnly()) {
+            return;
+        }
+        refreshInBackground();
+    }
+
+    /** 销量排行变化时在后台重建 */
+    @EventListener
+    public void onSalesRankingChanged(SalesRankingChangedEvent event) {
+        refreshInBackground();
+    }
+
+    /** 在后台线程中重建，尚未执行的重建请求会被合并 */
+    private void refreshInBackground() {
+        if (!refreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        refresher.execute(() -> {
+            refreshPending.set(false);
+            scheduledRefresh();
+        });
+    }
+
+    /** 重新查询热销列表并替换快照 */
+    public void refresh() {
+        snapshot = load();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = load();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private Snapshot load() {
+        List<Product> list = new ArrayList<>(HOT_LIST_SIZE);
+        Set<Integer> added = new HashSet<>();
+        // 按销量排行取上架的商品，多取几名以跳过已下架的商品
+        List<Integer> ranked = salesRanking.top(HOT_LIST_SIZE * 2);
+        Map<Integer, Product> products = productCache.getAll(ranked);
+        for (Integer pid : ranked) {
+            Product product = products.get(pid);
+            if (product != null && Integer.valueOf(1).equals(product.getStatus()) && list.size() < HOT_LIST_SIZE) {
+                list.add(listed(product));
+                added.add(pid);
+            }
+        }
+        // 销量数据不足时按显示优先级补齐
+        if (list.size() < HOT_LIST_SIZE) {
+            for (Product product : productMapper.findHotList()) {
+                if (list.size() < HOT_LIST_SIZE && added.add(product.getId())) {
+                    list.add(listed(product));
+                }
+            }
+        }
+        list = Collections.unmodifiableList(list);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(
+                    new JsonResult<>(BaseController.OK, list));
+            return new Snapshot(list, json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("热销商品列表序列化失败", e);
+        }
+    }
+
+    /** 列表中展示的商品数据：只复制展示用的字段，过滤库存和冗余数据 */
+    private static Product listed(Product product) {
+        Product listed = new Product();
+        listed.setId(product.getId());
+        listed.setCategoryId(product.getCategoryId());
+        listed.setItemType(product.getItemType());
+        listed.setTitle(product.getTitle());
+        listed.setSellPoint(product.getSellPoint());
+        listed.setPrice(product.getPrice());
+        listed.setImage(product.getImage());
+        listed.setStatus(product.getStatus());
+        return listed;
+    }
+
+    private static final class Snapshot {
+        final List<Product> list;
+        final byte[] json;
+
+        Snapshot(List<Product> list, byte[] json) {
+            this.list = list;
+            this.json = json;
+        }
+    }
+}
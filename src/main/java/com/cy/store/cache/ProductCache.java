@@ -0,0 +1,347 @@
+package com.cy.store.cache;
+
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import com.cy.store.vo.CacheStatsVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 商品详情缓存，位于ProductMapper.findById之前
+ * 1.容量有上限：按LRU顺序淘汰，并用访问频率做准入判断，偶发访问的商品不会挤掉热门商品
+ * 2.每个条目有自己的过期时间（在配置的TTL上随机浮动，避免同时失效）
+ * 3.商品数据变化时通过invalidate()或ProductChangedEvent失效，包括只有库存变化的事件：
+ *   事件在下单的请求线程中发布，失效不访问数据库，由之后的get()重新加载。
+ *   失效按商品计数（分段），加载期间该商品发生过失效的数据不放入缓存，其他商品的失效不影响
+ * 4.同一商品并发未命中时只有一个线程查询数据库，其余线程共享结果或异常
+ * 5.批量获取时未命中的商品合并为一次IN查询
+ * 6.命中时不加锁：查找走ConcurrentHashMap，访问记录写入按线程分段的有损缓冲区，
+ *   缓冲区写满或有新数据放入缓存时在淘汰锁下批量更新访问顺序和频率，竞争激烈时丢弃部分访问记录
+ * 缓存中的Product在加载时已过滤了冗余字段，为共享对象，不可修改
+ */
+@Component
+public class ProductCache {
+    /** 失效计数的分段数，不同商品落在同一分段的概率很小 */
+    private static final int VERSION_STRIPES = 1024;
+
+    private final ProductMapper productMapper;
+    private final int maxSize;
+    private final long ttl;
+
+    /** 缓存的条目，查找不加锁；增删需持有evictionLock，与order保持一致 */
+    private final ConcurrentHashMap<Integer, Entry> data = new ConcurrentHashMap<>();
+    /** 按访问顺序排列的商品id，以下三项都只在持有evictionLock时访问 */
+    private final LinkedHashMap<Integer, Boolean> order = new LinkedHashMap<>(64, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final ReadBuffer[] readBuffers;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final SingleFlight<Integer, Product> loads = new SingleFlight<>();
+    /** 每个分段的失效次数，商品id按哈希分段；加载期间该分段发生过失效的数据不放入缓存 */
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    /** 清空缓存的次数 */
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ProductCache(ProductMapper productMapper,
+                        @Value("${product.cache.max-size}") int maxSize,
+                        @Value("${product.cache.ttl}") long ttl) {
+        this.productMapper = productMapper;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.sketch = new FrequencySketch(maxSize);
+        int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+        this.readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    /**
+     * 根据商品id获取商品详情，未命中时查询数据库并放入缓存
+     * @param id 商品id
+     * @return 商品详情，不存在时返回null
+     */
+    public Product get(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        Product product = getIfPresent(id);
+        if (product != null) {
+            return product;
+        }
+        return loads.execute(id, () -> load(id));
+    }
+
+    /**
+     * 批量获取商品详情，缓存未命中的商品用一次查询加载
+     * @param ids 商品id
+     * @return 商品id -> 商品详情，不存在的商品不在结果中
+     */
+    public Map<Integer, Product> getAll(Collection<Integer> ids) {
+        Map<Integer, Product> result = new HashMap<>(ids.size() * 4 / 3 + 1);
+        Set<Integer> missing = new LinkedHashSet<>();
+        for (Integer id : ids) {
+            if (id == null || result.containsKey(id) || missing.contains(id)) {
+                continue;
+            }
+            Product product = getIfPresent(id);
+            if (product != null) {
+                result.put(id, product);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Integer, Long> stamps = stamps(missing);
+            for (Product product : productMapper.findByIds(missing)) {
+                strip(product);
+                put(product.getId(), product, stamps.get(product.getId()));
+                result.put(product.getId(), product);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 只查缓存，不访问数据库
+     * @param id 商品id
+     * @return 缓存中的商品详情，未命中返回null
+     */
+    public Product getIfPresent(Integer id) {
+        recordAccess(id);
+        Entry entry = data.get(id);
+        if (entry != null) {
+            if (entry.expireAt > System.currentTimeMillis()) {
+                hits.increment();
+                return entry.product;
+            }
+            evictionLock.lock();
+            try {
+                if (data.remove(id, entry)) {
+                    order.remove(id);
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** 使某个商品的缓存失效 */
+    public void invalidate(Integer id) {
+        versions.incrementAndGet(stripe(id));
+        evictionLock.lock();
+        try {
+            data.remove(id);
+            order.remove(id);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /** 清空缓存 */
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        evictionLock.lock();
+        try {
+            data.clear();
+            order.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isAll()) {
+            invalidateAll();
+        } else {
+            for (Integer pid : event.getPids()) {
+                invalidate(pid);
+            }
+        }
+    }
+
+    public CacheStatsVO getStats() {
+        return new CacheStatsVO(hits.sum(), misses.sum(), evictions.sum(), data.size());
+    }
+
+    /** 查询数据库并放入缓存，同一商品同时只有一个线程执行 */
+    private Product load(Integer id) {
+        // 上一次加载可能刚刚完成，先再查一次缓存
+        Entry entry = data.get(id);
+        if (entry != null && entry.expireAt > System.currentTimeMillis()) {
+            return entry.product;
+        }
+        long start = stamp(id);
+        Product product = productMapper.findById(id);
+        if (product == null) {
+            return null;
+        }
+        strip(product);
+        put(id, product, start);
+        return product;
+    }
+
+    private static int stripe(Integer id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    /** @return 商品当前的失效计数：所在分段的失效次数与清空次数之和，两者都只增不减 */
+    private long stamp(Integer id) {
+        return epoch.get() + versions.get(stripe(id));
+    }
+
+    private Map<Integer, Long> stamps(Collection<Integer> ids) {
+        Map<Integer, Long> stamps = new HashMap<>(ids.size() * 4 / 3 + 1);
+        for (Integer id : ids) {
+            stamps.put(id, stamp(id));
+        }
+        return stamps;
+    }
+
+    /** 将商品放入缓存，start为加载前该商品的失效计数 */
+    private void put(Integer id, Product product, long start) {
+        long now = System.currentTimeMillis();
+        long expireAt = now + (long) (ttl * (0.9 + ThreadLocalRandom.current().nextDouble() * 0.2));
+        evictionLock.lock();
+        try {
+            if (stamp(id) != start) {
+                return;
+            }
+            // 先把积压的访问记录计入，准入判断才能看到候选商品最近的访问
+            drainReadBuffers();
+            if (!data.containsKey(id) && data.size() >= maxSize && !makeRoom(id, now)) {
+                return;
+            }
+            data.put(id, new Entry(product, expireAt));
+            order.put(id, Boolean.TRUE);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /** 记录一次访问，缓冲区写满时尝试批量处理，锁被占用时交给持有者或下一次处理 */
+    private void recordAccess(Integer id) {
+        ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+        if (buffer.offer(id) && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /** 将缓冲区中的访问计入频率统计和访问顺序，调用方需持有evictionLock */
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            buffer.drainTo(this::onAccess);
+        }
+    }
+
+    private void onAccess(Integer id) {
+        sketch.increment(id);
+        // 访问顺序的LinkedHashMap在get时把条目移到末尾
+        order.get(id);
+    }
+
+    /**
+     * 缓存已满时为新数据腾出位置：优先清除过期条目，
+     * 否则只有新数据的访问频率高于最久未访问的条目时才将其淘汰
+     * @return 是否腾出了位置
+     */
+    private boolean makeRoom(Integer candidate, long now) {
+        Iterator<Integer> it = order.keySet().iterator();
+        Integer eldest = it.next();
+        if (data.get(eldest).expireAt <= now) {
+            it.remove();
+            data.remove(eldest);
+            return true;
+        }
+        if (sketch.frequency(candidate) <= sketch.frequency(eldest)) {
+            return false;
+        }
+        it.remove();
+        data.remove(eldest);
+        evictions.increment();
+        return true;
+    }
+
+    /** 过滤冗余字段，只在加载时执行一次 */
+    private static void strip(Product product) {
+        product.setPriority(null);
+        product.setCreatedUser(null);
+        product.setCreatedTime(null);
+        product.setModifiedUser(null);
+        product.setModifiedTime(null);
+    }
+
+    private static final class Entry {
+        final Product product;
+        final long expireAt;
+
+        Entry(Product product, long expireAt) {
+            this.product = product;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 有损的访问记录缓冲区，写满后丢弃新的记录直到被处理
+     * 处理与写入并发时，个别记录可能丢失或被计入两次，只影响淘汰的近似程度
+     */
+    private static final class ReadBuffer {
+        private static final int SIZE = 16;
+
+        private final AtomicReferenceArray<Integer> slots = new AtomicReferenceArray<>(SIZE);
+        private final AtomicInteger writes = new AtomicInteger();
+
+        /** @return 缓冲区是否已满，需要处理 */
+        boolean offer(Integer id) {
+            int index = writes.get();
+            if (index >= SIZE) {
+                return true;
+            }
+            if (writes.compareAndSet(index, index + 1)) {
+                slots.lazySet(index, id);
+            }
+            return index + 1 >= SIZE;
+        }
+
+        void drainTo(Consumer<Integer> consumer) {
+            int count = Math.min(writes.get(), SIZE);
+            for (int i = 0; i < count; i++) {
+                Integer id = slots.getAndSet(i, null);
+                if (id != null) {
+                    consumer.accept(id);
+                }
+            }
+            writes.set(0);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.cy.store.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 每个登录用户最近浏览的商品
+ * 1.每个用户一个定长的环形缓冲区（int数组），记录浏览时不分配对象；重复浏览的商品移到最前
+ * 2.用户总数有上限，超出时淘汰最久没有浏览的用户，其缓冲区直接复用给新用户，
+ *   总内存约为 用户数上限 × 每人条数 × 4字节
+ * 3.按uid分段加锁，不同用户之间互不阻塞
+ * 数据只保存在内存中，重启后清空
+ */
+@Component
+public class RecentlyViewed {
+    private static final int SEGMENTS = 16;
+
+    private final int perUser;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public RecentlyViewed(@Value("${product.recent.per-user}") int perUser,
+                          @Value("${product.recent.max-users}") int maxUsers) {
+        this.perUser = perUser;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Math.max(1, maxUsers / SEGMENTS));
+        }
+    }
+
+    /**
+     * 记录一次浏览
+     * @param uid 用户id
+     * @param pid 商品id
+     */
+    public void record(Integer uid, Integer pid) {
+        if (uid == null || pid == null) {
+            return;
+        }
+        Segment segment = segmentOf(uid);
+        synchronized (segment) {
+            Ring ring = segment.users.get(uid);
+            if (ring == null) {
+                ring = segment.takeRing(perUser);
+                segment.users.put(uid, ring);
+            }
+            ring.add(pid);
+        }
+    }
+
+    /**
+     * 获取用户最近浏览的商品
+     * @param uid 用户id
+     * @return 商品id，最近浏览的在前
+     */
+    public int[] get(Integer uid) {
+        if (uid == null) {
+            return new int[0];
+        }
+        Segment segment = segmentOf(uid);
+        synchronized (segment) {
+            Ring ring = segment.users.get(uid);
+            return ring == null ? new int[0] : ring.toArray();
+        }
+    }
+
+    /** @return 当前记录的用户数 */
+    public int users() {
+        int count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                count += segment.users.size();
+            }
+        }
+        return count;
+    }
+
+    private Segment segmentOf(int uid) {
+        int h = uid * 0x9E3779B9;
+        return segments[(h >>> 28) & (SEGMENTS - 1)];
+    }
+
+    private static final class Segment {
+        final int maxUsers;
+        /** 按访问顺序排列，最久未访问的用户在前 */
+        final LinkedHashMap<Integer, Ring> users = new LinkedHashMap<>(64, 0.75f, true);
+
+        Segment(int maxUsers) {
+            this.maxUsers = maxUsers;
+        }
+
+        /** 取得一个空的缓冲区：用户数已满时淘汰最久未访问的用户并复用其缓冲区 */
+        Ring takeRing(int capacity) {
+            if (users.size() < maxUsers) {
+                return new Ring(capacity);
+            }
+            Iterator<Map.Entry<Integer, Ring>> it = users.entrySet().iterator();
+            Ring ring = it.next().getValue();
+            it.remove();
+            ring.clear();
+            return ring;
+        }
+    }
+
+    /** 定长环形缓冲区，head为最近一次写入的位置 */
+    private static final class Ring {
+        final int[] ids;
+        int head = -1;
+        int size;
+
+        Ring(int capacity) {
+            ids = new int[capacity];
+        }
+
+        void add(int pid) {
+            // 已存在时从原位置移除，其后（更早）的元素不动，之前（更新）的元素依次后移一格
+            for (int i = 0; i < size; i++) {
+                int index = Math.floorMod(head - i, ids.length);
+                if (ids[index] == pid) {
+                    for (int j = i; j > 0; j--) {
+                        ids[Math.floorMod(head - j, ids.length)] = ids[Math.floorMod(head - j + 1, ids.length)];
+                    }
+                    ids[head] = pid;
+                    return;
+                }
+            }
+            head = (head + 1) % ids.length;
+            ids[head] = pid;
+            if (size < ids.length) {
+                size++;
+            }
+        }
+
+        int[] toArray() {
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = ids[Math.floorMod(head - i, ids.length)];
+            }
+            return result;
+        }
+
+        void clear() {
+            head = -1;
+            size = 0;
+        }
+    }
+}
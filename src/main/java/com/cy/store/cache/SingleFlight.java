@@ -0,0 +1,61 @@
+package com.cy.store.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 并发加载的合并（single-flight）
+ * 同一个key同时只有一个线程执行加载，其余线程等待并共享它的结果或异常
+ * @param <K> key的类型
+ * @param <V> 加载结果的类型
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * 执行加载：当前key已有加载在进行中时等待其结果，否则由当前线程加载
+     * @param key 加载的key
+     * @param loader 加载逻辑
+     * @return 加载结果
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = calls.putIfAbsent(key, call);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /** @return 正在进行中的加载数 */
+    public int inFlight() {
+        return calls.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // 将加载线程抛出的原始异常交给每个等待者
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.cy.store.cache;
+
+/**
+ * 启动时的预加载：内存中的字典、索引、排行等在启动时加载，
+ * 数据库不可用时不影响启动，只打印提示，由各组件在首次访问时再加载
+ */
+public final class WarmUp {
+    private WarmUp() {
+    }
+
+    /**
+     * 执行预加载，失败时忽略
+     * @param name 加载的数据，用于提示信息
+     * @param loader 加载逻辑
+     */
+    public static void run(String name, Runnable loader) {
+        try {
+            loader.run();
+        } catch (RuntimeException e) {
+            System.out.println(name + "加载失败，将在首次访问时重试：" + e.getMessage());
+        }
+    }
+}
@@ -36,6 +36,7 @@ public class LoginInterceptorConfigurer implements WebMvcConfigurer {
         patterns.add("/users/login");
         patterns.add("/districts/**");
         patterns.add("/products/**");
+        patterns.add("/categories/**");
 
         // 完成拦截器的注册
         registry.addInterceptor(interceptor)
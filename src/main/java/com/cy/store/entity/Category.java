@@ -0,0 +1,75 @@
+package com.cy.store.entity;
+
+import java.io.Serializable;
+
+/** 商品分类的实体类 */
+public class Category extends BaseEntity implements Serializable {
+    private Integer id;             //分类id
+    private Integer parentId;      //父分类id，顶级分类为0
+    private String name;            //名称
+    private Integer status;         //状态  1：正常  0：删除
+    private Integer sortOrder;     //排序号
+    private Integer isParent;      //是否是父分类  1：是  0：否
+
+    // getter和setter
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Integer parentId) {
+        this.parentId = parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public Integer getSortOrder() {
+        return sortOrder;
+    }
+
+    public void setSortOrder(Integer sortOrder) {
+        this.sortOrder = sortOrder;
+    }
+
+    public Integer getIsParent() {
+        return isParent;
+    }
+
+    public void setIsParent(Integer isParent) {
+        this.isParent = isParent;
+    }
+
+    // toString
+    @Override
+    public String toString() {
+        return "Category{" +
+                "id=" + id +
+                ", parentId=" + parentId +
+                ", name='" + name + '\'' +
+                ", status=" + status +
+                ", sortOrder=" + sortOrder +
+                ", isParent=" + isParent +
+                '}';
+    }
+}
@@ -1,11 +1,16 @@
 package com.cy.store.entity;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
 import java.io.Serializable;
 import java.util.Date;
 
 /** 订单数据的实体类*/
 public class Order extends BaseEntity implements Serializable {
-    private Integer oid;
+    /** 由IdGenerator生成的64位id，超出JavaScript的安全整数范围，以字符串返回给前端 */
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long oid;
     private Integer uid;
     private String recvName;
     private String recvPhone;
@@ -19,11 +24,11 @@ public class Order extends BaseEntity implements Serializable {
     private Date payTime;
 
     // getter和setter方法
-    public Integer getOid() {
+    public Long getOid() {
         return oid;
     }
 
-    public void setOid(Integer oid) {
+    public void setOid(Long oid) {
         this.oid = oid;
     }
 
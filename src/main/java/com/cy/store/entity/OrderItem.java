@@ -1,11 +1,17 @@
 package com.cy.store.entity;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
 import java.io.Serializable;
 
 /** 订单中的商品数据 */
 public class OrderItem extends BaseEntity implements Serializable {
-    private Integer id;
-    private Integer oid;
+    /** id和oid均由IdGenerator生成，以字符串返回给前端 */
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long id;
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long oid;
     private Integer pid;
     private String title;
     private String image;
@@ -13,19 +19,19 @@ public class OrderItem extends BaseEntity implements Serializable {
     private Integer num;
 
     // getter和setter方法
-    public Integer getId() {
+    public Long getId() {
         return id;
     }
 
-    public void setId(Integer id) {
+    public void setId(Long id) {
         this.id = id;
     }
 
-    public Integer getOid() {
+    public Long getOid() {
         return oid;
     }
 
-    public void setOid(Integer oid) {
+    public void setOid(Long oid) {
         this.oid = oid;
     }
 
@@ -0,0 +1,55 @@
+package com.cy.store.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 商品数据发生变化的事件
+ * 修改t_product的事务提交后发布此事件，各个商品相关的内存缓存据此刷新；
+ * 只有库存变化时用stock()创建，不包含库存的索引可以忽略
+ */
+public class ProductChangedEvent extends ApplicationEvent {
+    /** 发生变化的商品id，为空表示全部商品都可能发生了变化 */
+    private final Set<Integer> pids;
+    /** 只有库存（t_product.num）发生了变化 */
+    private final boolean stockOnly;
+
+    public ProductChangedEvent(Object source, Integer... pids) {
+        this(source, false, Arrays.asList(pids));
+    }
+
+    private ProductChangedEvent(Object source, boolean stockOnly, Collection<Integer> pids) {
+        super(source);
+        this.pids = Collections.unmodifiableSet(new LinkedHashSet<>(pids));
+        this.stockOnly = stockOnly;
+    }
+
+    /**
+     * 商品库存变化的事件
+     * @param pids 库存发生变化的商品id，不能为空
+     */
+    public static ProductChangedEvent stock(Object source, Collection<Integer> pids) {
+        if (pids.isEmpty()) {
+            throw new IllegalArgumentException("库存变化的商品id不能为空");
+        }
+        return new ProductChangedEvent(source, true, pids);
+    }
+
+    public Set<Integer> getPids() {
+        return pids;
+    }
+
+    public boolean isStockOnly() {
+        return stockOnly;
+    }
+
+    /** 是否需要刷新全部商品 */
+    public boolean isAll() {
+        return pids.isEmpty();
+    }
+}
@@ -0,0 +1,49 @@
+package com.cy.store.event;
+
+import com.cy.store.mapper.ProductMapper;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 定时检查商品表的数据版本，商品在应用之外被修改（如后台直接改库）时发布全部商品变化的事件，
+ * 各个商品索引和缓存据此重新加载；应用内修改商品的流程自行发布事件，不依赖此处
+ */
+@Component
+public class ProductVersionWatcher {
+    private final ProductMapper productMapper;
+    private final ApplicationEventPublisher publisher;
+    private volatile String version;
+
+    public ProductVersionWatcher(ProductMapper productMapper, ApplicationEventPublisher publisher) {
+        this.productMapper = productMapper;
+        this.publisher = publisher;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            version = productMapper.findVersion();
+        } catch (RuntimeException e) {
+            System.out.println("商品数据版本读取失败，将在下次检查时重试：" + e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${product.refresh-interval}",
+            fixedDelayString = "${product.refresh-interval}")
+    public void refreshIfChanged() {
+        try {
+            String current = productMapper.findVersion();
+            if (current == null || current.equals(version)) {
+                return;
+            }
+            // 启动时未能读取版本，无法判断是否变化，也按变化处理
+            version = current;
+            publisher.publishEvent(new ProductChangedEvent(this));
+        } catch (RuntimeException e) {
+            System.out.println("商品数据版本检查失败：" + e.getMessage());
+        }
+    }
+}
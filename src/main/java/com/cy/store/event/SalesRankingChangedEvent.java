@@ -0,0 +1,13 @@
+package com.cy.store.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 销量排行榜前列的商品或顺序发生变化的事件
+ * 依赖销量排行的内存数据（如热销列表）据此刷新
+ */
+public class SalesRankingChangedEvent extends ApplicationEvent {
+    public SalesRankingChangedEvent(Object source) {
+        super(source);
+    }
+}
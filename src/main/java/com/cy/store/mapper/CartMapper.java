@@ -15,6 +15,14 @@ public interface CartMapper {
      */
     Integer insert(Cart cart);
 
+    /**
+     * 将商品加入购物车：(uid, pid)已存在时在原数量上累加，否则插入新数据
+     * 依赖t_cart上(uid, pid)的唯一索引，一条语句完成，并发添加同一商品不会产生重复数据
+     * @param cart 购物车数据，num为新增数量
+     * @return 受影响的行数：插入为1，累加为2
+     */
+    Integer upsert(Cart cart);
+
     /**
      * 更新购物车某件商品的数量
      * @param cid 购物车数据id
@@ -28,6 +36,13 @@ public interface CartMapper {
                            @Param("modifiedUser") String modifiedUser,
                            @Param("modifiedTime") Date modifiedTime);
 
+    /**
+     * 批量累加多条购物车数据的数量并更新修改信息，数量最少为1
+     * @param carts 购物车数据，num为数量的变化量，按cid累加num、更新modifiedUser、modifiedTime
+     * @return 受影响的行数
+     */
+    Integer updateNums(@Param("carts") List<Cart> carts);
+
     /**
      * 根据用户id和商品id来查询购物车数据
      * @param uid 用户id
@@ -37,9 +52,25 @@ public interface CartMapper {
     Cart findByUidAndPid(@Param("uid") Integer uid,
                          @Param("pid") Integer pid);
 
+    /**
+     * 查询用户的全部购物车数据
+     * @param uid 用户id
+     * @return 按加入时间从新到旧排列
+     */
+    List<Cart> findByUid(Integer uid);
+
     List<CartVO> findVOByUid(Integer uid);
 
     Cart findByCid(Integer cid);
 
     List<CartVO> findVOByCid(Integer[] cids);
+
+    /**
+     * 查询用户选中的购物车数据，不属于该用户的数据在数据库中过滤掉
+     * @param uid 用户id
+     * @param cids 选中的购物车数据id，不能为空
+     * @return 属于该用户的购物车数据
+     */
+    List<CartVO> findVOByUidAndCids(@Param("uid") Integer uid,
+                                    @Param("cids") Integer[] cids);
 }
@@ -0,0 +1,20 @@
+package com.cy.store.mapper;
+
+import com.cy.store.entity.Category;
+
+import java.util.List;
+
+/** 商品分类的持久层接口 */
+public interface CategoryMapper {
+    /**
+     * 查询全部分类，用于构建内存中的分类树
+     * @return 分类表中的全部数据
+     */
+    List<Category> findAll();
+
+    /**
+     * 查询分类表的数据版本（行数、最大id和内容校验和）
+     * @return 数据版本，数据发生变化时版本随之改变
+     */
+    String findVersion();
+}
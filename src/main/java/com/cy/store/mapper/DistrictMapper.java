@@ -13,4 +13,16 @@ public interface DistrictMapper {
     List<District> findByParent(String parent);
 
     String findNameByCode(String code);
+
+    /**
+     * 查询全部区域信息，用于构建内存中的省市区字典
+     * @return 字典表中的全部数据
+     */
+    List<District> findAll();
+
+    /**
+     * 查询字典表的数据版本（行数、最大id和内容校验和）
+     * @return 数据版本，数据发生变化时版本随之改变
+     */
+    String findVersion();
 }
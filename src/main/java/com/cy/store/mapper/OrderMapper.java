@@ -2,20 +2,39 @@ package com.cy.store.mapper;
 
 import com.cy.store.entity.Order;
 import com.cy.store.entity.OrderItem;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Date;
+import java.util.List;
 
 /** 订单的持久层接口*/
 public interface OrderMapper {
     /**
-     * 插入订单数据
-     * @param order 订单数据
-     * @return 影响的行数
+     * 用一条语句插入多个订单，oid需事先生成
+     * @param orders 订单数据，不能为空
+     * @return 插入的订单数
+     */
+    Integer insertOrders(@Param("orders") List<Order> orders);
+
+    /**
+     * 用一条语句插入多个订单项，id需事先生成；与订单在同一个事务中插入
+     * @param items 订单项数据，不能为空
+     * @return 插入的订单项数
+     */
+    Integer insertOrderItems(@Param("items") List<OrderItem> items);
+
+    /**
+     * 按商品和时间段汇总某个时间之后的销量，用于启动时恢复销量排行
+     * @param since 起始时间
+     * @param bucketSeconds 时间段的长度（秒）
+     * @return 每个商品每个时间段一条数据：pid、num（销量之和）、createdTime（时间段的起点）
      */
-    Integer insertOrder(Order order);
+    List<OrderItem> findSalesSince(@Param("since") Date since, @Param("bucketSeconds") long bucketSeconds);
 
     /**
-     * 插入订单项的数据
-     * @param orderItem 订单项数据
-     * @return 影响的行数
+     * 按订单id顺序流式读取全部订单项（只有oid和pid），用于构建共同购买数据
+     * @param handler 逐条处理订单项
      */
-    Integer insertOrderItem(OrderItem orderItem);
+    void scanOrderItems(ResultHandler<OrderItem> handler);
 }
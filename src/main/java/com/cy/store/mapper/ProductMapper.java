@@ -1,7 +1,9 @@
 package com.cy.store.mapper;
 
 import com.cy.store.entity.Product;
+import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /** 处理商品数据的持久层接口*/
@@ -18,4 +20,53 @@ public interface ProductMapper {
      * @return 匹配的商品详情
      */
     Product findById(Integer id);
+
+    /**
+     * 根据多个商品id一次查询商品详情
+     * @param ids 商品id，不能为空
+     * @return 存在的商品，顺序不确定
+     */
+    List<Product> findByIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * 查询全部商品，用于构建内存中的商品索引
+     * @return 全部商品数据
+     */
+    List<Product> findAll();
+
+    /**
+     * 查询商品表的数据版本（行数、最大id和除库存以外各列的校验和）
+     * @return 数据版本，商品数据在应用之外被修改时版本随之改变
+     */
+    String findVersion();
+
+    /**
+     * 按优先级从高到低列出某个分类下上架的商品（键集分页）
+     * 从上一页最后一条商品的(priority, id)之后继续查询，不使用OFFSET，翻到多深的页面代价都相同
+     * @param categoryId 分类id
+     * @param lastPriority 上一页最后一条商品的优先级，查询第一页时为null
+     * @param lastId 上一页最后一条商品的id，查询第一页时为null
+     * @param limit 最多返回的条数
+     * @return 商品列表，按priority、id降序
+     */
+    List<Product> findByCategory(@Param("categoryId") Integer categoryId,
+                                 @Param("lastPriority") Integer lastPriority,
+                                 @Param("lastId") Integer lastId,
+                                 @Param("limit") Integer limit);
+
+    /**
+     * 扣减商品库存，库存不足时不修改
+     * @param id 商品id
+     * @param amount 扣减的数量，不是正数时不修改
+     * @return 受影响的行数，为0表示商品不存在、库存不足或数量不合法
+     */
+    Integer decreaseNum(@Param("id") Integer id, @Param("amount") Integer amount);
+
+    /**
+     * 增加商品库存，用于归还秒杀中未售出的库存
+     * @param id 商品id
+     * @param amount 增加的数量
+     * @return 受影响的行数
+     */
+    Integer increaseNum(@Param("id") Integer id, @Param("amount") Integer amount);
 }
@@ -0,0 +1,22 @@
+package com.cy.store.mapper;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Map;
+
+/** 商品统计数据（浏览次数等）的持久层接口 */
+public interface ProductStatMapper {
+    /**
+     * 批量累加商品的浏览次数，商品尚无统计数据时插入
+     * @param views 商品id -> 新增的浏览次数
+     * @return 受影响的行数
+     */
+    Integer addViewCounts(@Param("views") Map<Integer, Long> views);
+
+    /**
+     * 查询商品的累计浏览次数（只包含已写入的部分）
+     * @param pid 商品id
+     * @return 浏览次数，没有统计数据时返回null
+     */
+    Long findViewCount(Integer pid);
+}
@@ -0,0 +1,317 @@
+package com.cy.store.order;
+
+import com.cy.store.entity.Order;
+import com.cy.store.entity.OrderItem;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.OrderMapper;
+import com.cy.store.mapper.ProductMapper;
+import com.cy.store.rank.AlsoBoughtIndex;
+import com.cy.store.rank.SalesRanking;
+import com.cy.store.service.ex.InsertException;
+import com.cy.store.vo.OrderTicketVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步下单（组提交）
+ * 1.请求线程完成校验、组装好订单后放入有界队列，立即返回凭证；队列已满时在请求线程中同步写入
+ * 2.专门的写入线程从队列中取出当前积压的全部订单（最多batch-size个），在一个事务中：
+ *   按商品id升序逐行扣减库存，库存不足的订单归还已扣减的库存并标记失败，
+ *   其余订单和订单项各用一条语句写入（id已事先生成）；上一批写入期间到达的订单自然合并为下一批；
+ *   有库存归还时，失败的订单可能只是被其他失败订单暂时占用了库存，在本批提交后逐个在各自的事务中重试
+ * 3.整批写入出错时逐个订单重试，一个订单的问题不影响同批的其他订单
+ * 4.凭证的结果保留result-ttl毫秒，过期后查询不到
+ */
+@Component
+public class OrderIntake {
+    private final OrderMapper orderMapper;
+    private final ProductMapper productMapper;
+    private final SalesRanking salesRanking;
+    private final AlsoBoughtIndex alsoBoughtIndex;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long resultTtl;
+
+    private final ArrayBlockingQueue<Pending> queue;
+    /** 凭证 -> 订单，写入完成后保留到过期 */
+    private final ConcurrentHashMap<String, Pending> tickets = new ConcurrentHashMap<>();
+    private Thread writer;
+    /** 入队和停止接收互斥：停止之后不会再有订单入队，写入线程退出后的最后一次清空不会遗漏 */
+    private final Object handoff = new Object();
+    private volatile boolean running;
+
+    public OrderIntake(OrderMapper orderMapper, ProductMapper productMapper,
+                       SalesRanking salesRanking, AlsoBoughtIndex alsoBoughtIndex,
+                       ApplicationEventPublisher publisher, PlatformTransactionManager transactionManager,
+                       @Value("${order.intake.capacity}") int capacity,
+                       @Value("${order.intake.batch-size}") int batchSize,
+                       @Value("${order.intake.result-ttl}") long resultTtl) {
+        this.orderMapper = orderMapper;
+        this.productMapper = productMapper;
+        this.salesRanking = salesRanking;
+        this.alsoBoughtIndex = alsoBoughtIndex;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.resultTtl = resultTtl;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drain, "order-intake-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** 停止接收新订单，等待队列中的订单全部写入 */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        synchronized (handoff) {
+            running = false;
+        }
+        writer.join();
+        // 写入线程可能因中断提前退出，写入剩余的订单
+        for (Pending pending = queue.poll(); pending != null; pending = queue.poll()) {
+            write(Collections.singletonList(pending));
+        }
+    }
+
+    /**
+     * 受理一个订单
+     * @param uid 用户id
+     * @param order 订单数据
+     * @param items 订单项数据
+     * @return 凭证；队列已满时同步写入，返回的凭证已有结果
+     */
+    public OrderTicketVO submit(Integer uid, Order order, List<OrderItem> items) {
+        Pending pending = new Pending(UUID.randomUUID().toString(), uid, order, items);
+        tickets.put(pending.token, pending);
+        boolean queued;
+        synchronized (handoff) {
+            queued = running && queue.offer(pending);
+        }
+        if (!queued) {
+            write(Collections.singletonList(pending));
+        }
+        return pending.toTicket();
+    }
+
+    /**
+     * 查询凭证的结果
+     * @param uid 用户id，只能查询自己的凭证
+     * @param token 凭证
+     * @return 凭证的结果，不存在或已过期时返回null
+     */
+    public OrderTicketVO getTicket(Integer uid, String token) {
+        Pending pending = token == null ? null : tickets.get(token);
+        if (pending == null || !pending.uid.equals(uid)) {
+            return null;
+        }
+        return pending.toTicket();
+    }
+
+    /** @return 排队中的订单数 */
+    public int queued() {
+        return queue.size();
+    }
+
+    /** 清除过期的凭证 */
+    @Scheduled(initialDelayString = "${order.intake.result-ttl}",
+            fixedDelayString = "${order.intake.result-ttl}")
+    public void expireTickets() {
+        long deadline = System.currentTimeMillis() - resultTtl;
+        tickets.values().removeIf(p -> p.status != OrderTicketVO.PENDING && p.completedTime < deadline);
+    }
+
+    /** 写入线程：每次取出当前积压的订单作为一批写入 */
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.out.println("异步订单写入失败：" + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /** 在一个事务中写入一批订单，出错时逐个订单重试 */
+    private void write(List<Pending> batch) {
+        Outcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> persist(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                for (Pending pending : batch) {
+                    write(Collections.singletonList(pending));
+                }
+            } else {
+                batch.get(0).complete(OrderTicketVO.FAILED, "下单失败：" + e.getMessage());
+            }
+            return;
+        }
+        Set<Integer> changed = new HashSet<>();
+        List<Pending> retries = new ArrayList<>();
+        for (Pending pending : batch) {
+            if (outcome.rejected.contains(pending)) {
+                if (outcome.restored && batch.size() > 1) {
+                    retries.add(pending);
+                } else {
+                    pending.complete(OrderTicketVO.FAILED, "商品库存不足");
+                }
+                continue;
+            }
+            List<Integer> pids = new ArrayList<>(pending.items.size());
+            for (OrderItem item : pending.items) {
+                salesRanking.record(item.getPid(), item.getNum());
+                pids.add(item.getPid());
+            }
+            alsoBoughtIndex.record(pids);
+            changed.addAll(pids);
+            pending.complete(OrderTicketVO.CREATED, null);
+        }
+        if (!changed.isEmpty()) {
+            publisher.publishEvent(ProductChangedEvent.stock(this, changed));
+        }
+        // 单独的事务只锁定该订单的商品，按商品id升序扣减，不会与其他事务形成新的加锁顺序
+        for (Pending pending : retries) {
+            write(Collections.singletonList(pending));
+        }
+    }
+
+    /**
+     * 扣减库存并插入订单，调用方需在事务中执行
+     * 全部订单项按商品id升序扣减，与同步下单的加锁顺序一致；
+     * 某个订单库存不足时，它已扣减的商品id都更小、行锁已经持有，归还时不会产生新的加锁顺序；
+     * 它剩余的订单项不再扣减，也不会锁定新的商品行
+     * @return 库存不足的订单，以及是否有库存被归还
+     */
+    private Outcome persist(List<Pending> batch) {
+        List<Line> lines = new ArrayList<>();
+        for (Pending pending : batch) {
+            for (OrderItem item : pending.items) {
+                lines.add(new Line(pending, item));
+            }
+        }
+        lines.sort(Comparator.comparing(line -> line.item.getPid()));
+        Outcome outcome = new Outcome();
+        Set<Pending> rejected = outcome.rejected;
+        for (int i = 0; i < lines.size(); i++) {
+            Line line = lines.get(i);
+            if (rejected.contains(line.pending)) {
+                continue;
+            }
+            if (productMapper.decreaseNum(line.item.getPid(), line.item.getNum()) == 1) {
+                continue;
+            }
+            rejected.add(line.pending);
+            for (int j = 0; j < i; j++) {
+                Line done = lines.get(j);
+                if (done.pending == line.pending) {
+                    productMapper.increaseNum(done.item.getPid(), done.item.getNum());
+                    outcome.restored = true;
+                }
+            }
+        }
+        List<Order> orders = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            if (!rejected.contains(pending)) {
+                orders.add(pending.order);
+            }
+        }
+        if (orders.isEmpty()) {
+            return outcome;
+        }
+        List<OrderItem> items = new ArrayList<>();
+        for (Pending pending : batch) {
+            if (!rejected.contains(pending)) {
+                items.addAll(pending.items);
+            }
+        }
+        if (orderMapper.insertOrders(orders) != orders.size()
+                || orderMapper.insertOrderItems(items) != items.size()) {
+            throw new InsertException("插入数据异常");
+        }
+        return outcome;
+    }
+
+    /** 一个已受理的订单 */
+    private static final class Pending {
+        final String token;
+        final Integer uid;
+        final Order order;
+        final List<OrderItem> items;
+        volatile int status = OrderTicketVO.PENDING;
+        volatile String message;
+        volatile long completedTime;
+
+        Pending(String token, Integer uid, Order order, List<OrderItem> items) {
+            this.token = token;
+            this.uid = uid;
+            this.order = order;
+            this.items = items;
+        }
+
+        void complete(int status, String message) {
+            this.message = message;
+            this.completedTime = System.currentTimeMillis();
+            this.status = status;
+        }
+
+        OrderTicketVO toTicket() {
+            int current = status;
+            return new OrderTicketVO(token, current,
+                    current == OrderTicketVO.CREATED ? order.getOid() : null, message);
+        }
+    }
+
+    /** 一批订单的扣减结果 */
+    private static final class Outcome {
+        /** 库存不足的订单 */
+        final Set<Pending> rejected = new HashSet<>();
+        /** 是否有失败的订单归还了已扣减的库存 */
+        boolean restored;
+    }
+
+    /** 订单中的一个订单项 */
+    private static final class Line {
+        final Pending pending;
+        final OrderItem item;
+
+        Line(Pending pending, OrderItem item) {
+            this.pending = pending;
+            this.item = item;
+        }
+    }
+}
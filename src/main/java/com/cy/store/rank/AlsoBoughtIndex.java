@@ -0,0 +1,172 @@
+package com.cy.store.rank;
+
+import com.cy.store.cache.WarmUp;
+import com.cy.store.entity.OrderItem;
+import com.cy.store.mapper.OrderMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "买了该商品的用户还买了"：商品之间的共同购买关系
+ * 1.启动时按订单流式读取t_order_item构建共现矩阵
+ * 2.下单后由订单业务层调用record()增量更新；尚未加载时不记录，加载时会从订单项读到
+ * 3.重新构建期间记录的订单先缓存，替换时补入新矩阵；
+ *   扫描期间已提交的订单可能被计入两次，只影响近似的排序
+ * 查询只访问内存
+ */
+@Component
+public class AlsoBoughtIndex {
+    private final OrderMapper orderMapper;
+    private final int rowSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 由lock保护 */
+    private CoOccurrenceMatrix matrix;
+    /** 重新构建期间记录的订单，不在构建时为null，由lock保护 */
+    private List<int[]> recordedDuringRebuild;
+    private volatile boolean loaded;
+
+    public AlsoBoughtIndex(OrderMapper orderMapper, @Value("${product.also-bought.row-size}") int rowSize) {
+        this.orderMapper = orderMapper;
+        this.rowSize = rowSize;
+        this.matrix = new CoOccurrenceMatrix(rowSize);
+    }
+
+    @PostConstruct
+    public void init() {
+        WarmUp.run("共同购买数据", this::rebuild);
+    }
+
+    /** 根据全部订单项重新构建，构建完成后整体替换 */
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            recordedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        CoOccurrenceMatrix newMatrix;
+        try {
+            newMatrix = scan();
+        } catch (RuntimeException e) {
+            // 构建失败时保留原矩阵，期间记录的订单补入原矩阵
+            replayInto(null);
+            throw e;
+        }
+        replayInto(newMatrix);
+    }
+
+    /** 补入构建期间记录的订单并替换矩阵；newMatrix为null时补入原矩阵，尚未加载则丢弃 */
+    private void replayInto(CoOccurrenceMatrix newMatrix) {
+        lock.writeLock().lock();
+        try {
+            CoOccurrenceMatrix target = newMatrix != null ? newMatrix : loaded ? matrix : null;
+            if (target != null) {
+                for (int[] basket : recordedDuringRebuild) {
+                    target.addBasket(basket);
+                }
+                matrix = target;
+                loaded = true;
+            }
+            recordedDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 按订单流式读取全部订单项，不持有锁 */
+    private CoOccurrenceMatrix scan() {
+        CoOccurrenceMatrix newMatrix = new CoOccurrenceMatrix(rowSize);
+        Set<Integer> basket = new LinkedHashSet<>();
+        Long[] currentOid = {null};
+        // 订单项按oid排序读取，同一订单的商品连续出现
+        orderMapper.scanOrderItems(context -> {
+            OrderItem item = context.getResultObject();
+            if (!item.getOid().equals(currentOid[0])) {
+                newMatrix.addBasket(toArray(basket));
+                basket.clear();
+                currentOid[0] = item.getOid();
+            }
+            basket.add(item.getPid());
+        });
+        newMatrix.addBasket(toArray(basket));
+        return newMatrix;
+    }
+
+    /**
+     * 记录一个新订单中的商品
+     * @param pids 订单中的商品id
+     */
+    public void record(Collection<Integer> pids) {
+        int[] basket = toArray(new LinkedHashSet<>(pids));
+        if (basket.length < 2) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (recordedDuringRebuild != null) {
+                recordedDuringRebuild.add(basket);
+            } else if (loaded) {
+                matrix.addBasket(basket);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 与某个商品共同购买次数最多的商品
+     * @param pid 商品id，不是正数时没有结果
+     * @param limit 返回的最大条数
+     * @return 按共同购买次数降序排列的商品id
+     */
+    public List<Integer> find(Integer pid, int limit) {
+        // 商品id来自请求参数，0是矩阵的空位标记，不能用于查找
+        if (pid == null || pid < 1) {
+            return new ArrayList<>();
+        }
+        ensureLoaded();
+        int[] neighbours;
+        lock.readLock().lock();
+        try {
+            neighbours = matrix.neighbours(pid, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Integer> list = new ArrayList<>(neighbours.length);
+        for (int id : neighbours) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private static int[] toArray(Collection<Integer> pids) {
+        int[] array = new int[pids.size()];
+        int i = 0;
+        for (Integer pid : pids) {
+            if (pid != null && pid != 0) {
+                array[i++] = pid;
+            }
+        }
+        return i == array.length ? array : Arrays.copyOf(array, i);
+    }
+}
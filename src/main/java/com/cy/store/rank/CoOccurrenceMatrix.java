@@ -0,0 +1,175 @@
+package com.cy.store.rank;
+
+import java.util.Arrays;
+
+/**
+ * 商品两两共同购买次数的稀疏矩阵
+ * 1.外层为int开放寻址哈希表：商品id -> 行，不装箱
+ * 2.每行用两个int数组保存邻居id和次数，按次数降序排列，最多保留rowSize个邻居；
+ *   行满后新邻居替换次数最少的邻居，次数记为被替换者的次数加一（Space-Saving算法），
+ *   真正高频的邻居不会被挤出
+ * 非线程安全，由调用方加锁
+ */
+public final class CoOccurrenceMatrix {
+    /** 一个订单中参与统计的最大商品数，防止超大订单产生过多的商品对 */
+    public static final int MAX_BASKET = 50;
+    private static final int EMPTY = 0;
+
+    private final int rowSize;
+    /** 商品id，0表示空位 */
+    private int[] keys = new int[64];
+    private Row[] rows = new Row[64];
+    private int size;
+
+    /** @param rowSize 每个商品保留的邻居数 */
+    public CoOccurrenceMatrix(int rowSize) {
+        this.rowSize = rowSize;
+    }
+
+    /**
+     * 累加一个订单中商品两两之间的共同购买次数
+     * @param pids 订单中去重后的商品id
+     */
+    public void addBasket(int[] pids) {
+        int n = Math.min(pids.length, MAX_BASKET);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (i != j && pids[i] != pids[j]) {
+                    row(pids[i]).increment(pids[j], rowSize);
+                }
+            }
+        }
+    }
+
+    /**
+     * 与某个商品共同购买次数最多的商品
+     * @param pid 商品id
+     * @param limit 返回的最大条数
+     * @return 按次数降序排列的商品id
+     */
+    public int[] neighbours(int pid, int limit) {
+        int slot = find(pid);
+        if (slot < 0) {
+            return new int[0];
+        }
+        Row row = rows[slot];
+        return Arrays.copyOf(row.ids, Math.min(limit, row.size));
+    }
+
+    /** @return 两个商品共同购买的（估计）次数 */
+    public int count(int pid, int neighbour) {
+        int slot = find(pid);
+        if (slot < 0) {
+            return 0;
+        }
+        Row row = rows[slot];
+        for (int i = 0; i < row.size; i++) {
+            if (row.ids[i] == neighbour) {
+                return row.counts[i];
+            }
+        }
+        return 0;
+    }
+
+    /** @return 有邻居数据的商品数 */
+    public int size() {
+        return size;
+    }
+
+    private Row row(int pid) {
+        int slot = find(pid);
+        if (slot >= 0) {
+            return rows[slot];
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize();
+            slot = find(pid);
+        }
+        slot = -slot - 1;
+        keys[slot] = pid;
+        rows[slot] = new Row(Math.min(rowSize, 4));
+        size++;
+        return rows[slot];
+    }
+
+    /** @return pid所在的位置；不存在时返回-(可插入的位置)-1 */
+    private int find(int pid) {
+        if (pid == EMPTY) {
+            throw new IllegalArgumentException("商品id不能为0");
+        }
+        int mask = keys.length - 1;
+        int slot = mix(pid) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == pid) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Row[] oldRows = rows;
+        keys = new int[oldKeys.length * 2];
+        rows = new Row[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = -find(oldKeys[i]) - 1;
+                keys[slot] = oldKeys[i];
+                rows[slot] = oldRows[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** 一个商品的邻居，ids和counts按次数降序排列 */
+    private static final class Row {
+        int[] ids;
+        int[] counts;
+        int size;
+
+        Row(int capacity) {
+            ids = new int[capacity];
+            counts = new int[capacity];
+        }
+
+        void increment(int id, int maxSize) {
+            int i = 0;
+            while (i < size && ids[i] != id) {
+                i++;
+            }
+            if (i < size) {
+                counts[i]++;
+            } else if (size < maxSize) {
+                if (size == ids.length) {
+                    int capacity = Math.min(maxSize, size * 2);
+                    ids = Arrays.copyOf(ids, capacity);
+                    counts = Arrays.copyOf(counts, capacity);
+                }
+                i = size++;
+                ids[i] = id;
+                counts[i] = 1;
+            } else {
+                // 替换次数最少的邻居
+                i = size - 1;
+                ids[i] = id;
+                counts[i]++;
+            }
+            // 次数增加后向前移动，保持降序
+            while (i > 0 && counts[i - 1] < counts[i]) {
+                int t = ids[i - 1];
+                ids[i - 1] = ids[i];
+                ids[i] = t;
+                t = counts[i - 1];
+                counts[i - 1] = counts[i];
+                counts[i] = t;
+                i--;
+            }
+        }
+    }
+}
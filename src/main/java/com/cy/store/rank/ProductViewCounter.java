@@ -0,0 +1,147 @@
+package com.cy.store.rank;
+
+import com.cy.store.mapper.ProductStatMapper;
+import com.cy.store.vo.ViewCounterStatsVO;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 商品浏览次数计数器（延迟写入）
+ * 1.每个商品一个LongAdder，浏览时只在内存中累加，不访问数据库
+ * 2.定时将两次写入之间新增的次数批量累加到t_product_stat（INSERT ... ON DUPLICATE KEY UPDATE）
+ * 3.写入失败时新增的次数保留到下一次，不会丢失也不会重复累加；
+ *   进程异常退出时最多丢失一个写入间隔内的次数，正常关闭时会先写入一次
+ */
+@Component
+public class ProductViewCounter {
+    /** 每条SQL语句写入的最大商品数 */
+    private static final int BATCH_SIZE = 500;
+
+    private final ProductStatMapper productStatMapper;
+    private final ConcurrentHashMap<Integer, Cell> cells = new ConcurrentHashMap<>();
+
+    /** 以下数据只在flush()中修改 */
+    private volatile long lastFlushTime = System.currentTimeMillis();
+    private volatile long lastFlushRows;
+    private volatile long lastFlushMillis;
+    private final LongAdder flushFailures = new LongAdder();
+
+    public ProductViewCounter(ProductStatMapper productStatMapper) {
+        this.productStatMapper = productStatMapper;
+    }
+
+    /**
+     * 记录一次浏览
+     * @param pid 商品id
+     */
+    public void record(Integer pid) {
+        if (pid == null) {
+            return;
+        }
+        Cell cell = cells.get(pid);
+        if (cell == null) {
+            cell = cells.computeIfAbsent(pid, k -> new Cell());
+        }
+        cell.views.increment();
+    }
+
+    /**
+     * 按配置的间隔定时写入数据库
+     */
+    @Scheduled(initialDelayString = "${product.view.flush-interval}",
+            fixedDelayString = "${product.view.flush-interval}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.out.println("商品浏览次数写入失败，将在下次写入时重试：" + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduledFlush();
+    }
+
+    /**
+     * 将上次写入之后新增的浏览次数批量写入数据库
+     * 计数只增不减，每个商品记录已写入的总数，新增次数 = 当前总数 - 已写入总数，
+     * 写入成功后才更新已写入总数
+     * @return 本次写入的商品数
+     */
+    public synchronized int flush() {
+        long start = System.currentTimeMillis();
+        Map<Integer, Long> batch = new LinkedHashMap<>();
+        List<Cell> batchCells = new ArrayList<>();
+        List<Long> batchTotals = new ArrayList<>();
+        int rows = 0;
+        for (Map.Entry<Integer, Cell> e : cells.entrySet()) {
+            Cell cell = e.getValue();
+            long total = cell.views.sum();
+            if (total == cell.flushed) {
+                continue;
+            }
+            batch.put(e.getKey(), total - cell.flushed);
+            batchCells.add(cell);
+            batchTotals.add(total);
+            if (batch.size() == BATCH_SIZE) {
+                rows += write(batch, batchCells, batchTotals);
+            }
+        }
+        if (!batch.isEmpty()) {
+            rows += write(batch, batchCells, batchTotals);
+        }
+        long end = System.currentTimeMillis();
+        lastFlushTime = end;
+        lastFlushRows = rows;
+        lastFlushMillis = end - start;
+        return rows;
+    }
+
+    /** 写入一批并清空，失败时抛出异常，已写入的批次不受影响 */
+    private int write(Map<Integer, Long> batch, List<Cell> batchCells, List<Long> batchTotals) {
+        try {
+            productStatMapper.addViewCounts(batch);
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            throw e;
+        }
+        for (int i = 0; i < batchCells.size(); i++) {
+            batchCells.get(i).flushed = batchTotals.get(i);
+        }
+        int size = batch.size();
+        batch.clear();
+        batchCells.clear();
+        batchTotals.clear();
+        return size;
+    }
+
+    /** @return 尚未写入数据库的浏览次数 */
+    public long pending() {
+        long pending = 0;
+        for (Cell cell : cells.values()) {
+            pending += cell.views.sum() - cell.flushed;
+        }
+        return pending;
+    }
+
+    public ViewCounterStatsVO getStats() {
+        return new ViewCounterStatsVO(System.currentTimeMillis() - lastFlushTime, pending(),
+                cells.size(), lastFlushRows, lastFlushMillis, flushFailures.sum());
+    }
+
+    private static final class Cell {
+        /** 启动以来的浏览次数 */
+        final LongAdder views = new LongAdder();
+        /** 已写入数据库的次数，只在flush()中读写 */
+        volatile long flushed;
+    }
+}
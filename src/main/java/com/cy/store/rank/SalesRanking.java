@@ -0,0 +1,105 @@
+package com.cy.store.rank;
+
+import com.cy.store.cache.WarmUp;
+import com.cy.store.entity.OrderItem;
+import com.cy.store.event.SalesRankingChangedEvent;
+import com.cy.store.mapper.OrderMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 商品的实时销量排行（滑动时间窗口）
+ * 1.启动时按时间段汇总t_order_item中窗口内的销量作为初始数据
+ * 2.下单时由订单业务层调用record()累加
+ * 3.排行前列发生变化时发布SalesRankingChangedEvent
+ * 查询排行只访问内存，不执行任何聚合查询
+ */
+@Component
+public class SalesRanking {
+    /** 排行前多少名发生变化时发布事件 */
+    private static final int WATCHED = 10;
+
+    private final OrderMapper orderMapper;
+    private final ApplicationEventPublisher publisher;
+    private final long windowMillis;
+    private final int bucketCount;
+    /** 以下数据由this保护 */
+    private final SlidingTopK topK;
+    private List<Integer> watched;
+    private boolean seeded;
+
+    public SalesRanking(OrderMapper orderMapper, ApplicationEventPublisher publisher,
+                        @Value("${product.sales.window}") long windowMillis,
+                        @Value("${product.sales.buckets}") int bucketCount,
+                        @Value("${product.sales.capacity}") int capacity) {
+        this.orderMapper = orderMapper;
+        this.publisher = publisher;
+        this.windowMillis = windowMillis;
+        this.bucketCount = bucketCount;
+        this.topK = new SlidingTopK(windowMillis, bucketCount, capacity, capacity * 16);
+    }
+
+    @PostConstruct
+    public void init() {
+        WarmUp.run("销量排行", this::ensureSeeded);
+    }
+
+    /**
+     * 记录一笔销量
+     * @param pid 商品id
+     * @param num 购买数量
+     */
+    public void record(Integer pid, Integer num) {
+        if (pid == null || num == null) {
+            return;
+        }
+        boolean changed;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (seeded) {
+                topK.add(pid, num, now);
+            } else {
+                // 尚未初始化时直接从订单项汇总，已包含这笔销量
+                ensureSeeded();
+            }
+            List<Integer> top = topK.top(WATCHED, now);
+            changed = !top.equals(watched);
+            watched = top;
+        }
+        if (changed) {
+            publisher.publishEvent(new SalesRankingChangedEvent(this));
+        }
+    }
+
+    /**
+     * 窗口内销量最高的商品
+     * @param n 返回的最大条数
+     * @return 按销量从高到低排列的商品id
+     */
+    public synchronized List<Integer> top(int n) {
+        ensureSeeded();
+        return topK.top(n, System.currentTimeMillis());
+    }
+
+    /** 汇总窗口内的历史销量，只执行一次 */
+    private synchronized void ensureSeeded() {
+        if (seeded) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long bucketSeconds = Math.max(1, windowMillis / bucketCount / 1000);
+        List<OrderItem> sales = orderMapper.findSalesSince(new Date(now - windowMillis), bucketSeconds);
+        for (OrderItem item : sales) {
+            if (item.getPid() != null && item.getNum() != null && item.getCreatedTime() != null) {
+                topK.add(item.getPid(), item.getNum(), item.getCreatedTime().getTime());
+            }
+        }
+        watched = topK.top(WATCHED, now);
+        seeded = true;
+    }
+}
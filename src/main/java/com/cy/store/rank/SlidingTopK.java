@@ -0,0 +1,189 @@
+package com.cy.store.rank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 滑动时间窗口内的Top-K统计
+ * 1.窗口按时间切分为若干个桶，每个桶一个Count-Min Sketch，另有一个窗口总表等于各桶之和；
+ *   桶过期时从总表中减去该桶（Count-Min是线性的，可以精确相减），内存占用与数据量无关
+ * 2.用一个容量固定的小顶堆保存候选，计数超过堆顶的key替换堆顶
+ * 非线程安全，由调用方加锁
+ */
+public final class SlidingTopK {
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final int mask;
+    private final long bucketMillis;
+    /** 各个桶的计数表：[桶][行][列] */
+    private final int[][][] buckets;
+    /** 窗口内的计数表，等于所有桶之和 */
+    private final int[][] window;
+    /** 最新的桶编号（时间 / 桶长度），尚无数据时为Long.MIN_VALUE */
+    private long current = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final Map<Integer, Candidate> candidates = new HashMap<>();
+    private final PriorityQueue<Candidate> heap = new PriorityQueue<>();
+
+    /**
+     * @param windowMillis 窗口长度（毫秒）
+     * @param bucketCount 窗口切分的桶数，越多过期越平滑
+     * @param capacity 保留的候选数
+     * @param width 计数表宽度，取不小于该值的2的幂
+     */
+    public SlidingTopK(long windowMillis, int bucketCount, int capacity, int width) {
+        int w = Integer.highestOneBit(Math.max(16, width) - 1) << 1;
+        this.mask = w - 1;
+        this.bucketMillis = Math.max(1, windowMillis / bucketCount);
+        this.buckets = new int[bucketCount][DEPTH][w];
+        this.window = new int[DEPTH][w];
+        this.capacity = capacity;
+    }
+
+    /**
+     * 累加一个key的计数
+     * @param key 统计对象（如商品id）
+     * @param count 增加的数量
+     * @param time 发生时间，早于窗口起点的数据被忽略
+     */
+    public void add(int key, int count, long time) {
+        if (count <= 0) {
+            return;
+        }
+        long bucket = Math.floorDiv(time, bucketMillis);
+        if (current == Long.MIN_VALUE || bucket > current) {
+            advanceTo(bucket);
+        } else if (bucket <= current - buckets.length) {
+            return;
+        }
+        int[][] table = buckets[(int) Math.floorMod(bucket, (long) buckets.length)];
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexOf(key, i);
+            table[i][index] += count;
+            window[i][index] += count;
+        }
+        offer(key, count(key));
+    }
+
+    /**
+     * 窗口内计数最高的key
+     * @param n 返回的最大条数
+     * @param now 当前时间，用于淘汰过期的桶
+     * @return 按计数从高到低排列的key
+     */
+    public List<Integer> top(int n, long now) {
+        advanceTo(Math.floorDiv(now, bucketMillis));
+        List<Candidate> sorted = new ArrayList<>(heap);
+        sorted.sort((a, b) -> a.count != b.count ? Integer.compare(b.count, a.count) : Integer.compare(a.key, b.key));
+        List<Integer> keys = new ArrayList<>(Math.min(n, sorted.size()));
+        for (int i = 0; i < sorted.size() && keys.size() < n; i++) {
+            keys.add(sorted.get(i).key);
+        }
+        return keys;
+    }
+
+    /**
+     * @param now 当前时间，用于淘汰过期的桶
+     * @return key在窗口内的估计计数（可能偏大，不会偏小）
+     */
+    public int estimate(int key, long now) {
+        advanceTo(Math.floorDiv(now, bucketMillis));
+        return count(key);
+    }
+
+    private int count(int key) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, window[i][indexOf(key, i)]);
+        }
+        return min;
+    }
+
+    /** 将窗口推进到bucket，期间过期的桶从窗口总表中减去 */
+    private void advanceTo(long bucket) {
+        if (current == Long.MIN_VALUE || bucket - current >= buckets.length) {
+            boolean hadData = current != Long.MIN_VALUE;
+            current = bucket;
+            if (hadData) {
+                for (int[][] table : buckets) {
+                    clear(table);
+                }
+                clear(window);
+                candidates.clear();
+                heap.clear();
+            }
+            return;
+        }
+        if (bucket <= current) {
+            return;
+        }
+        while (current < bucket) {
+            current++;
+            int[][] expired = buckets[(int) Math.floorMod(current, (long) buckets.length)];
+            for (int i = 0; i < DEPTH; i++) {
+                for (int j = 0; j < expired[i].length; j++) {
+                    window[i][j] -= expired[i][j];
+                }
+            }
+            clear(expired);
+        }
+        // 计数减少后重新估计候选，计数归零的移出
+        heap.clear();
+        candidates.values().removeIf(c -> (c.count = count(c.key)) == 0);
+        heap.addAll(candidates.values());
+    }
+
+    /** key的计数变为count后更新候选堆 */
+    private void offer(int key, int count) {
+        Candidate candidate = candidates.get(key);
+        if (candidate != null) {
+            heap.remove(candidate);
+            candidate.count = count;
+            heap.add(candidate);
+            return;
+        }
+        if (heap.size() >= capacity) {
+            if (heap.peek().count >= count) {
+                return;
+            }
+            candidates.remove(heap.poll().key);
+        }
+        candidate = new Candidate(key, count);
+        candidates.put(key, candidate);
+        heap.add(candidate);
+    }
+
+    private int indexOf(int key, int row) {
+        long h = (key + SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        h ^= h >>> 32;
+        return (int) h & mask;
+    }
+
+    private static void clear(int[][] table) {
+        for (int[] row : table) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+        final int key;
+        int count;
+
+        Candidate(int key, int count) {
+            this.key = key;
+            this.count = count;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            return Integer.compare(count, o.count);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.cy.store.sale;
+
+import com.cy.store.entity.Order;
+import com.cy.store.entity.OrderItem;
+import com.cy.store.mapper.OrderMapper;
+import com.cy.store.rank.SalesRanking;
+import com.cy.store.service.ex.InsertException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 秒杀订单的异步写入
+ * 抢到库存的订单先进入队列，定时批量写入t_order和t_order_item，每批一个事务；
+ * 库存已在开始秒杀时扣下，写入时不再修改t_product。
+ * 整批写入出错时逐个订单重试，一个订单的问题不影响同批的其他订单；
+ * 单独写入仍失败的订单留到下一次写入时继续重试，直到写入为止：用户已被告知抢购成功，订单不能丢弃。
+ * 等待重试的订单数可在秒杀统计中查看。
+ * 正常关闭时反复写入，直到全部订单都已写入才返回
+ */
+@Component
+public class FlashSaleOrderWriter {
+    /** 每个事务写入的最大订单数 */
+    private static final int BATCH_SIZE = 500;
+    /** 关闭时两次写入之间的等待时间（毫秒） */
+    private static final long SHUTDOWN_RETRY_DELAY = 1000;
+
+    private final OrderMapper orderMapper;
+    private final SalesRanking salesRanking;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    /** 单独写入失败、等待下一次重试的订单，只在flush()中读写 */
+    private final List<Pending> retries = new ArrayList<>();
+
+    public FlashSaleOrderWriter(OrderMapper orderMapper, SalesRanking salesRanking,
+                                PlatformTransactionManager transactionManager) {
+        this.orderMapper = orderMapper;
+        this.salesRanking = salesRanking;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 提交一个订单，订单和订单项的id需已生成
+     * @param order 订单数据
+     * @param item 订单项数据
+     */
+    public void submit(Order order, OrderItem item) {
+        queue.add(new Pending(order, item));
+        pending.incrementAndGet();
+    }
+
+    /** 按配置的间隔定时写入数据库 */
+    @Scheduled(initialDelayString = "${flash-sale.flush-interval}",
+            fixedDelayString = "${flash-sale.flush-interval}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.out.println("秒杀订单写入失败，将在下次写入时重试：" + e.getMessage());
+        }
+    }
+
+    /** 关闭前写入全部订单，写入失败时等待后重试，不丢弃任何订单 */
+    @PreDestroy
+    public void destroy() {
+        boolean interrupted = false;
+        while (true) {
+            scheduledFlush();
+            if (pending.get() == 0) {
+                break;
+            }
+            System.out.println("还有" + pending.get() + "个秒杀订单未写入，" + SHUTDOWN_RETRY_DELAY + "ms后重试");
+            try {
+                Thread.sleep(SHUTDOWN_RETRY_DELAY);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** @return 尚未写入数据库的订单数，含等待重试的订单 */
+    public int pending() {
+        return pending.get();
+    }
+
+    /** @return 写入失败、等待重试的订单数 */
+    public synchronized int retrying() {
+        return retries.size();
+    }
+
+    /**
+     * 写入队列中的全部订单，上次失败的订单先逐个重试
+     * @return 写入的订单数
+     */
+    public synchronized int flush() {
+        int rows = 0;
+        if (!retries.isEmpty()) {
+            List<Pending> failed = new ArrayList<>(retries);
+            retries.clear();
+            for (Pending p : failed) {
+                rows += writeOne(p);
+            }
+        }
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            while (batch.size() < BATCH_SIZE) {
+                Pending p = queue.poll();
+                if (p == null) {
+                    break;
+                }
+                batch.add(p);
+            }
+            if (batch.isEmpty()) {
+                return rows;
+            }
+            try {
+                write(batch);
+                written(batch);
+                rows += batch.size();
+            } catch (RuntimeException e) {
+                for (Pending p : batch) {
+                    rows += writeOne(p);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 单独写入一个订单，失败时留待下一次写入时重试
+     * @return 写入的订单数
+     */
+    private int writeOne(Pending p) {
+        List<Pending> single = Collections.singletonList(p);
+        try {
+            write(single);
+        } catch (RuntimeException e) {
+            p.attempts++;
+            retries.add(p);
+            System.out.println("秒杀订单" + p.order.getOid() + "第" + p.attempts + "次写入失败，将在下次写入时重试：" + e.getMessage());
+            return 0;
+        }
+        written(single);
+        return 1;
+    }
+
+    /** 在一个事务中写入一批订单和订单项，id在提交时已生成 */
+    private void write(List<Pending> batch) {
+        List<Order> orders = new ArrayList<>(batch.size());
+        List<OrderItem> items = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            orders.add(p.order);
+            items.add(p.item);
+        }
+        transactionTemplate.execute(status -> {
+            if (orderMapper.insertOrders(orders) != orders.size()
+                    || orderMapper.insertOrderItems(items) != items.size()) {
+                throw new InsertException("插入数据异常");
+            }
+            return null;
+        });
+    }
+
+    /** 已写入的订单计入实时销量 */
+    private void written(List<Pending> batch) {
+        pending.addAndGet(-batch.size());
+        for (Pending p : batch) {
+            salesRanking.record(p.item.getPid(), p.item.getNum());
+        }
+    }
+
+    /** 等待写入的订单和它唯一的订单项 */
+    private static final class Pending {
+        final Order order;
+        final OrderItem item;
+        /** 单独写入失败的次数 */
+        int attempts;
+
+        Pending(Order order, OrderItem item) {
+            this.order = order;
+            this.item = item;
+        }
+    }
+}
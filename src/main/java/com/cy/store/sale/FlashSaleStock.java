@@ -0,0 +1,302 @@
+package com.cy.store.sale;
+
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import com.cy.store.vo.FlashSaleStatsVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 秒杀商品的内存库存
+ * 1.开始秒杀时将商品在t_product中的全部库存一次性扣下，放入内存中分片的原子计数器；
+ *   秒杀期间普通下单看到的库存为0，不会与秒杀重复售出
+ * 2.抢购时随机选一个分片用CAS扣减，该分片售完再依次尝试其他分片，不加锁、不访问数据库；
+ *   全部分片售完后标记为售罄，之后的请求直接拒绝
+ * 3.每个用户每个商品只能抢购一件
+ * 4.结束秒杀时清空各分片，把未售出的库存归还t_product；
+ *   已售出的数量等于抢到的订单数，订单由FlashSaleOrderWriter异步写入，写入失败时一直重试，正常关闭时全部写入后才退出
+ * 5.配置了持续时间时，到期后不再受理抢购，并由定时任务调用end()归还库存；否则持续到应用关闭
+ * 进程异常退出时未售出的库存不会自动归还，尚未写入的订单也随之丢失：
+ * "扣下的库存 - 已写入的秒杀订单数"等于未售出的库存加上丢失的订单数，
+ * 两者无法从数据库中区分，需人工核对后再补回库存
+ */
+@Component
+public class FlashSaleStock {
+    /** 抢购的结果 */
+    public enum Admission {
+        /** 抢到 */
+        ADMITTED,
+        /** 已售罄 */
+        SOLD_OUT,
+        /** 该用户已经抢到过 */
+        REPEATED,
+        /** 商品不在秒杀中 */
+        NOT_ON_SALE
+    }
+
+    private final ProductMapper productMapper;
+    private final ApplicationEventPublisher publisher;
+    private final int shards;
+    /** 每次秒杀的持续时间（毫秒），不大于0时持续到应用关闭 */
+    private final long duration;
+    /** 启动时开始秒杀的商品 */
+    private final int[] pids;
+    private final ConcurrentHashMap<Integer, Stock> sales = new ConcurrentHashMap<>();
+
+    public FlashSaleStock(ProductMapper productMapper, ApplicationEventPublisher publisher,
+                          @Value("${flash-sale.shards}") int shards,
+                          @Value("${flash-sale.duration}") long duration,
+                          @Value("${flash-sale.pids}") int[] pids) {
+        this.productMapper = productMapper;
+        this.publisher = publisher;
+        this.shards = shards;
+        this.duration = duration;
+        this.pids = pids.clone();
+    }
+
+    @PostConstruct
+    public void init() {
+        for (int pid : pids) {
+            try {
+                start(pid);
+            } catch (RuntimeException e) {
+                System.out.println("秒杀商品" + pid + "的库存加载失败：" + e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (Integer pid : new ArrayList<>(sales.keySet())) {
+            try {
+                end(pid);
+            } catch (RuntimeException e) {
+                System.out.println("秒杀商品" + pid + "的库存归还失败：" + e.getMessage());
+            }
+        }
+    }
+
+    /** 按配置的间隔结束已到期的秒杀 */
+    @Scheduled(initialDelayString = "${flash-sale.end-check-interval}",
+            fixedDelayString = "${flash-sale.end-check-interval}")
+    public void endExpired() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Integer, Stock> e : sales.entrySet()) {
+            if (e.getValue().endAt > now) {
+                continue;
+            }
+            try {
+                end(e.getKey());
+            } catch (RuntimeException ex) {
+                System.out.println("秒杀商品" + e.getKey() + "的库存归还失败，将在下次检查时重试：" + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 开始秒杀，持续配置的时间
+     * @see #start(Integer, long)
+     */
+    public int start(Integer pid) {
+        return start(pid, duration);
+    }
+
+    /**
+     * 开始秒杀：扣下商品当前的全部库存放入内存
+     * @param pid 商品id
+     * @param duration 持续时间（毫秒），不大于0时持续到调用end()或应用关闭
+     * @return 扣下的库存；商品已在秒杀中时返回当初扣下的库存
+     */
+    public synchronized int start(Integer pid, long duration) {
+        Stock stock = sales.get(pid);
+        if (stock != null) {
+            return stock.reserved;
+        }
+        int reserved;
+        while (true) {
+            Product product = productMapper.findById(pid);
+            reserved = product == null || product.getNum() == null ? 0 : Math.max(0, product.getNum());
+            // 读取之后库存被普通订单扣减时条件不成立，重新读取
+            if (reserved == 0 || productMapper.decreaseNum(pid, reserved) == 1) {
+                break;
+            }
+        }
+        long endAt = duration > 0 ? System.currentTimeMillis() + duration : Long.MAX_VALUE;
+        sales.put(pid, new Stock(reserved, shards, endAt));
+        if (reserved > 0) {
+            publisher.publishEvent(ProductChangedEvent.stock(this, Collections.singleton(pid)));
+        }
+        return reserved;
+    }
+
+    /**
+     * 结束秒杀，未售出的库存归还数据库
+     * @param pid 商品id
+     * @return 归还的库存
+     */
+    public synchronized int end(Integer pid) {
+        Stock stock = sales.get(pid);
+        if (stock == null) {
+            return 0;
+        }
+        int remaining = (int) stock.drain();
+        if (remaining > 0) {
+            try {
+                productMapper.increaseNum(pid, remaining);
+            } catch (RuntimeException e) {
+                // 归还失败时放回分片，不丢失库存，之后可再次结束
+                stock.cells.addAndGet(0, remaining);
+                stock.soldOut = false;
+                throw e;
+            }
+        }
+        sales.remove(pid);
+        if (remaining > 0) {
+            publisher.publishEvent(ProductChangedEvent.stock(this, Collections.singleton(pid)));
+        }
+        return remaining;
+    }
+
+    /**
+     * 不扣减库存，只判断正在秒杀的商品是否已售罄，用于在访问数据库之前拒绝请求；
+     * 商品不在秒杀中时返回false，由tryAcquire()给出结果
+     */
+    public boolean isSoldOut(Integer pid) {
+        Stock stock = sales.get(pid);
+        return stock != null && stock.soldOut && !stock.isExpired();
+    }
+
+    /**
+     * 抢购一件商品
+     * @param pid 商品id
+     * @param uid 用户id
+     * @return 抢购的结果
+     */
+    public Admission tryAcquire(Integer pid, Integer uid) {
+        Stock stock = sales.get(pid);
+        if (stock == null || stock.isExpired()) {
+            return Admission.NOT_ON_SALE;
+        }
+        if (stock.soldOut) {
+            return Admission.SOLD_OUT;
+        }
+        if (!stock.buyers.add(uid)) {
+            return Admission.REPEATED;
+        }
+        if (stock.tryAcquire()) {
+            return Admission.ADMITTED;
+        }
+        stock.buyers.remove(uid);
+        return Admission.SOLD_OUT;
+    }
+
+    /**
+     * 退回一件已抢到的商品，用于抢到之后订单未能提交写入时：秒杀仍在进行时放回分片，该用户可以重新抢购；
+     * 秒杀已结束时直接归还t_product
+     * @param pid 商品id
+     * @param uid 用户id
+     */
+    public synchronized void release(Integer pid, Integer uid) {
+        Stock stock = sales.get(pid);
+        if (stock != null) {
+            stock.cells.incrementAndGet(0);
+            stock.soldOut = false;
+            stock.buyers.remove(uid);
+            return;
+        }
+        productMapper.increaseNum(pid, 1);
+        publisher.publishEvent(ProductChangedEvent.stock(this, Collections.singleton(pid)));
+    }
+
+    /** @return 正在秒杀的商品的库存情况 */
+    public List<FlashSaleStatsVO> getStats() {
+        List<FlashSaleStatsVO> stats = new ArrayList<>(sales.size());
+        for (Map.Entry<Integer, Stock> e : sales.entrySet()) {
+            stats.add(new FlashSaleStatsVO(e.getKey(), e.getValue().reserved, (int) e.getValue().remaining()));
+        }
+        return stats;
+    }
+
+    /** 一个秒杀商品的库存，分散在多个计数器上以减少CAS冲突 */
+    private static final class Stock {
+        /** 每个分片占一个缓存行（8个long），避免伪共享 */
+        private static final int STRIDE = 8;
+
+        final int reserved;
+        final int count;
+        /** 结束时间，到期后不再受理抢购 */
+        final long endAt;
+        final AtomicLongArray cells;
+        final Set<Integer> buyers = ConcurrentHashMap.newKeySet();
+        /** 全部分片为0时置为true，库存放回分片后恢复；放回时须先增加分片再清除标记 */
+        volatile boolean soldOut;
+
+        Stock(int reserved, int count, long endAt) {
+            this.reserved = reserved;
+            this.count = count;
+            this.endAt = endAt;
+            this.cells = new AtomicLongArray(count * STRIDE);
+            for (int i = 0; i < count; i++) {
+                cells.set(i * STRIDE, reserved / count + (i < reserved % count ? 1 : 0));
+            }
+            this.soldOut = reserved == 0;
+        }
+
+        boolean isExpired() {
+            return endAt != Long.MAX_VALUE && System.currentTimeMillis() >= endAt;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int start = ThreadLocalRandom.current().nextInt(count);
+                for (int i = 0; i < count; i++) {
+                    int index = (start + i) % count * STRIDE;
+                    long left;
+                    while ((left = cells.get(index)) > 0) {
+                        if (cells.compareAndSet(index, left, left - 1)) {
+                            return true;
+                        }
+                    }
+                }
+                soldOut = true;
+                // 扫描期间退回的库存可能在标记之前就清除了标记，标记之后再检查一次，有剩余时撤销标记重新扫描
+                if (remaining() == 0) {
+                    return false;
+                }
+                soldOut = false;
+            }
+        }
+
+        /** 清空全部分片，返回清空前的剩余数量 */
+        long drain() {
+            soldOut = true;
+            long remaining = 0;
+            for (int i = 0; i < count; i++) {
+                remaining += cells.getAndSet(i * STRIDE, 0);
+            }
+            return remaining;
+        }
+
+        long remaining() {
+            long remaining = 0;
+            for (int i = 0; i < count; i++) {
+                remaining += cells.get(i * STRIDE);
+            }
+            return remaining;
+        }
+    }
+}
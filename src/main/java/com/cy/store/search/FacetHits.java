@@ -0,0 +1,30 @@
+package com.cy.store.search;
+
+import java.util.List;
+import java.util.Map;
+
+/** 一页分面筛选结果：命中总数、当前页的商品id和各分面取值的计数 */
+public final class FacetHits {
+    private final int total;
+    private final List<Integer> ids;
+    private final Map<String, Map<String, Integer>> counts;
+
+    public FacetHits(int total, List<Integer> ids, Map<String, Map<String, Integer>> counts) {
+        this.total = total;
+        this.ids = ids;
+        this.counts = counts;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    /** @return 分面 -> 取值 -> 商品数 */
+    public Map<String, Map<String, Integer>> getCounts() {
+        return counts;
+    }
+}
@@ -0,0 +1,73 @@
+package com.cy.store.search;
+
+import java.util.Arrays;
+
+/**
+ * 文本的MinHash签名
+ * 文本按NGramTokenizer的规则归一化、切分后取相邻两字作为特征（只有一个字的段取单字），
+ * 特征先用64位混合函数打散一次，再用numHashes组"乘法+加法"得到各个哈希值并取最小值
+ * 两个签名相同位置取值相等的比例是两段文本特征集合Jaccard相似度的无偏估计
+ */
+public final class MinHash {
+    private final long[] multipliers;
+    private final long[] increments;
+
+    /** @param numHashes 签名长度 */
+    public MinHash(int numHashes) {
+        multipliers = new long[numHashes];
+        increments = new long[numHashes];
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < numHashes; i++) {
+            seed = mix64(seed + i);
+            multipliers[i] = seed | 1;
+            seed = mix64(seed);
+            increments[i] = seed;
+        }
+    }
+
+    /** @return 签名长度 */
+    public int size() {
+        return multipliers.length;
+    }
+
+    /**
+     * 计算若干段文本合并后的签名
+     * @param texts 文本，null被忽略
+     * @return 签名；没有任何特征时返回null
+     */
+    public int[] signature(String... texts) {
+        int[] mins = new int[multipliers.length];
+        Arrays.fill(mins, Integer.MAX_VALUE);
+        boolean empty = true;
+        for (String text : texts) {
+            for (String run : NGramTokenizer.runs(text)) {
+                if (run.length() == 1) {
+                    update(mins, run.charAt(0));
+                    empty = false;
+                }
+                for (int i = 0; i + 1 < run.length(); i++) {
+                    update(mins, (run.charAt(i) << 16) | run.charAt(i + 1));
+                    empty = false;
+                }
+            }
+        }
+        return empty ? null : mins;
+    }
+
+    private void update(int[] mins, int shingle) {
+        long x = mix64(shingle);
+        for (int i = 0; i < mins.length; i++) {
+            // 取高31位，保证为非负数
+            int h = (int) ((multipliers[i] * x + increments[i]) >>> 33);
+            if (h < mins[i]) {
+                mins[i] = h;
+            }
+        }
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,83 @@
+package com.cy.store.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 字符n-gram分词：不依赖词典，中文标题同样适用
+ * 文本先归一化（转小写、全角转半角），再按非字母数字字符切分成若干段，
+ * 索引时每段产生单字和相邻两字（bigram），查询时使用bigram
+ */
+public final class NGramTokenizer {
+    private NGramTokenizer() {
+    }
+
+    /**
+     * 索引用的分词：单字 + 相邻两字
+     * @param text 待分词的文本
+     * @return 词项列表（含重复，用于统计词频）
+     */
+    public static List<String> indexTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String run : runs(text)) {
+            for (int i = 0; i < run.length(); i++) {
+                terms.add(run.substring(i, i + 1));
+                if (i + 1 < run.length()) {
+                    terms.add(run.substring(i, i + 2));
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 查询用的分词：每段取相邻两字，只有一个字的段取单字
+     * @param text 查询关键字
+     * @return 词项列表（已去重）
+     */
+    public static List<String> queryTerms(String text) {
+        // 保持关键字中的先后顺序去重
+        Set<String> terms = new LinkedHashSet<>();
+        for (String run : runs(text)) {
+            if (run.length() == 1) {
+                terms.add(run);
+            }
+            for (int i = 0; i + 1 < run.length(); i++) {
+                terms.add(run.substring(i, i + 2));
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /** 归一化后按非字母数字字符切分 */
+    static List<String> runs(String text) {
+        List<String> runs = new ArrayList<>();
+        if (text == null) {
+            return runs;
+        }
+        StringBuilder run = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                run.append(c);
+            } else if (run.length() > 0) {
+                runs.add(run.toString());
+                run.setLength(0);
+            }
+        }
+        if (run.length() > 0) {
+            runs.add(run.toString());
+        }
+        return runs;
+    }
+
+    static char normalize(char c) {
+        // 全角字符转半角
+        if (c >= '！' && c <= '～') {
+            c = (char) (c - 0xFEE0);
+        }
+        return Character.toLowerCase(c);
+    }
+}
@@ -0,0 +1,116 @@
+package com.cy.store.search;
+
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 商品索引的后台更新：发布事件的线程只记下变化的商品，由单独的线程查询并更新索引，
+ * 处理期间到达的变化合并为下一批；只有库存变化的事件直接忽略（索引中没有库存）
+ */
+final class ProductChangeQueue {
+    /** 索引的更新方式 */
+    interface Handler {
+        /** 根据全部商品重新构建 */
+        void rebuild();
+
+        /** @param products 发生变化的商品id -> 最新数据，已删除的商品值为null */
+        void update(Map<Integer, Product> products);
+    }
+
+    private final String name;
+    private final ProductMapper productMapper;
+    private final Handler handler;
+    /** 为false时任何变化都整体重建 */
+    private final boolean incremental;
+
+    private final ExecutorService executor;
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuildRequested;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param name 索引名称，用于线程名和日志
+     * @param incremental 是否按商品增量更新
+     */
+    ProductChangeQueue(String name, ProductMapper productMapper, boolean incremental, Handler handler) {
+        this.name = name;
+        this.productMapper = productMapper;
+        this.incremental = incremental;
+        this.handler = handler;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, name + "-updater");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** 记下一次商品变化，在后台处理 */
+    void offer(ProductChangedEvent event) {
+        if (event.isStockOnly()) {
+            return;
+        }
+        if (event.isAll() || !incremental) {
+            rebuildRequested = true;
+        } else {
+            changed.addAll(event.getPids());
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /** 等待已记下的变化处理完成 */
+    void await() throws InterruptedException {
+        try {
+            executor.submit(() -> { }).get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException(name + "更新超时", e);
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void drain() {
+        scheduled.set(false);
+        try {
+            if (rebuildRequested) {
+                rebuildRequested = false;
+                // 重建时读取的是最新数据，已记下的商品无需再单独更新
+                changed.clear();
+                handler.rebuild();
+                return;
+            }
+            List<Integer> pids = new ArrayList<>(changed);
+            if (pids.isEmpty()) {
+                return;
+            }
+            changed.removeAll(pids);
+            Map<Integer, Product> products = new HashMap<>(pids.size() * 4 / 3 + 1);
+            for (Integer pid : pids) {
+                products.put(pid, null);
+            }
+            for (Product product : productMapper.findByIds(pids)) {
+                products.put(product.getId(), product);
+            }
+            handler.update(products);
+        } catch (RuntimeException e) {
+            System.out.println(name + "更新失败：" + e.getMessage());
+        }
+    }
+}
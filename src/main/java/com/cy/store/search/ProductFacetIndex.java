@@ -0,0 +1,317 @@
+package com.cy.store.search;
+
+import com.cy.store.cache.WarmUp;
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品的分面筛选索引
+ * 每个分面的每个取值对应一个商品id的压缩位图（RoaringBitmap），
+ * 筛选时同一分面内的取值取并集、不同分面之间取交集；
+ * 每个分面的计数不受该分面自身的筛选条件影响（多选分面）；
+ * 商品变化时在后台按商品增量更新
+ */
+@Component
+public class ProductFacetIndex {
+    /** 分面名称 */
+    public static final String CATEGORY = "category";
+    public static final String ITEM_TYPE = "itemType";
+    public static final String PRICE_BAND = "priceBand";
+    public static final String STATUS = "status";
+    private static final String[] FACETS = {CATEGORY, ITEM_TYPE, PRICE_BAND, STATUS};
+    /** 命中的商品数少于"取值个数×该值"时，逐个统计比逐个位图求交集更快 */
+    private static final int SCAN_THRESHOLD = 256;
+
+    private final ProductMapper productMapper;
+    /** 价格区间的分界点（升序） */
+    private final long[] priceBands;
+    private final ProductChangeQueue changes;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 以下数据由lock保护：分面 -> 取值 -> 商品id位图 */
+    private Map<String, Map<String, RoaringBitmap>> bitmaps = newBitmaps();
+    /** 每个商品当前所在的分面取值，增量更新时用于从旧位图中移除 */
+    private Map<Integer, String[]> values = new HashMap<>();
+    /** 全部商品，没有任何筛选条件时使用 */
+    private RoaringBitmap all = new RoaringBitmap();
+    private volatile boolean loaded;
+
+    public ProductFacetIndex(ProductMapper productMapper,
+                             @Value("${product.facet.price-bands}") long[] priceBands) {
+        this.productMapper = productMapper;
+        this.priceBands = priceBands.clone();
+        Arrays.sort(this.priceBands);
+        this.changes = new ProductChangeQueue("商品分面索引", productMapper, true, new ProductChangeQueue.Handler() {
+            @Override
+            public void rebuild() {
+                ProductFacetIndex.this.rebuild();
+            }
+
+            @Override
+            public void update(Map<Integer, Product> products) {
+                ProductFacetIndex.this.update(products);
+            }
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        WarmUp.run("商品分面索引", this::rebuild);
+    }
+
+    /** 根据全部商品重建索引 */
+    public void rebuild() {
+        List<Product> products = productMapper.findAll();
+        lock.writeLock().lock();
+        try {
+            bitmaps = newBitmaps();
+            values = new HashMap<>(products.size() * 4 / 3 + 1);
+            all = new RoaringBitmap();
+            for (Product product : products) {
+                put(product);
+            }
+            for (Map<String, RoaringBitmap> facet : bitmaps.values()) {
+                for (RoaringBitmap bitmap : facet.values()) {
+                    bitmap.runOptimize();
+                }
+            }
+            all.runOptimize();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 增量更新一批商品的索引
+     * @param products 商品id -> 最新数据，为null时仅删除
+     */
+    public void update(Map<Integer, Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Integer, Product> e : products.entrySet()) {
+                remove(e.getKey());
+                if (e.getValue() != null) {
+                    put(e.getValue());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        // 分面中没有库存；查询商品和更新索引都在后台进行
+        changes.offer(event);
+    }
+
+    /** 等待已收到的商品变化更新到索引 */
+    void awaitChanges() throws InterruptedException {
+        changes.await();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        changes.shutdown();
+    }
+
+    /**
+     * 将商品加入索引（已存在时先移除），调用方需持有写锁或在构建阶段调用
+     */
+    void put(Product product) {
+        int id = product.getId();
+        remove(id);
+        String[] facetValues = {
+                product.getCategoryId() == null ? null : product.getCategoryId().toString(),
+                product.getItemType(),
+                priceBand(product.getPrice()),
+                product.getStatus() == null ? null : product.getStatus().toString()};
+        for (int i = 0; i < FACETS.length; i++) {
+            if (facetValues[i] != null) {
+                bitmaps.get(FACETS[i]).computeIfAbsent(facetValues[i], k -> new RoaringBitmap()).add(id);
+            }
+        }
+        values.put(id, facetValues);
+        all.add(id);
+    }
+
+    private void remove(int id) {
+        String[] old = values.remove(id);
+        if (old == null) {
+            return;
+        }
+        all.remove(id);
+        for (int i = 0; i < FACETS.length; i++) {
+            if (old[i] != null) {
+                RoaringBitmap bitmap = bitmaps.get(FACETS[i]).get(old[i]);
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    bitmaps.get(FACETS[i]).remove(old[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按分面筛选
+     * @param filters 分面 -> 选中的取值（同一分面多个取值为"或"），未出现的分面不筛选
+     * @param offset 跳过的条数
+     * @param limit 返回的最大条数
+     * @return 命中的商品id（按id升序）和各分面取值的计数
+     */
+    public FacetHits query(Map<String, ? extends Collection<String>> filters, int offset, int limit) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            // 每个分面的筛选条件先合并成一个位图
+            Map<String, RoaringBitmap> selected = new HashMap<>();
+            for (String facet : FACETS) {
+                Collection<String> chosen = filters.get(facet);
+                if (chosen == null || chosen.isEmpty()) {
+                    continue;
+                }
+                List<RoaringBitmap> chosenBitmaps = new ArrayList<>(chosen.size());
+                for (String value : chosen) {
+                    RoaringBitmap bitmap = bitmaps.get(facet).get(value);
+                    if (bitmap != null) {
+                        chosenBitmaps.add(bitmap);
+                    }
+                }
+                // 只选了一个取值时直接使用索引中的位图，不复制
+                selected.put(facet, chosenBitmaps.size() == 1
+                        ? chosenBitmaps.get(0)
+                        : RoaringBitmap.or(chosenBitmaps.iterator()));
+            }
+            RoaringBitmap matches = intersect(selected, null);
+
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            for (int i = 0; i < FACETS.length; i++) {
+                // 计数时不考虑当前分面自己的筛选条件
+                RoaringBitmap base = selected.containsKey(FACETS[i]) ? intersect(selected, FACETS[i]) : matches;
+                counts.put(FACETS[i], count(i, base));
+            }
+
+            if (matches == null) {
+                matches = all;
+            }
+            int total = matches.getCardinality();
+            List<Integer> ids = new ArrayList<>();
+            if (offset < total) {
+                // 按排名直接定位到第offset个商品，深页不必逐个跳过
+                PeekableIntIterator it = matches.getIntIterator();
+                it.advanceIfNeeded(matches.select(offset));
+                while (it.hasNext() && ids.size() < limit) {
+                    ids.add(it.next());
+                }
+            }
+            return new FacetHits(total, ids, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 统计base中的商品在第facet个分面上各取值的数量
+     * base较小时逐个查商品的取值，否则与每个取值的位图求交集基数
+     */
+    private Map<String, Integer> count(int facet, RoaringBitmap base) {
+        Map<String, RoaringBitmap> facetBitmaps = bitmaps.get(FACETS[facet]);
+        Map<String, Integer> facetCounts = new TreeMap<>();
+        if (base != null && base.getLongCardinality() < (long) facetBitmaps.size() * SCAN_THRESHOLD) {
+            IntIterator it = base.getIntIterator();
+            while (it.hasNext()) {
+                String value = values.get(it.next())[facet];
+                if (value != null) {
+                    facetCounts.merge(value, 1, Integer::sum);
+                }
+            }
+            return facetCounts;
+        }
+        for (Map.Entry<String, RoaringBitmap> e : facetBitmaps.entrySet()) {
+            int count = base == null
+                    ? e.getValue().getCardinality()
+                    : RoaringBitmap.andCardinality(base, e.getValue());
+            if (count > 0) {
+                facetCounts.put(e.getKey(), count);
+            }
+        }
+        return facetCounts;
+    }
+
+    /** @return 商品价格所在的价格区间，例如"200-1000"、"5000-" */
+    public String priceBand(Long price) {
+        if (price == null) {
+            return null;
+        }
+        long lower = 0;
+        for (long bound : priceBands) {
+            if (price < bound) {
+                return lower + "-" + bound;
+            }
+            lower = bound;
+        }
+        return lower + "-";
+    }
+
+    /**
+     * 对除exclude之外的分面条件取交集，从基数最小的位图开始，中间结果尽量小
+     * 没有任何条件时返回null（表示全部商品）；只有一个条件时返回的是索引中的位图，调用方不能修改
+     */
+    private static RoaringBitmap intersect(Map<String, RoaringBitmap> selected, String exclude) {
+        List<RoaringBitmap> operands = new ArrayList<>(selected.size());
+        for (Map.Entry<String, RoaringBitmap> e : selected.entrySet()) {
+            if (!e.getKey().equals(exclude)) {
+                operands.add(e.getValue());
+            }
+        }
+        if (operands.isEmpty()) {
+            return null;
+        }
+        operands.sort(Comparator.comparingLong(RoaringBitmap::getLongCardinality));
+        RoaringBitmap result = operands.get(0);
+        for (int i = 1; i < operands.size(); i++) {
+            result = RoaringBitmap.and(result, operands.get(i));
+        }
+        return result;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private static Map<String, Map<String, RoaringBitmap>> newBitmaps() {
+        Map<String, Map<String, RoaringBitmap>> map = new HashMap<>();
+        for (String facet : FACETS) {
+            map.put(facet, new HashMap<>());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,283 @@
+package com.cy.store.search;
+
+import com.cy.store.cache.WarmUp;
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品的内存倒排索引，索引title、sell_point和item_type三个字段
+ * 1.分词使用字符n-gram（NGramTokenizer），中文标题无需词典
+ * 2.相关度：先比较命中的查询词比例，再比较BM25得分，最后按优先级
+ * 3.只返回上架（status=1）的商品
+ * 4.商品变化时（ProductChangedEvent）在后台按商品增量更新
+ */
+@Component
+public class ProductSearchIndex {
+    /** 各字段的权重 */
+    private static final float TITLE_BOOST = 3f;
+    private static final float ITEM_TYPE_BOOST = 2f;
+    private static final float SELL_POINT_BOOST = 1f;
+    /** BM25参数 */
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final ProductMapper productMapper;
+    private final ProductChangeQueue changes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** 以下数据由lock保护 */
+    private Map<String, Map<Integer, Float>> postings = new HashMap<>();
+    private Map<Integer, Doc> docs = new HashMap<>();
+    private double totalLength;
+    private volatile boolean loaded;
+
+    public ProductSearchIndex(ProductMapper productMapper) {
+        this.productMapper = productMapper;
+        this.changes = new ProductChangeQueue("商品索引", productMapper, true, new ProductChangeQueue.Handler() {
+            @Override
+            public void rebuild() {
+                ProductSearchIndex.this.rebuild();
+            }
+
+            @Override
+            public void update(Map<Integer, Product> products) {
+                for (Map.Entry<Integer, Product> e : products.entrySet()) {
+                    ProductSearchIndex.this.update(e.getKey(), e.getValue());
+                }
+            }
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        WarmUp.run("商品索引", this::rebuild);
+    }
+
+    /** 根据全部商品重新构建索引，构建完成后整体替换 */
+    public void rebuild() {
+        Map<String, Map<Integer, Float>> newPostings = new HashMap<>();
+        Map<Integer, Doc> newDocs = new HashMap<>();
+        double newTotalLength = 0;
+        for (Product product : productMapper.findAll()) {
+            Doc doc = analyze(product);
+            newDocs.put(product.getId(), doc);
+            newTotalLength += doc.length;
+            addPostings(newPostings, product.getId(), doc);
+        }
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            docs = newDocs;
+            totalLength = newTotalLength;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 增量更新某个商品的索引
+     * @param product 商品的最新数据，为null时仅删除
+     * @param id 商品id
+     */
+    public void update(Integer id, Product product) {
+        Doc doc = product == null ? null : analyze(product);
+        lock.writeLock().lock();
+        try {
+            Doc old = docs.remove(id);
+            if (old != null) {
+                totalLength -= old.length;
+                for (String term : old.weights.keySet()) {
+                    Map<Integer, Float> list = postings.get(term);
+                    if (list != null) {
+                        list.remove(id);
+                        if (list.isEmpty()) {
+                            postings.remove(term);
+                        }
+                    }
+                }
+            }
+            if (doc != null) {
+                docs.put(id, doc);
+                totalLength += doc.length;
+                addPostings(postings, id, doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        // 只索引标题等文本，与库存无关；查询商品和更新索引都在后台进行，不占用发布事件的线程
+        changes.offer(event);
+    }
+
+    /** 等待已收到的商品变化更新到索引 */
+    void awaitChanges() throws InterruptedException {
+        changes.await();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        changes.shutdown();
+    }
+
+    /**
+     * 检索商品
+     * @param keyword 关键字
+     * @param offset 跳过的条数
+     * @param limit 返回的最大条数
+     * @return 命中总数和当前页的商品id
+     */
+    public SearchHits search(String keyword, int offset, int limit) {
+        List<String> terms = NGramTokenizer.queryTerms(keyword);
+        if (terms.isEmpty()) {
+            return new SearchHits(0, Collections.<Integer>emptyList());
+        }
+        ensureLoaded();
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int n = docs.size();
+            double avgLength = n == 0 ? 1 : totalLength / n;
+            Map<Integer, Hit> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Integer, Float> list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (n - list.size() + 0.5) / (list.size() + 0.5));
+                for (Map.Entry<Integer, Float> e : list.entrySet()) {
+                    Doc doc = docs.get(e.getKey());
+                    if (doc.status != 1) {
+                        continue;
+                    }
+                    float tf = e.getValue();
+                    double norm = K1 * (1 - B + B * doc.length / avgLength);
+                    Hit hit = scores.get(e.getKey());
+                    if (hit == null) {
+                        hit = new Hit(e.getKey(), doc.priority);
+                        scores.put(e.getKey(), hit);
+                    }
+                    hit.matched++;
+                    hit.score += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+            // 短关键字要求全部命中，较长的关键字至少命中三分之二
+            int minMatched = terms.size() <= 3 ? terms.size() : (terms.size() * 2 + 2) / 3;
+            for (Hit hit : scores.values()) {
+                if (hit.matched >= minMatched) {
+                    hits.add(hit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(null);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = Math.max(0, offset); i < hits.size() && ids.size() < limit; i++) {
+            ids.add(hits.get(i).id);
+        }
+        return new SearchHits(hits.size(), ids);
+    }
+
+    /** @return 已索引的商品数 */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    private static Doc analyze(Product product) {
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, product.getTitle(), TITLE_BOOST);
+        addField(weights, product.getItemType(), ITEM_TYPE_BOOST);
+        addField(weights, product.getSellPoint(), SELL_POINT_BOOST);
+        float length = 0;
+        for (Float w : weights.values()) {
+            length += w;
+        }
+        int status = product.getStatus() == null ? 0 : product.getStatus();
+        int priority = product.getPriority() == null ? 0 : product.getPriority();
+        return new Doc(weights, length, status, priority);
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float boost) {
+        for (String term : NGramTokenizer.indexTerms(text)) {
+            weights.merge(term, boost, Float::sum);
+        }
+    }
+
+    private static void addPostings(Map<String, Map<Integer, Float>> postings, Integer id, Doc doc) {
+        for (Map.Entry<String, Float> e : doc.weights.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(id, e.getValue());
+        }
+    }
+
+    /** 一个商品的索引数据：各词项的加权词频 */
+    private static final class Doc {
+        final Map<String, Float> weights;
+        final float length;
+        final int status;
+        final int priority;
+
+        Doc(Map<String, Float> weights, float length, int status, int priority) {
+            this.weights = weights;
+            this.length = length;
+            this.status = status;
+            this.priority = priority;
+        }
+    }
+
+    private static final class Hit implements Comparable<Hit> {
+        final int id;
+        final int priority;
+        int matched;
+        double score;
+
+        Hit(int id, int priority) {
+            this.id = id;
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(Hit o) {
+            if (matched != o.matched) {
+                return Integer.compare(o.matched, matched);
+            }
+            if (score != o.score) {
+                return Double.compare(o.score, score);
+            }
+            if (priority != o.priority) {
+                return Integer.compare(o.priority, priority);
+            }
+            return Integer.compare(id, o.id);
+        }
+    }
+}
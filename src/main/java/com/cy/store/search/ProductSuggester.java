@@ -0,0 +1,103 @@
+package com.cy.store.search;
+
+import com.cy.store.cache.WarmUp;
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品标题的输入联想
+ * 上架商品的标题以原文、全拼、拼音首字母三种key放入前缀树，按priority排序，
+ * 每次按键的查询都只访问内存；商品变化时在后台整体重建后替换，连续的变化合并为一次重建
+ */
+@Component
+public class ProductSuggester {
+    /** 每个前缀保留的最大候选数 */
+    public static final int TOP_N = 10;
+
+    private final ProductMapper productMapper;
+    private final ProductChangeQueue changes;
+    private volatile SuggestTrie trie;
+
+    public ProductSuggester(ProductMapper productMapper) {
+        this.productMapper = productMapper;
+        this.changes = new ProductChangeQueue("商品联想词", productMapper, false, new ProductChangeQueue.Handler() {
+            @Override
+            public void rebuild() {
+                ProductSuggester.this.rebuild();
+            }
+
+            @Override
+            public void update(Map<Integer, Product> products) {
+                ProductSuggester.this.rebuild();
+            }
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        WarmUp.run("商品联想词", this::rebuild);
+    }
+
+    /** 根据全部上架商品重建前缀树 */
+    public void rebuild() {
+        SuggestTrie.Builder builder = new SuggestTrie.Builder(TOP_N);
+        for (Product product : productMapper.findAll()) {
+            if (product.getStatus() == null || product.getStatus() != 1 || product.getTitle() == null) {
+                continue;
+            }
+            String title = product.getTitle().trim();
+            long weight = product.getPriority() == null ? 0 : product.getPriority();
+            builder.add(title, weight,
+                    SuggestKeys.plain(title), SuggestKeys.pinyin(title), SuggestKeys.initials(title));
+        }
+        trie = builder.build();
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        // 联想词只来自商品标题，与库存无关
+        changes.offer(event);
+    }
+
+    /** 等待已收到的商品变化重建完成 */
+    void awaitChanges() throws InterruptedException {
+        changes.await();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        changes.shutdown();
+    }
+
+    /**
+     * 查询前缀的联想词
+     * @param prefix 用户输入的前缀（汉字、全拼或拼音首字母）
+     * @param limit 返回的最大条数，不超过TOP_N
+     * @return 商品标题列表
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String key = SuggestKeys.plain(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        SuggestTrie current = trie;
+        if (current == null) {
+            synchronized (this) {
+                if (trie == null) {
+                    rebuild();
+                }
+                current = trie;
+            }
+        }
+        return current.suggest(key, Math.min(limit, TOP_N));
+    }
+}
@@ -0,0 +1,22 @@
+package com.cy.store.search;
+
+import java.util.List;
+
+/** 一页检索结果：命中总数和当前页的商品id（按相关度排序） */
+public final class SearchHits {
+    private final int total;
+    private final List<Integer> ids;
+
+    public SearchHits(int total, List<Integer> ids) {
+        this.total = total;
+        this.ids = ids;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,329 @@
+package com.cy.store.search;
+
+import com.cy.store.cache.WarmUp;
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按标题和卖点文本查找相似商品（MinHash + LSH），无需两两比较
+ * 1.离线部分：全量构建的不可变快照，签名只保存每个哈希值的低8位（b-bit MinHash），
+ *   LSH分桶按桶哈希排序后存放在int数组中，100万商品约占用130MB
+ * 2.增量部分：快照之后变化的商品保存在一个小的增量表中，查询时与快照合并；
+ *   商品变化时在后台查询并写入增量表，增量表超过上限时在后台重建快照
+ * 签名分为BANDS段、每段ROWS个哈希值，Jaccard相似度约0.45以上的商品大概率成为候选
+ */
+@Component
+public class SimilarTitleIndex {
+    static final int BANDS = 12;
+    static final int ROWS = 3;
+    /** 候选商品估计的相似度下限 */
+    private static final double MIN_SIMILARITY = 0.3;
+    /** 每个桶最多检查的商品数，防止大量雷同文本拖慢查询 */
+    private static final int MAX_BUCKET_SCAN = 1000;
+
+    private static final MinHash MIN_HASH = new MinHash(BANDS * ROWS);
+
+    private final ProductMapper productMapper;
+    private final int deltaLimit;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    /** 快照之后发生变化的商品，由this保护；值的sig为null表示商品已删除 */
+    private final Map<Integer, Entry> delta = new HashMap<>();
+    private long sequence;
+    private volatile boolean loaded;
+
+    private final ProductChangeQueue changes;
+
+    public SimilarTitleIndex(ProductMapper productMapper,
+                             @Value("${product.similar.delta-limit}") int deltaLimit) {
+        this.productMapper = productMapper;
+        this.deltaLimit = deltaLimit;
+        this.changes = new ProductChangeQueue("相似商品索引", productMapper, true, new ProductChangeQueue.Handler() {
+            @Override
+            public void rebuild() {
+                SimilarTitleIndex.this.rebuild();
+            }
+
+            @Override
+            public void update(Map<Integer, Product> products) {
+                for (Map.Entry<Integer, Product> e : products.entrySet()) {
+                    SimilarTitleIndex.this.update(e.getKey(), e.getValue());
+                }
+            }
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        WarmUp.run("相似商品索引", this::rebuild);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        changes.shutdown();
+    }
+
+    /** 根据全部商品重建快照，构建期间之前的增量数据在替换快照后清除 */
+    public void rebuild() {
+        long start;
+        synchronized (this) {
+            start = sequence;
+        }
+        Snapshot built = Snapshot.build(productMapper.findAll());
+        synchronized (this) {
+            snapshot = built;
+            delta.values().removeIf(entry -> entry.sequence <= start);
+            loaded = true;
+        }
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        // 相似度只取决于标题和卖点，与库存无关
+        changes.offer(event);
+    }
+
+    /** 等待已收到的商品变化写入增量表 */
+    void awaitChanges() throws InterruptedException {
+        changes.await();
+    }
+
+    /**
+     * 增量更新某个商品
+     * @param pid 商品id
+     * @param product 商品的最新数据，为null表示商品已删除
+     */
+    public void update(Integer pid, Product product) {
+        int[] mins = product == null ? null : MIN_HASH.signature(product.getTitle(), product.getSellPoint());
+        boolean full;
+        synchronized (this) {
+            delta.put(pid, new Entry(pid, mins, ++sequence));
+            full = delta.size() > deltaLimit;
+        }
+        if (full) {
+            rebuildInBackground();
+        }
+    }
+
+    /**
+     * 查找与某个商品标题、卖点相似的商品
+     * @param product 商品
+     * @param limit 返回的最大条数
+     * @return 按估计相似度降序排列的商品id，不含该商品自身
+     */
+    public List<Integer> find(Product product, int limit) {
+        int[] mins = MIN_HASH.signature(product.getTitle(), product.getSellPoint());
+        if (mins == null) {
+            return new ArrayList<>();
+        }
+        ensureLoaded();
+        byte[] query = lowBits(mins);
+        int[] bands = bandHashes(mins);
+        Map<Integer, Double> scores = new HashMap<>();
+        Snapshot current;
+        List<Entry> changed;
+        synchronized (this) {
+            current = snapshot;
+            changed = new ArrayList<>(delta.values());
+        }
+        Map<Integer, Entry> masked = new HashMap<>(changed.size() * 2);
+        for (Entry entry : changed) {
+            masked.put(entry.pid, entry);
+        }
+        // 快照中的候选：同一段桶哈希相等的商品
+        for (int b = 0; b < BANDS; b++) {
+            int[] hashes = current.bandHashes[b];
+            int[] ords = current.bandOrds[b];
+            int from = lowerBound(hashes, bands[b]);
+            for (int i = from; i < hashes.length && hashes[i] == bands[b] && i - from < MAX_BUCKET_SCAN; i++) {
+                int pid = current.pids[ords[i]];
+                if (!masked.containsKey(pid) && !scores.containsKey(pid)) {
+                    scores.put(pid, similarity(query, current.sigs, ords[i] * query.length));
+                }
+            }
+        }
+        // 增量表中的候选
+        for (Entry entry : changed) {
+            if (entry.sig != null && !scores.containsKey(entry.pid) && sharesBand(bands, entry.bands)) {
+                scores.put(entry.pid, similarity(query, entry.sig, 0));
+            }
+        }
+        scores.remove(product.getId());
+
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>();
+        for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+            if (e.getValue() >= MIN_SIMILARITY) {
+                ranked.add(e);
+            }
+        }
+        ranked.sort((a, b) -> {
+            int cmp = Double.compare(b.getValue(), a.getValue());
+            return cmp != 0 ? cmp : Integer.compare(a.getKey(), b.getKey());
+        });
+        List<Integer> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Iterator<Map.Entry<Integer, Double>> it = ranked.iterator(); it.hasNext() && result.size() < limit; ) {
+            result.add(it.next().getKey());
+        }
+        return result;
+    }
+
+    /** @return 快照中的商品数 */
+    public int size() {
+        return snapshot.pids.length;
+    }
+
+    /** 与商品变化在同一个后台线程中重建，重复的请求合并为一次 */
+    private void rebuildInBackground() {
+        changes.offer(new ProductChangedEvent(this));
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    /** 根据相同位置低8位相等的比例估计Jaccard相似度，扣除低8位偶然相等的概率 */
+    private static double similarity(byte[] query, byte[] sigs, int offset) {
+        int equal = 0;
+        for (int i = 0; i < query.length; i++) {
+            if (query[i] == sigs[offset + i]) {
+                equal++;
+            }
+        }
+        double p = (double) equal / query.length;
+        return (p - 1.0 / 256) / (1 - 1.0 / 256);
+    }
+
+    private static boolean sharesBand(int[] a, int[] b) {
+        for (int i = 0; i < BANDS; i++) {
+            if (a[i] == b[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static byte[] lowBits(int[] mins) {
+        byte[] sig = new byte[mins.length];
+        for (int i = 0; i < mins.length; i++) {
+            sig[i] = (byte) mins[i];
+        }
+        return sig;
+    }
+
+    static int[] bandHashes(int[] mins) {
+        int[] bands = new int[BANDS];
+        for (int b = 0; b < BANDS; b++) {
+            long h = b;
+            for (int r = 0; r < ROWS; r++) {
+                h = h * 0x9E3779B97F4A7C15L + mins[b * ROWS + r];
+            }
+            bands[b] = (int) MinHash.mix64(h);
+        }
+        return bands;
+    }
+
+    /** @return 第一个不小于key的位置 */
+    private static int lowerBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** 增量表中的一个商品 */
+    private static final class Entry {
+        final int pid;
+        final byte[] sig;
+        final int[] bands;
+        final long sequence;
+
+        Entry(int pid, int[] mins, long sequence) {
+            this.pid = pid;
+            this.sig = mins == null ? null : lowBits(mins);
+            this.bands = mins == null ? null : bandHashes(mins);
+            this.sequence = sequence;
+        }
+    }
+
+    /** 全量构建的不可变快照 */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = build(new ArrayList<>());
+
+        /** 序号 -> 商品id */
+        final int[] pids;
+        /** 序号为i的商品的签名位于[i * 签名长度, (i + 1) * 签名长度) */
+        final byte[] sigs;
+        /** 每一段：按桶哈希排序的桶哈希和商品序号 */
+        final int[][] bandHashes;
+        final int[][] bandOrds;
+
+        private Snapshot(int[] pids, byte[] sigs, int[][] bandHashes, int[][] bandOrds) {
+            this.pids = pids;
+            this.sigs = sigs;
+            this.bandHashes = bandHashes;
+            this.bandOrds = bandOrds;
+        }
+
+        static Snapshot build(List<Product> products) {
+            int k = BANDS * ROWS;
+            int[] pids = new int[products.size()];
+            byte[] sigs = new byte[products.size() * k];
+            long[][] packed = new long[BANDS][products.size()];
+            int n = 0;
+            for (Product product : products) {
+                int[] mins = MIN_HASH.signature(product.getTitle(), product.getSellPoint());
+                if (mins == null || product.getId() == null) {
+                    continue;
+                }
+                pids[n] = product.getId();
+                for (int i = 0; i < k; i++) {
+                    sigs[n * k + i] = (byte) mins[i];
+                }
+                int[] bands = bandHashes(mins);
+                for (int b = 0; b < BANDS; b++) {
+                    // 高32位为桶哈希、低32位为序号，排序后同一个桶的商品相邻
+                    packed[b][n] = ((long) bands[b] << 32) | n;
+                }
+                n++;
+            }
+            int[][] bandHashes = new int[BANDS][n];
+            int[][] bandOrds = new int[BANDS][n];
+            for (int b = 0; b < BANDS; b++) {
+                long[] entries = Arrays.copyOf(packed[b], n);
+                packed[b] = null;
+                Arrays.sort(entries);
+                for (int i = 0; i < n; i++) {
+                    bandHashes[b][i] = (int) (entries[i] >> 32);
+                    bandOrds[b][i] = (int) entries[i];
+                }
+            }
+            return new Snapshot(Arrays.copyOf(pids, n), Arrays.copyOf(sigs, n * k), bandHashes, bandOrds);
+        }
+    }
+}
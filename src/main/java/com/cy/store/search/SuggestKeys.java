@@ -0,0 +1,74 @@
+package com.cy.store.search;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+/**
+ * 输入联想的key：原文、全拼和拼音首字母
+ * 三种key都经过与NGramTokenizer相同的归一化，并去掉空白和标点
+ * 多音字取第一个读音
+ */
+public final class SuggestKeys {
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private SuggestKeys() {
+    }
+
+    /** @return 归一化后的原文，用户输入的前缀也用它处理 */
+    public static String plain(String text) {
+        StringBuilder key = new StringBuilder();
+        for (String run : NGramTokenizer.runs(text)) {
+            key.append(run);
+        }
+        return key.toString();
+    }
+
+    /** @return 全拼，例如"联想yoga"->"lianxiangyoga" */
+    public static String pinyin(String text) {
+        return convert(text, false);
+    }
+
+    /** @return 拼音首字母，例如"联想yoga"->"lxyoga" */
+    public static String initials(String text) {
+        return convert(text, true);
+    }
+
+    private static String convert(String text, boolean initialsOnly) {
+        String plain = plain(text);
+        StringBuilder key = new StringBuilder(plain.length() * 4);
+        for (int i = 0; i < plain.length(); i++) {
+            char c = plain.charAt(i);
+            String pinyin = toPinyin(c);
+            if (pinyin == null) {
+                key.append(c);
+            } else if (initialsOnly) {
+                key.append(pinyin.charAt(0));
+            } else {
+                key.append(pinyin);
+            }
+        }
+        return key.toString();
+    }
+
+    private static String toPinyin(char c) {
+        if (c < 0x4E00 || c > 0x9FA5) {
+            return null;
+        }
+        try {
+            String[] pinyins = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            return pinyins == null || pinyins.length == 0 ? null : pinyins[0];
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return null;
+        }
+    }
+}
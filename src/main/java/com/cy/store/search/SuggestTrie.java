@@ -0,0 +1,190 @@
+package com.cy.store.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 输入联想用的前缀树（不可变）
+ * 构建完成后压缩为数组存储：子节点按字符排序后二分查找，
+ * 每个节点预先计算好权重最高的N个候选，查询时间只与前缀长度有关
+ */
+public final class SuggestTrie {
+    /** 每个节点的子节点区间 [childStart, childStart + childCount) */
+    private final int[] childStart;
+    private final int[] childCount;
+    private final char[] childLabels;
+    private final int[] childNodes;
+    /** 每个节点的候选区间 [topStart, topStart + topCount) */
+    private final int[] topStart;
+    private final int[] topCount;
+    private final int[] tops;
+    private final String[] texts;
+
+    private SuggestTrie(int[] childStart, int[] childCount, char[] childLabels, int[] childNodes,
+                        int[] topStart, int[] topCount, int[] tops, String[] texts) {
+        this.childStart = childStart;
+        this.childCount = childCount;
+        this.childLabels = childLabels;
+        this.childNodes = childNodes;
+        this.topStart = topStart;
+        this.topCount = topCount;
+        this.tops = tops;
+        this.texts = texts;
+    }
+
+    /**
+     * 查询以prefix开头的候选
+     * @param prefix 已归一化的前缀
+     * @param limit 返回的最大条数
+     * @return 按权重从高到低排列的候选
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty() || texts.length == 0) {
+            return Collections.emptyList();
+        }
+        int node = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            int start = childStart[node];
+            int found = Arrays.binarySearch(childLabels, start, start + childCount[node], prefix.charAt(i));
+            if (found < 0) {
+                return Collections.emptyList();
+            }
+            node = childNodes[found];
+        }
+        int n = Math.min(limit, topCount[node]);
+        List<String> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(texts[tops[topStart[node] + i]]);
+        }
+        return result;
+    }
+
+    /** @return 节点数 */
+    public int nodeCount() {
+        return childStart.length;
+    }
+
+    /** 前缀树的构建器，非线程安全 */
+    public static final class Builder {
+        private final int topN;
+        private final Node root = new Node();
+        private final List<String> texts = new ArrayList<>();
+        private final List<Long> weights = new ArrayList<>();
+        /** 相同文本的候选只保留一条，权重取较大者 */
+        private final Map<String, Integer> textIndex = new HashMap<>();
+        private int nodeCount = 1;
+
+        /** @param topN 每个节点保留的候选数 */
+        public Builder(int topN) {
+            this.topN = topN;
+        }
+
+        /**
+         * 添加一条候选
+         * @param text 候选文本（展示给用户）
+         * @param weight 权重，越大越靠前
+         * @param keys 可以匹配该候选的若干个已归一化的key（原文、拼音、拼音首字母等）
+         */
+        public Builder add(String text, long weight, String... keys) {
+            Integer index = textIndex.get(text);
+            if (index == null) {
+                index = texts.size();
+                textIndex.put(text, index);
+                texts.add(text);
+                weights.add(weight);
+            } else if (weights.get(index) < weight) {
+                weights.set(index, weight);
+            }
+            for (String key : keys) {
+                if (key == null || key.isEmpty()) {
+                    continue;
+                }
+                Node node = root;
+                for (int i = 0; i < key.length(); i++) {
+                    Node child = node.children.get(key.charAt(i));
+                    if (child == null) {
+                        child = new Node();
+                        node.children.put(key.charAt(i), child);
+                        nodeCount++;
+                    }
+                    node = child;
+                }
+                if (!node.terminals.contains(index)) {
+                    node.terminals.add(index);
+                }
+            }
+            return this;
+        }
+
+        public SuggestTrie build() {
+            int[] childStart = new int[nodeCount];
+            int[] childCount = new int[nodeCount];
+            char[] childLabels = new char[nodeCount - 1];
+            int[] childNodes = new int[nodeCount - 1];
+            int[] topStart = new int[nodeCount];
+            int[] topCount = new int[nodeCount];
+            int[] tops = new int[0];
+            int topSize = 0;
+
+            // 按层次顺序编号，每个节点的子节点在数组中连续存放
+            List<Node> order = new ArrayList<>(nodeCount);
+            order.add(root);
+            int next = 1;
+            for (int id = 0; id < order.size(); id++) {
+                Node node = order.get(id);
+                childStart[id] = next - 1;
+                childCount[id] = node.children.size();
+                for (Map.Entry<Character, Node> e : node.children.entrySet()) {
+                    childLabels[next - 1] = e.getKey();
+                    childNodes[next - 1] = next;
+                    order.add(e.getValue());
+                    next++;
+                }
+            }
+            // 自底向上合并子节点的候选
+            for (int id = order.size() - 1; id >= 0; id--) {
+                Node node = order.get(id);
+                List<Integer> candidates = new ArrayList<>(node.terminals);
+                for (Node child : node.children.values()) {
+                    for (int c : child.top) {
+                        if (!candidates.contains(c)) {
+                            candidates.add(c);
+                        }
+                    }
+                }
+                candidates.sort((a, b) -> {
+                    int cmp = Long.compare(weights.get(b), weights.get(a));
+                    return cmp != 0 ? cmp : Integer.compare(texts.get(a).length(), texts.get(b).length());
+                });
+                int n = Math.min(topN, candidates.size());
+                node.top = new int[n];
+                for (int i = 0; i < n; i++) {
+                    node.top[i] = candidates.get(i);
+                }
+                topCount[id] = n;
+            }
+            for (int id = 0; id < order.size(); id++) {
+                int[] top = order.get(id).top;
+                if (topSize + top.length > tops.length) {
+                    tops = Arrays.copyOf(tops, Math.max(tops.length * 2, topSize + top.length));
+                }
+                topStart[id] = topSize;
+                System.arraycopy(top, 0, tops, topSize, top.length);
+                topSize += top.length;
+            }
+            return new SuggestTrie(childStart, childCount, childLabels, childNodes,
+                    topStart, topCount, Arrays.copyOf(tops, topSize), texts.toArray(new String[0]));
+        }
+
+        private static final class Node {
+            final TreeMap<Character, Node> children = new TreeMap<>();
+            final List<Integer> terminals = new ArrayList<>(1);
+            int[] top;
+        }
+    }
+}
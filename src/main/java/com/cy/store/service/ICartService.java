@@ -1,5 +1,6 @@
 package com.cy.store.service;
 
+import com.cy.store.vo.CartOperation;
 import com.cy.store.vo.CartVO;
 
 import java.util.List;
@@ -27,4 +28,19 @@ public interface ICartService {
     Integer reduceNum(Integer cid, Integer uid, String username);
 
     List<CartVO> getVOByCid(Integer uid,Integer[] cids);
+
+    /**
+     * 批量修改用户的购物车，全部操作在一个事务中生效
+     * @param uid 用户id
+     * @param operations 操作列表，见CartOperation
+     * @param username 修改者
+     * @return 修改后用户的全部购物车数据
+     */
+    List<CartVO> batchUpdate(Integer uid, List<CartOperation> operations, String username);
+
+    /**
+     * 将用户购物车在内存中的修改立即写入数据库，下单前调用
+     * @param uid 用户id
+     */
+    void flush(Integer uid);
 }
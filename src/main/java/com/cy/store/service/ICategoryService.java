@@ -0,0 +1,15 @@
+package com.cy.store.service;
+
+import com.cy.store.cache.CategoryTree;
+
+/** 商品分类的业务层接口 */
+public interface ICategoryService {
+    /**
+     * 获取完整的商品分类树
+     * @return 当前的分类树快照，包含用于条件GET的ETag
+     */
+    CategoryTree getTree();
+
+    /** 重新加载分类表，加载完成后原子地替换旧的分类树 */
+    void reload();
+}
@@ -1,7 +1,37 @@
 package com.cy.store.service;
 
 import com.cy.store.entity.Order;
+import com.cy.store.vo.OrderTicketVO;
 
 public interface IOrderService {
     Order create(Integer aid, Integer uid, String username, Integer[] cids);
+
+    /**
+     * 秒杀抢购一件商品：库存在内存中扣减，订单异步写入数据库
+     * @param aid 收货地址id
+     * @param uid 用户id
+     * @param username 用户名
+     * @param pid 秒杀商品id
+     * @return 订单数据，oid已生成，订单写入数据库前可能查询不到
+     */
+    Order flashSale(Integer aid, Integer uid, String username, Integer pid);
+
+    /**
+     * 异步下单：校验并组装订单后放入队列，由写入线程批量写入数据库
+     * 队列已满时在当前线程中同步写入
+     * @param aid 收货地址id
+     * @param uid 用户id
+     * @param username 用户名
+     * @param cids 购物车数据id
+     * @return 下单凭证，用getTicket查询结果
+     */
+    OrderTicketVO submit(Integer aid, Integer uid, String username, Integer[] cids);
+
+    /**
+     * 查询异步下单的结果
+     * @param uid 用户id
+     * @param token 下单凭证
+     * @return 凭证的当前状态
+     */
+    OrderTicketVO getTicket(Integer uid, String token);
 }
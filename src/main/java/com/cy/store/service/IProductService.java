@@ -1,16 +1,99 @@
 package com.cy.store.service;
 
 import com.cy.store.entity.Product;
+import com.cy.store.vo.CursorPageVO;
+import com.cy.store.vo.FacetPageVO;
+import com.cy.store.vo.PageVO;
 
 import java.util.List;
+import java.util.Map;
 
 public interface IProductService {
     List<Product> findHotList();
 
+    /**
+     * 获取序列化好的热销商品响应体，请求时无需再经过Jackson
+     * @return JsonResult格式的JSON字节
+     */
+    byte[] findHotListJson();
+
     /**
      * 根据商品id查询商品详情
      * @param id 商品id
      * @return 匹配的商品详情
      */
     Product findById(Integer id);
+
+    /**
+     * 记录一次商品浏览：累加浏览次数，登录用户同时记入最近浏览
+     * @param uid 用户id，未登录时为null
+     * @param pid 商品id
+     */
+    void recordView(Integer uid, Integer pid);
+
+    /**
+     * 用户最近浏览的商品
+     * @param uid 用户id
+     * @return 最近浏览的在前，已不存在的商品跳过
+     */
+    List<Product> findRecentViews(Integer uid);
+
+    /**
+     * 根据多个商品id批量查询商品详情
+     * @param ids 商品id，最多100个，超出时抛出BatchSizeLimitException
+     * @return 存在的商品，按ids中的顺序排列
+     */
+    List<Product> findByIds(List<Integer> ids);
+
+    /**
+     * 买了该商品的用户还买了哪些商品
+     * @param id 商品id
+     * @param limit 返回的最大条数
+     * @return 按共同购买次数排列的上架商品
+     */
+    List<Product> findAlsoBought(Integer id, Integer limit);
+
+    /**
+     * 标题、卖点相似的商品，适用于没有购买记录的商品
+     * @param id 商品id
+     * @param limit 返回的最大条数
+     * @return 按相似度排列的上架商品
+     */
+    List<Product> findSimilar(Integer id, Integer limit);
+
+    /**
+     * 根据关键字检索上架的商品，按相关度排序
+     * @param keyword 关键字（匹配标题、卖点和商品系列）
+     * @param page 页码，从1开始
+     * @param size 每页条数
+     * @return 当前页的商品
+     */
+    PageVO<Product> search(String keyword, Integer page, Integer size);
+
+    /**
+     * 商品标题的输入联想
+     * @param prefix 用户输入的前缀，支持汉字、全拼和拼音首字母
+     * @param limit 返回的最大条数
+     * @return 按优先级排列的商品标题
+     */
+    List<String> suggest(String prefix, Integer limit);
+
+    /**
+     * 按分类、商品系列和价格区间筛选上架的商品，同时返回各分面取值的商品数
+     * @param filters 分面 -> 选中的取值，同一分面内为"或"，不同分面之间为"且"；状态条件被忽略，只查上架商品
+     * @param page 页码，从1开始
+     * @param size 每页条数
+     * @return 当前页的商品（按id升序）和分面计数
+     */
+    FacetPageVO<Product> facets(Map<String, List<String>> filters, Integer page, Integer size);
+
+    /**
+     * 按优先级从高到低列出某个分类下上架的商品（键集分页）
+     * @param categoryId 分类id
+     * @param lastPriority 上一页返回的nextPriority，查询第一页时为null
+     * @param lastId 上一页返回的nextId，查询第一页时为null
+     * @param size 每页条数
+     * @return 当前页的商品和下一页的起点
+     */
+    CursorPageVO<Product> findByCategory(Integer categoryId, Integer lastPriority, Integer lastId, Integer size);
 }
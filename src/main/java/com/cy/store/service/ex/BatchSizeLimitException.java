@@ -0,0 +1,24 @@
+package com.cy.store.service.ex;
+
+/** 批量操作的数据条数超出上限 */
+public class BatchSizeLimitException extends ServiceException{
+    public BatchSizeLimitException() {
+        super();
+    }
+
+    public BatchSizeLimitException(String message) {
+        super(message);
+    }
+
+    public BatchSizeLimitException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public BatchSizeLimitException(Throwable cause) {
+        super(cause);
+    }
+
+    public BatchSizeLimitException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,24 @@
+package com.cy.store.service.ex;
+
+/** 批量修改购物车的操作参数不合法 */
+public class CartOperationException extends ServiceException{
+    public CartOperationException() {
+        super();
+    }
+
+    public CartOperationException(String message) {
+        super(message);
+    }
+
+    public CartOperationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public CartOperationException(Throwable cause) {
+        super(cause);
+    }
+
+    public CartOperationException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,24 @@
+package com.cy.store.service.ex;
+
+/** 商品不在秒杀中，或用户已经抢购过 */
+public class FlashSaleException extends ServiceException{
+    public FlashSaleException() {
+        super();
+    }
+
+    public FlashSaleException(String message) {
+        super(message);
+    }
+
+    public FlashSaleException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public FlashSaleException(Throwable cause) {
+        super(cause);
+    }
+
+    public FlashSaleException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -0,0 +1,24 @@
+package com.cy.store.service.ex;
+
+/** 订单或下单凭证不存在 */
+public class OrderNotFoundException extends ServiceException{
+    public OrderNotFoundException() {
+        super();
+    }
+
+    public OrderNotFoundException(String message) {
+        super(message);
+    }
+
+    public OrderNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OrderNotFoundException(Throwable cause) {
+        super(cause);
+    }
+
+    public OrderNotFoundException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
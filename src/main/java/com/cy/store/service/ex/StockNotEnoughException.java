@@ -0,0 +1,24 @@
+package com.cy.store.service.ex;
+
+/** 下单时商品库存不足 */
+public class StockNotEnoughException extends ServiceException{
+    public StockNotEnoughException() {
+        super();
+    }
+
+    public StockNotEnoughException(String message) {
+        super(message);
+    }
+
+    public StockNotEnoughException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public StockNotEnoughException(Throwable cause) {
+        super(cause);
+    }
+
+    public StockNotEnoughException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
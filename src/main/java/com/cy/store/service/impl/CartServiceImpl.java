@@ -1,128 +1,288 @@
 package com.cy.store.service.impl;
 
+import com.cy.store.cache.CartCache;
+import com.cy.store.cache.ProductCache;
 import com.cy.store.entity.Cart;
 import com.cy.store.entity.Product;
 import com.cy.store.mapper.CartMapper;
-import com.cy.store.mapper.ProductMapper;
 import com.cy.store.service.ICartService;
 import com.cy.store.service.ex.AccessDeniedException;
 import com.cy.store.service.ex.CartNotFoundException;
+import com.cy.store.service.ex.CartOperationException;
 import com.cy.store.service.ex.InsertException;
+import com.cy.store.service.ex.ProductNotFoundException;
+import com.cy.store.service.ex.ServiceException;
 import com.cy.store.service.ex.UpdateException;
+import com.cy.store.vo.CartOperation;
 import com.cy.store.vo.CartVO;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CartServiceImpl implements ICartService {
-    /** 购物车的业务层依赖于其持久层和商品的持久层 */
+    /** 购物车的业务层依赖于其持久层、内存购物车和商品缓存 */
     @Autowired
     private CartMapper cartMapper;
     @Autowired
-    private ProductMapper productMapper;
+    private CartCache cartCache;
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** 批处理模式的会话：同一事务中的语句在flushStatements()时一次发送 */
+    private SqlSessionTemplate batchSqlSession;
+    private CartMapper batchCartMapper;
+
+    /** 批量修改时一次最多的操作数 */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    @PostConstruct
+    public void init() {
+        batchSqlSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        batchCartMapper = batchSqlSession.getMapper(CartMapper.class);
+    }
 
     @Override
     public void addToCArt(Integer uid, Integer pid, Integer amount, String username) {
-        // 查询当前要添加的购物车数据是否在表中已存在
-        Cart result = cartMapper.findByUidAndPid(uid,pid);
-        Date date = new Date();
-        if (result == null) { // 这个商品未被添加到购物车中,则进行新增操作
-            // 创建一个cart对象
+        if (amount == null || amount < 1) {
+            throw new CartOperationException("商品数量至少为1");
+        }
+        // 加入时的单价来自商品缓存
+        Product product = productCache.get(pid);
+        if (product == null) {
+            throw new ProductNotFoundException("尝试访问的商品数据不存在");
+        }
+        // 商品已在购物车中时只在内存中累加数量，稍后批量写入；否则插入新数据
+        cartCache.addByPid(uid, pid, amount, username, () -> {
+            Date date = new Date();
             Cart cart = new Cart();
-            /* 补全对象数据：参数传递的数据 */
             cart.setUid(uid);
             cart.setPid(pid);
-            cart.setNum(amount);    // 总数从前端获取
-            // 补全价格：来自商品中的数据
-            Product product = productMapper.findById(pid);
-            cart.setPrice( product.getPrice() );
-            // 补全4个日志
+            cart.setNum(amount);    // 新增数量从前端获取
+            cart.setPrice(product.getPrice());
             cart.setCreatedUser(username);
             cart.setCreatedTime(date);
             cart.setModifiedUser(username);
             cart.setModifiedTime(date);
-
-            // 执行数据插入操作
-            Integer rows = cartMapper.insert(cart);
-            if (rows != 1) {
+            // 由一条语句原子地插入或累加数量
+            Integer rows = cartMapper.upsert(cart);
+            if (rows == null || rows < 1) {
                 throw new InsertException("插入数据时产生未知的异常");
             }
-        }else {    // 表示当前的商品在购物车中已经存在，则更新这条数据的num值
-            // 进行原有数据和现有传递的数据相加操作（前端、后端业务层皆可）
-            Integer num = result.getNum() + amount;
-            Integer rows = cartMapper.updateNumByCid(
-                    result.getCid(),
-                    num,
-                    username,
-                    date
-            );
-            if (rows != 1) {
-                throw new InsertException("更新数据时产生未知的异常");
-            }
-        }
+            // 数据库中已有这条数据（内存购物车加载后由其他途径插入），数量已被累加，重新查询
+            return rows == 1 ? cart : cartMapper.findByUidAndPid(uid, pid);
+        });
     }
 
     @Override
     public List<CartVO> getVOByUid(Integer uid) {
-        return cartMapper.findVOByUid(uid);
+        return toVO(cartCache.getCarts(uid));
     }
 
     @Override
     public Integer addNum(Integer cid, Integer uid, String username) {
-        Cart result = cartMapper.findByCid(cid);
-        if (result == null) {
-            throw new CartNotFoundException("数据不存在");
-        }
-        // 修正：验证当前用户的 UID 是否与购物车记录的 UID 一致
-        if( !result.getUid().equals(uid) ){
-            throw new AccessDeniedException("数据非法访问");
-        }
-        Integer num = result.getNum() + 1;
-        Integer rows = cartMapper.updateNumByCid(cid,num,username,new Date());
-        if (rows != 1) {
-            throw new UpdateException("更新数据失败");
+        Integer num = cartCache.addNumByCid(uid, cid, 1, username);
+        if (num == null) {
+            throw notUpdated(cid);
         }
         // 返回新的购物车数据的总量
         return num;
     }
+
     @Override
     public Integer reduceNum(Integer cid, Integer uid, String username) {
-        // 查询购物车项
-        Cart cart = cartMapper.findByCid(cid);
-        if (cart == null) {
-            throw new CartNotFoundException("购物车数据不存在");
-        }
-        // 校验用户权限
-        if (!cart.getUid().equals(uid)) {
-            throw new AccessDeniedException("非法访问他人购物车");
+        // 数量最少为1
+        Integer num = cartCache.addNumByCid(uid, cid, -1, username);
+        if (num == null) {
+            throw notUpdated(cid);
         }
-        // 确保数量不小于 1
-        int newNum = Math.max(1, cart.getNum() - 1);
-        // 更新数量
-        int rows = cartMapper.updateNumByCid(cid, newNum, username, new Date());
-        if (rows != 1) {
-            throw new UpdateException("更新数量失败");
-        }
-        return newNum;
+        return num;
     }
 
     @Override
     public List<CartVO> getVOByCid(Integer uid, Integer[] cids) {
-        // 检测是否正常拿到数据
-        List<CartVO> list = cartMapper.findVOByCid(cids);
-        Iterator<CartVO> it = list.iterator();
-        while (it.hasNext()){
-            CartVO cartVO = it.next();
-            if (!cartVO.getUid().equals(uid)) { // 表示选中数据不属于当前的用户
-                // 从集合中移除这个元素
-                list.remove(cartVO);
+        if (cids == null || cids.length == 0) {
+            return new ArrayList<>();
+        }
+        // 先写入内存中的修改，再查询数据库中的最新数据和商品单价
+        cartCache.flush(uid);
+        // 不属于当前用户的数据在查询时已被过滤
+        return cartMapper.findVOByUidAndCids(uid, cids);
+    }
+
+    @Override
+    public void flush(Integer uid) {
+        cartCache.flush(uid);
+    }
+
+    @Override
+    public List<CartVO> batchUpdate(Integer uid, List<CartOperation> operations, String username) {
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_SIZE) {
+            throw new CartOperationException("一次最多修改" + MAX_BATCH_SIZE + "项");
+        }
+        // 先写入内存中的修改，之后的变化量相对于数据库中的数量计算
+        cartCache.flush(uid);
+        Map<Integer, Cart> byCid = new HashMap<>();
+        Map<Integer, Cart> byPid = new HashMap<>();
+        Map<Integer, Integer> before = new HashMap<>();
+        for (Cart cart : cartCache.getCarts(uid)) {
+            byCid.put(cart.getCid(), cart);
+            byPid.put(cart.getPid(), cart);
+            before.put(cart.getCid(), cart.getNum());
+        }
+        // 先在副本上执行全部操作，任何一项不合法时整批不生效
+        Map<Integer, Cart> changed = new LinkedHashMap<>();
+        List<Cart> inserted = new ArrayList<>();
+        for (CartOperation op : operations) {
+            if (isSetNum(op)) {
+                Cart cart = byCid.get(op.getCid());
+                if (cart == null) {
+                    throw notUpdated(op.getCid());
+                }
+                if (op.getNum() < 1) {
+                    throw new CartOperationException("商品数量至少为1");
+                }
+                cart.setNum(op.getNum());
+                changed.put(cart.getCid(), cart);
+            } else if (isAddDelta(op)) {
+                Cart cart = byPid.get(op.getPid());
+                if (cart != null) {
+                    // 数量最少为1
+                    cart.setNum(Math.max(1, cart.getNum() + op.getDelta()));
+                    if (cart.getCid() != null) {
+                        changed.put(cart.getCid(), cart);
+                    }
+                    continue;
+                }
+                if (op.getDelta() < 1) {
+                    throw new CartOperationException("新加入购物车的商品数量至少为1");
+                }
+                Product product = productCache.get(op.getPid());
+                if (product == null) {
+                    throw new ProductNotFoundException("尝试访问的商品数据不存在");
+                }
+                cart = new Cart();
+                cart.setUid(uid);
+                cart.setPid(op.getPid());
+                cart.setNum(op.getDelta());
+                cart.setPrice(product.getPrice());
+                cart.setCreatedUser(username);
+                byPid.put(op.getPid(), cart);
+                inserted.add(cart);
+            } else {
+                throw new CartOperationException("每项操作只能是{cid, num}或{pid, delta}");
+            }
+        }
+        write(changed.values(), before, inserted, username);
+        // 提交后重新查询，得到包括其他途径修改在内的最新数量
+        return toVO(cartCache.reload(uid));
+    }
+
+    /**
+     * 在一个事务中用JDBC批处理写入修改和新增的购物车数据，整批只有一次提交
+     * 修改的数据写入变化量（与内存购物车的写入相同），不覆盖其他实例或其他途径同时写入的数量
+     * @param before 修改前的数量：cid -> 数量
+     */
+    private void write(Collection<Cart> changed, Map<Integer, Integer> before, List<Cart> inserted, String username) {
+        Date date = new Date();
+        List<Cart> deltas = new ArrayList<>(changed.size());
+        for (Cart cart : changed) {
+            int delta = cart.getNum() - before.get(cart.getCid());
+            if (delta == 0) {
+                continue;
             }
+            Cart data = new Cart();
+            data.setCid(cart.getCid());
+            data.setNum(delta);
+            data.setModifiedUser(username);
+            data.setModifiedTime(date);
+            deltas.add(data);
         }
+        for (Cart cart : inserted) {
+            cart.setCreatedTime(date);
+            cart.setModifiedUser(username);
+            cart.setModifiedTime(date);
+        }
+        if (deltas.isEmpty() && inserted.isEmpty()) {
+            return;
+        }
+        transactionTemplate.execute(status -> {
+            if (!deltas.isEmpty()) {
+                batchCartMapper.updateNums(deltas);
+            }
+            for (Cart cart : inserted) {
+                batchCartMapper.upsert(cart);
+            }
+            for (BatchResult result : batchSqlSession.flushStatements()) {
+                int[] counts = result.getUpdateCounts();
+                for (int i = 0; i < counts.length; i++) {
+                    // updateNums一条语句修改全部数据，upsert每条语句插入或累加一条数据
+                    int expected = result.getParameterObjects().get(i) instanceof Cart ? 1 : deltas.size();
+                    if (counts[i] < expected) {
+                        throw new UpdateException("更新数据失败");
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static boolean isSetNum(CartOperation op) {
+        return op.getCid() != null && op.getNum() != null && op.getPid() == null && op.getDelta() == null;
+    }
+
+    private static boolean isAddDelta(CartOperation op) {
+        return op.getPid() != null && op.getDelta() != null && op.getCid() == null && op.getNum() == null;
+    }
 
+    /** 将购物车数据补全商品标题、图片和当前单价，商品数据来自商品缓存 */
+    private List<CartVO> toVO(List<Cart> carts) {
+        List<Integer> pids = new ArrayList<>(carts.size());
+        for (Cart cart : carts) {
+            pids.add(cart.getPid());
+        }
+        Map<Integer, Product> products = productCache.getAll(pids);
+        List<CartVO> list = new ArrayList<>(carts.size());
+        for (Cart cart : carts) {
+            CartVO vo = new CartVO();
+            vo.setCid(cart.getCid());
+            vo.setUid(cart.getUid());
+            vo.setPid(cart.getPid());
+            vo.setPrice(cart.getPrice());
+            vo.setNum(cart.getNum());
+            Product product = products.get(cart.getPid());
+            if (product != null) {
+                vo.setTitle(product.getTitle());
+                vo.setImage(product.getImage());
+                vo.setRealPrice(product.getPrice());
+            }
+            list.add(vo);
+        }
         return list;
     }
+
+    /** 修改数量没有匹配到数据时，查询原因：数据不存在或属于其他用户 */
+    private ServiceException notUpdated(Integer cid) {
+        if (cartMapper.findByCid(cid) == null) {
+            return new CartNotFoundException("购物车数据不存在");
+        }
+        return new AccessDeniedException("数据非法访问");
+    }
 }
@@ -0,0 +1,63 @@
+package com.cy.store.service.impl;
+
+import com.cy.store.cache.CategoryTree;
+import com.cy.store.cache.WarmUp;
+import com.cy.store.entity.Category;
+import com.cy.store.mapper.CategoryMapper;
+import com.cy.store.service.ICategoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+@Service
+public class CategoryServiceImpl implements ICategoryService {
+    @Autowired
+    private CategoryMapper categoryMapper;
+
+    /** 分类树的内存快照，重新加载时整体替换 */
+    private volatile CategoryTree tree = CategoryTree.EMPTY;
+
+    /** 启动时构建分类树，数据库不可用时延迟到第一次访问再构建 */
+    @PostConstruct
+    public void init() {
+        WarmUp.run("商品分类树", this::reload);
+    }
+
+    @Override
+    public CategoryTree getTree() {
+        CategoryTree current = tree;
+        if (current.getVersion() == null) {
+            synchronized (this) {
+                if (tree.getVersion() == null) {
+                    reload();
+                }
+                current = tree;
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public synchronized void reload() {
+        String version = categoryMapper.findVersion();
+        List<Category> all = categoryMapper.findAll();
+        tree = CategoryTree.build(all, version);
+    }
+
+    /** 定时检查分类表的数据版本，发生变化时重新构建 */
+    @Scheduled(initialDelayString = "${category.refresh-interval}",
+            fixedDelayString = "${category.refresh-interval}")
+    public void refreshIfChanged() {
+        try {
+            String version = categoryMapper.findVersion();
+            if (version != null && !version.equals(tree.getVersion())) {
+                reload();
+            }
+        } catch (RuntimeException e) {
+            System.out.println("商品分类树刷新失败：" + e.getMessage());
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.cy.store.service.impl;
 
+import com.cy.store.cache.DistrictDictionary;
+import com.cy.store.cache.WarmUp;
 import com.cy.store.entity.District;
 import com.cy.store.mapper.DistrictMapper;
 import com.cy.store.service.IDistrictService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.util.List;
 
 @Service
@@ -13,19 +17,57 @@ public class DistrictServiceImpl implements IDistrictService {
     @Autowired
     private DistrictMapper districtMapper;
 
+    /** 省市区字典的内存快照，重新加载时整体替换 */
+    private volatile DistrictDictionary dictionary = DistrictDictionary.EMPTY;
+
+    /** 启动时将整张字典表加载到内存，数据库不可用时延迟到第一次访问再加载 */
+    @PostConstruct
+    public void init() {
+        WarmUp.run("省市区字典", this::reload);
+    }
+
     @Override
     public List<District> getByParent(String parent) {
-        List<District> list = districtMapper.findByParent(parent);
-        // 再进行网络数据传输时，为了尽量避免无效数据的传递，可以将其设置null
-        for (District d : list) {
-            d.setId(null);
-            d.setParent(null);
-        }
-        return list;
+        // 字典中的数据在构建时已去掉了id和parent，避免无效数据的传递
+        return currentDictionary().getChildren(parent);
     }
 
     @Override
     public String getNameByCode(String code){
-        return districtMapper.findNameByCode(code);
+        return currentDictionary().getName(code);
+    }
+
+    /** 重新加载整张字典表，加载完成后原子地替换旧快照 */
+    public synchronized void reload() {
+        String version = districtMapper.findVersion();
+        List<District> all = districtMapper.findAll();
+        dictionary = DistrictDictionary.build(all, version);
+    }
+
+    /** 定时检查字典表的数据版本，发生变化时重新加载 */
+    @Scheduled(initialDelayString = "${district.refresh-interval}",
+            fixedDelayString = "${district.refresh-interval}")
+    public void refreshIfChanged() {
+        try {
+            String version = districtMapper.findVersion();
+            if (version != null && !version.equals(dictionary.getVersion())) {
+                reload();
+            }
+        } catch (RuntimeException e) {
+            System.out.println("省市区字典刷新失败：" + e.getMessage());
+        }
+    }
+
+    private DistrictDictionary currentDictionary() {
+        DistrictDictionary current = dictionary;
+        if (current.getVersion() == null) {
+            synchronized (this) {
+                if (dictionary.getVersion() == null) {
+                    reload();
+                }
+                current = dictionary;
+            }
+        }
+        return current;
     }
 }
@@ -1,41 +1,223 @@
 package com.cy.store.service.impl;
 
+import com.cy.store.cache.ProductCache;
 import com.cy.store.entity.Address;
 import com.cy.store.entity.Order;
 import com.cy.store.entity.OrderItem;
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
 import com.cy.store.mapper.OrderMapper;
+import com.cy.store.mapper.ProductMapper;
+import com.cy.store.order.OrderIntake;
+import com.cy.store.rank.AlsoBoughtIndex;
+import com.cy.store.rank.SalesRanking;
+import com.cy.store.sale.FlashSaleOrderWriter;
+import com.cy.store.sale.FlashSaleStock;
 import com.cy.store.service.IAddressService;
 import com.cy.store.service.ICartService;
 import com.cy.store.service.IOrderService;
+import com.cy.store.service.ex.CartNotFoundException;
+import com.cy.store.service.ex.CartOperationException;
+import com.cy.store.service.ex.FlashSaleException;
 import com.cy.store.service.ex.InsertException;
+import com.cy.store.service.ex.OrderNotFoundException;
+import com.cy.store.service.ex.ProductNotFoundException;
+import com.cy.store.service.ex.StockNotEnoughException;
+import com.cy.store.util.IdGenerator;
 import com.cy.store.vo.CartVO;
+import com.cy.store.vo.OrderTicketVO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 public class OrderServiceImple implements IOrderService {
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
+    private ProductMapper productMapper;
+    @Autowired
     private IAddressService addressService;
     @Autowired
     private ICartService cartService;
+    @Autowired
+    private SalesRanking salesRanking;
+    @Autowired
+    private AlsoBoughtIndex alsoBoughtIndex;
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private FlashSaleStock flashSaleStock;
+    @Autowired
+    private FlashSaleOrderWriter flashSaleOrderWriter;
+    @Autowired
+    private OrderIntake orderIntake;
+    @Autowired
+    private IdGenerator idGenerator;
+    @Autowired
+    private ApplicationEventPublisher publisher;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     @Override
     public Order create(Integer aid, Integer uid, String username, Integer[] cids) {
+        // getVOByCid查询前会先将该用户购物车在内存中的修改写入数据库，因此需在订单的事务之外调用，
+        // 否则购物车的写入会随订单事务回滚，且持有该用户的购物车写入锁等待订单事务
         /* 即将要下单的列表 */
         List<CartVO> list = cartService.getVOByCid(uid,cids);
+        if (list.isEmpty()) {
+            throw new CartNotFoundException("购物车数据不存在");
+        }
+        Address address = addressService.getByAid(aid,uid);
+
+        // 扣减库存、订单和全部订单项在一个事务中写入，任何一步失败都整体回滚
+        return transactionTemplate.execute(status -> insert(address, uid, username, list));
+    }
+
+    /** 扣减库存并插入订单，在订单的事务中执行 */
+    private Order insert(Address address, Integer uid, String username, List<CartVO> list) {
         // 计算商品总价
+        Long totalPrice = totalPrice(list);
+
+        // 按商品id升序扣减库存：并发的订单以相同顺序锁定商品行，不会互相死锁
+        Map<Integer, Integer> amounts = new TreeMap<>();
+        for( CartVO c:list ){
+            amounts.merge(c.getPid(), c.getNum(), Integer::sum);
+        }
+        for (Map.Entry<Integer, Integer> e : amounts.entrySet()) {
+            if (productMapper.decreaseNum(e.getKey(), e.getValue()) != 1) {
+                throw new StockNotEnoughException("商品库存不足");
+            }
+        }
+
+        Date now = new Date();
+        Order order = newOrder(address, uid, username, totalPrice, now);
+        List<OrderItem> items = newItems(order, list, username, now);
+        // id已事先生成，订单和全部订单项各用一条语句写入
+        if (orderMapper.insertOrders(Collections.singletonList(order)) != 1
+                || orderMapper.insertOrderItems(items) != items.size()) {
+            throw new InsertException("插入数据异常");
+        }
+
+        // 事务提交后再更新实时销量排行和共同购买数据，回滚的订单不计入；缓存中的库存随之失效
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                List<Integer> pids = new ArrayList<>();
+                for( CartVO c:list ){
+                    salesRanking.record(c.getPid(), c.getNum());
+                    pids.add(c.getPid());
+                }
+                alsoBoughtIndex.record(pids);
+                publisher.publishEvent(ProductChangedEvent.stock(OrderServiceImple.this, amounts.keySet()));
+            }
+        });
+
+        return order;
+    }
+
+    @Override
+    public Order flashSale(Integer aid, Integer uid, String username, Integer pid) {
+        // 已售罄时不查询数据库，直接拒绝
+        if (flashSaleStock.isSoldOut(pid)) {
+            throw new StockNotEnoughException("商品已售罄");
+        }
+        Product product = productCache.get(pid);
+        if (product == null) {
+            throw new ProductNotFoundException("商品数据不存在");
+        }
+        Address address = addressService.getByAid(aid,uid);
+
+        switch (flashSaleStock.tryAcquire(pid, uid)) {
+            case ADMITTED:
+                break;
+            case SOLD_OUT:
+                throw new StockNotEnoughException("商品已售罄");
+            case REPEATED:
+                throw new FlashSaleException("每个用户限购一件");
+            default:
+                throw new FlashSaleException("商品不在秒杀中");
+        }
+
+        // 库存已在内存中扣减，订单异步写入数据库；提交之前出错时退回库存，该用户可以重新抢购
+        try {
+            Date now = new Date();
+            Order order = newOrder(address, uid, username, product.getPrice(), now);
+
+            OrderItem orderItem = new OrderItem();
+            orderItem.setId(idGenerator.nextId());
+            orderItem.setOid(order.getOid());
+            orderItem.setPid(pid);
+            orderItem.setTitle(product.getTitle());
+            orderItem.setImage(product.getImage());
+            orderItem.setPrice(product.getPrice());
+            orderItem.setNum(1);
+            orderItem.setCreatedUser(username);
+            orderItem.setCreatedTime(now);
+            orderItem.setModifiedUser(username);
+            orderItem.setModifiedTime(now);
+            flashSaleOrderWriter.submit(order, orderItem);
+            return order;
+        } catch (RuntimeException e) {
+            try {
+                flashSaleStock.release(pid, uid);
+            } catch (RuntimeException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public OrderTicketVO submit(Integer aid, Integer uid, String username, Integer[] cids) {
+        // 校验和组装在请求线程中完成，只有写入交给写入线程
+        List<CartVO> list = cartService.getVOByCid(uid,cids);
+        if (list.isEmpty()) {
+            throw new CartNotFoundException("购物车数据不存在");
+        }
+        Long totalPrice = totalPrice(list);
+        Address address = addressService.getByAid(aid,uid);
+
+        Date now = new Date();
+        Order order = newOrder(address, uid, username, totalPrice, now);
+        return orderIntake.submit(uid, order, newItems(order, list, username, now));
+    }
+
+    @Override
+    public OrderTicketVO getTicket(Integer uid, String token) {
+        OrderTicketVO ticket = orderIntake.getTicket(uid, token);
+        if (ticket == null) {
+            throw new OrderNotFoundException("订单凭证不存在或已过期");
+        }
+        return ticket;
+    }
+
+    /** 计算商品总价，数量不合法的购物车数据不能下单 */
+    private static Long totalPrice(List<CartVO> list) {
         Long totalPrice = 0L;
         for( CartVO c:list ){
+            if (c.getNum() == null || c.getNum() < 1) {
+                throw new CartOperationException("商品数量至少为1");
+            }
             totalPrice += c.getRealPrice() * c.getNum();
         }
+        return totalPrice;
+    }
 
-        Address address = addressService.getByAid(aid,uid);
+    /** 根据收货地址组装订单数据，oid在写入之前生成 */
+    private Order newOrder(Address address, Integer uid, String username, Long totalPrice, Date now) {
         Order order = new Order();
+        order.setOid(idGenerator.nextId());
         order.setUid(uid);
 
         // 收货地址数据
@@ -48,24 +230,23 @@ public class OrderServiceImple implements IOrderService {
         // 支付、总价、提交时间
         order.setStatus(0);
         order.setTotalPrice(totalPrice);
-        order.setOrderTime(new Date());
+        order.setOrderTime(now);
         // 日志
         order.setCreatedUser(username);
-        order.setCreatedTime(new Date());
+        order.setCreatedTime(now);
         order.setModifiedUser(username);
-        order.setModifiedTime(new Date());
-
-        // 查询数据
-        Integer rows = orderMapper.insertOrder(order);
-        if (rows != 1) {
-            throw new InsertException("插入数据异常");
-        }
+        order.setModifiedTime(now);
+        return order;
+    }
 
-        // 创建订单项的数据
+    /** 根据购物车数据组装订单的订单项 */
+    private List<OrderItem> newItems(Order order, List<CartVO> list, String username, Date now) {
+        List<OrderItem> items = new ArrayList<>(list.size());
         for( CartVO c:list ){
             // 创建订单项
             OrderItem orderItem = new OrderItem();
             // 补全数据
+            orderItem.setId(idGenerator.nextId());
             orderItem.setOid(order.getOid());
             orderItem.setPid(c.getPid());
             orderItem.setTitle(c.getTitle());
@@ -74,16 +255,11 @@ public class OrderServiceImple implements IOrderService {
             orderItem.setNum(c.getNum());
             // 日志字段
             orderItem.setCreatedUser(username);
-            orderItem.setCreatedTime(new Date());
+            orderItem.setCreatedTime(now);
             orderItem.setModifiedUser(username);
-            orderItem.setModifiedTime(new Date());
-            // 插入数据操作
-            orderMapper.insertOrderItem(orderItem);
-            if (rows != 1) {
-                throw new InsertException("插入数据异常");
-            }
+            orderItem.setModifiedTime(now);
+            items.add(orderItem);
         }
-
-        return order;
+        return items;
     }
 }
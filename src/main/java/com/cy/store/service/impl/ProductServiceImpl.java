@@ -1,49 +1,199 @@
 package com.cy.store.service.impl;
 
+import com.cy.store.cache.HotListCache;
+import com.cy.store.cache.ProductCache;
+import com.cy.store.cache.RecentlyViewed;
 import com.cy.store.entity.Product;
 import com.cy.store.mapper.ProductMapper;
+import com.cy.store.rank.AlsoBoughtIndex;
+import com.cy.store.rank.ProductViewCounter;
+import com.cy.store.search.FacetHits;
+import com.cy.store.search.ProductFacetIndex;
+import com.cy.store.search.ProductSearchIndex;
+import com.cy.store.search.ProductSuggester;
+import com.cy.store.search.SimilarTitleIndex;
+import com.cy.store.search.SearchHits;
 import com.cy.store.service.IProductService;
+import com.cy.store.service.ex.BatchSizeLimitException;
 import com.cy.store.service.ex.ProductNotFoundException;
+import com.cy.store.vo.CursorPageVO;
+import com.cy.store.vo.FacetPageVO;
+import com.cy.store.vo.PageVO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ProductServiceImpl implements IProductService {
     @Autowired
     private ProductMapper productMapper;
+    @Autowired
+    private HotListCache hotListCache;
+    @Autowired
+    private ProductCache productCache;
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+    @Autowired
+    private ProductSuggester productSuggester;
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    @Autowired
+    private AlsoBoughtIndex alsoBoughtIndex;
+    @Autowired
+    private SimilarTitleIndex similarTitleIndex;
+    @Autowired
+    private RecentlyViewed recentlyViewed;
+    @Autowired
+    private ProductViewCounter productViewCounter;
+
+    /** 检索时每页的最大条数 */
+    private static final int MAX_PAGE_SIZE = 50;
+    /** 批量查询时一次最多的商品数 */
+    private static final int MAX_BATCH_SIZE = 100;
+    /** 检索关键字的最大长度，超出部分忽略，避免超长关键字产生大量词项 */
+    private static final int MAX_KEYWORD_LENGTH = 50;
 
     @Override
     public List<Product> findHotList() {
-        List<Product> list = productMapper.findHotList();
-        //System.out.println("查询结果大小：" + list.size()); // 调试输出
+        // 热销列表由缓存在后台维护，冗余数据在加载时已过滤
+        return hotListCache.getList();
+    }
+
+    @Override
+    public byte[] findHotListJson() {
+        return hotListCache.getJson();
+    }
+
+    @Override
+    public Product findById(Integer id) {
+        // 先查商品缓存，未命中时再查询数据库；冗余属性在放入缓存时已设置为null
+        Product product = productCache.get(id);
+        // 判断查询结果是否为null
+        if (product == null) {
+            throw new ProductNotFoundException("尝试访问的商品数据不存在");
+        }
+        return product;
+    }
+
+    @Override
+    public void recordView(Integer uid, Integer pid) {
+        productViewCounter.record(pid);
+        recentlyViewed.record(uid, pid);
+    }
+
+    @Override
+    public List<Product> findRecentViews(Integer uid) {
+        int[] pids = recentlyViewed.get(uid);
+        List<Integer> ids = new ArrayList<>(pids.length);
+        for (int pid : pids) {
+            ids.add(pid);
+        }
+        return findCached(ids);
+    }
+
+    @Override
+    public List<Product> findByIds(List<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new BatchSizeLimitException("一次最多查询" + MAX_BATCH_SIZE + "个商品");
+        }
+        return findCached(ids);
+    }
+
+    @Override
+    public List<Product> findAlsoBought(Integer id, Integer limit) {
+        limit = (limit == null || limit < 1) ? 10 : Math.min(limit, MAX_PAGE_SIZE);
+        // 多取一些，跳过已下架的商品
+        List<Product> list = findCached(alsoBoughtIndex.find(id, limit * 2));
+        list.removeIf(product -> !Integer.valueOf(1).equals(product.getStatus()));
+        return list.size() > limit ? new ArrayList<>(list.subList(0, limit)) : list;
+    }
+
+    @Override
+    public List<Product> findSimilar(Integer id, Integer limit) {
+        limit = (limit == null || limit < 1) ? 10 : Math.min(limit, MAX_PAGE_SIZE);
+        Product product = findById(id);
+        List<Product> list = findCached(similarTitleIndex.find(product, limit * 2));
+        list.removeIf(p -> !Integer.valueOf(1).equals(p.getStatus()));
+        return list.size() > limit ? new ArrayList<>(list.subList(0, limit)) : list;
+    }
+
+    @Override
+    public PageVO<Product> search(String keyword, Integer page, Integer size) {
+        page = (page == null || page < 1) ? 1 : page;
+        size = (size == null || size < 1) ? 20 : Math.min(size, MAX_PAGE_SIZE);
+        if (keyword != null && keyword.length() > MAX_KEYWORD_LENGTH) {
+            keyword = keyword.substring(0, MAX_KEYWORD_LENGTH);
+        }
+        SearchHits hits = productSearchIndex.search(keyword, (page - 1) * size, size);
+        return new PageVO<>(page, size, hits.getTotal(), findCached(hits.getIds()));
+    }
+
+    @Override
+    public List<String> suggest(String prefix, Integer limit) {
+        limit = (limit == null || limit < 1) ? ProductSuggester.TOP_N : limit;
+        return productSuggester.suggest(prefix, limit);
+    }
+
+    @Override
+    public FacetPageVO<Product> facets(Map<String, List<String>> filters, Integer page, Integer size) {
+        page = (page == null || page < 1) ? 1 : page;
+        size = (size == null || size < 1) ? 20 : Math.min(size, MAX_PAGE_SIZE);
+        Map<String, List<String>> selected = new HashMap<>(filters);
+        // 只筛选上架的商品，调用方传入的状态条件不生效；状态的计数包含下架和已删除的商品，不返回
+        selected.put(ProductFacetIndex.STATUS, Collections.singletonList("1"));
+        FacetHits hits = productFacetIndex.query(selected, (page - 1) * size, size);
+        Map<String, Map<String, Integer>> counts = new LinkedHashMap<>(hits.getCounts());
+        counts.remove(ProductFacetIndex.STATUS);
+        return new FacetPageVO<>(page, size, hits.getTotal(), findCached(hits.getIds()), counts);
+    }
+
+    @Override
+    public CursorPageVO<Product> findByCategory(Integer categoryId, Integer lastPriority, Integer lastId, Integer size) {
+        size = (size == null || size < 1) ? 20 : Math.min(size, MAX_PAGE_SIZE);
+        if (lastPriority == null || lastId == null) {
+            lastPriority = null;
+            lastId = null;
+        }
+        // 多查一条，用来判断是否还有下一页
+        List<Product> list = productMapper.findByCategory(categoryId, lastPriority, lastId, size + 1);
+        Integer nextPriority = null;
+        Integer nextId = null;
+        if (list.size() > size) {
+            list = new ArrayList<>(list.subList(0, size));
+            Product last = list.get(size - 1);
+            nextPriority = last.getPriority();
+            nextId = last.getId();
+        }
+        // 将冗余数据设置为null，下一页的起点已经记录
         for (Product product : list) {
-            // 过滤冗余数据
             product.setPriority(null);
             product.setCreatedUser(null);
             product.setCreatedTime(null);
             product.setModifiedUser(null);
             product.setModifiedTime(null);
         }
-        return list;
+        return new CursorPageVO<>(size, list, nextPriority, nextId);
     }
 
-    @Override
-    public Product findById(Integer id) {
-        // 根据参数id调用私有方法执行查询，获取商品数据
-        Product product = productMapper.findById(id);
-        // 判断查询结果是否为null
-        if (product == null) {
-            throw new ProductNotFoundException("尝试访问的商品数据不存在");
+    /** 按顺序从缓存中批量获取商品详情，未命中的商品用一次查询加载，已不存在的商品跳过 */
+    private List<Product> findCached(List<Integer> ids) {
+        Map<Integer, Product> products = productCache.getAll(ids);
+        List<Product> list = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Product product = products.get(id);
+            if (product != null) {
+                list.add(product);
+            }
         }
-        // 将查询结果的部分属性设置为null
-        product.setPriority(null);
-        product.setCreatedUser(null);
-        product.setCreatedTime(null);
-        product.setModifiedUser(null);
-        product.setModifiedTime(null);
-
-        return product;
+        return list;
     }
 }
@@ -0,0 +1,59 @@
+package com.cy.store.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间递增的64位id生成器（snowflake），用于订单和订单项的主键
+ * 结构：1位符号（0） + 41位毫秒时间戳（从EPOCH起，约69年） + 10位节点号 + 12位序号
+ * 1.不同节点的节点号不同，生成的id不会重复，不需要访问数据库
+ * 2.时间戳和序号保存在一个AtomicLong中，用CAS递增，不加锁
+ * 3.同一毫秒的序号用完时借用下一毫秒；时钟回拨时沿用上次的时间继续递增，id不会重复也不会变小
+ */
+@Component
+public class IdGenerator {
+    /** 2024-01-01 00:00:00 UTC */
+    private static final long EPOCH = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    /** 上一个id的时间戳（高位）和序号（低12位） */
+    private final AtomicLong last = new AtomicLong();
+
+    public IdGenerator(@Value("${id-generator.node}") int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("节点号必须在0到" + MAX_NODE + "之间：" + node);
+        }
+        this.node = node;
+    }
+
+    /** @return 新的id，同一节点生成的id严格递增 */
+    public long nextId() {
+        while (true) {
+            long prev = last.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            // 序号溢出时进位到时间戳，即借用下一毫秒
+            long next = now > prev ? now : prev + 1;
+            if (last.compareAndSet(prev, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                        | node << SEQUENCE_BITS
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /** @return id中的时间戳（毫秒） */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    /** @return 生成id的节点号 */
+    public static int nodeOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE;
+    }
+}
@@ -0,0 +1,70 @@
+package com.cy.store.vo;
+
+import java.io.Serializable;
+
+/** 缓存命中情况的统计数据 */
+public class CacheStatsVO implements Serializable {
+    private Long hits;          // 命中次数
+    private Long misses;        // 未命中次数
+    private Long evictions;     // 因容量淘汰的条目数
+    private Integer size;       // 当前条目数
+
+    public CacheStatsVO() {
+    }
+
+    public CacheStatsVO(Long hits, Long misses, Long evictions, Integer size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    /** @return 命中率，尚无访问时为0 */
+    public Double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    // getter/setter
+    public Long getHits() {
+        return hits;
+    }
+
+    public void setHits(Long hits) {
+        this.hits = hits;
+    }
+
+    public Long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(Long misses) {
+        this.misses = misses;
+    }
+
+    public Long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(Long evictions) {
+        this.evictions = evictions;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatsVO{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                ", size=" + size +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package com.cy.store.vo;
+
+import java.io.Serializable;
+
+/**
+ * 批量修改购物车时的一项操作，二选一：
+ * 1.{cid, num}：将某条购物车数据的数量设为num
+ * 2.{pid, delta}：将某个商品的数量增减delta，购物车中没有该商品时加入
+ */
+public class CartOperation implements Serializable {
+    private Integer cid;
+    private Integer num;
+    private Integer pid;
+    private Integer delta;
+
+    public CartOperation() {
+    }
+
+    public CartOperation(Integer cid, Integer num, Integer pid, Integer delta) {
+        this.cid = cid;
+        this.num = num;
+        this.pid = pid;
+        this.delta = delta;
+    }
+
+    // getter/setter
+    public Integer getCid() {
+        return cid;
+    }
+
+    public void setCid(Integer cid) {
+        this.cid = cid;
+    }
+
+    public Integer getNum() {
+        return num;
+    }
+
+    public void setNum(Integer num) {
+        this.num = num;
+    }
+
+    public Integer getPid() {
+        return pid;
+    }
+
+    public void setPid(Integer pid) {
+        this.pid = pid;
+    }
+
+    public Integer getDelta() {
+        return delta;
+    }
+
+    public void setDelta(Integer delta) {
+        this.delta = delta;
+    }
+
+    @Override
+    public String toString() {
+        return "CartOperation{" +
+                "cid=" + cid +
+                ", num=" + num +
+                ", pid=" + pid +
+                ", delta=" + delta +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.cy.store.vo;
+
+import java.io.Serializable;
+import java.util.List;
+
+/** 分类树节点的VO类 */
+public class CategoryVO implements Serializable {
+    private Integer id;
+    private String name;
+    private List<CategoryVO> children;  // 子分类（按排序号），叶子分类为空列表
+
+    public CategoryVO() {
+    }
+
+    public CategoryVO(Integer id, String name, List<CategoryVO> children) {
+        this.id = id;
+        this.name = name;
+        this.children = children;
+    }
+
+    // getter/setter
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public List<CategoryVO> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<CategoryVO> children) {
+        this.children = children;
+    }
+
+    @Override
+    public String toString() {
+        return "CategoryVO{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", children=" + children +
+                '}';
+    }
+}
@@ -0,0 +1,65 @@
+package com.cy.store.vo;
+
+import java.io.Serializable;
+import java.util.List;
+
+/** 键集分页数据的VO类：下一页从(nextPriority, nextId)之后继续查询，两者为null表示没有下一页 */
+public class CursorPageVO<T> implements Serializable {
+    private Integer size;           // 每页条数
+    private List<T> list;           // 当前页的数据
+    private Integer nextPriority;   // 下一页的起点：本页最后一条数据的优先级
+    private Integer nextId;         // 下一页的起点：本页最后一条数据的id
+
+    public CursorPageVO() {
+    }
+
+    public CursorPageVO(Integer size, List<T> list, Integer nextPriority, Integer nextId) {
+        this.size = size;
+        this.list = list;
+        this.nextPriority = nextPriority;
+        this.nextId = nextId;
+    }
+
+    // getter/setter
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public List<T> getList() {
+        return list;
+    }
+
+    public void setList(List<T> list) {
+        this.list = list;
+    }
+
+    public Integer getNextPriority() {
+        return nextPriority;
+    }
+
+    public void setNextPriority(Integer nextPriority) {
+        this.nextPriority = nextPriority;
+    }
+
+    public Integer getNextId() {
+        return nextId;
+    }
+
+    public void setNextId(Integer nextId) {
+        this.nextId = nextId;
+    }
+
+    @Override
+    public String toString() {
+        return "CursorPageVO{" +
+                "size=" + size +
+                ", list=" + list +
+                ", nextPriority=" + nextPriority +
+                ", nextId=" + nextId +
+                '}';
+    }
+}
@@ -0,0 +1,37 @@
+package com.cy.store.vo;
+
+import java.util.List;
+import java.util.Map;
+
+/** 带分面计数的分页数据的VO类 */
+public class FacetPageVO<T> extends PageVO<T> {
+    private Map<String, Map<String, Integer>> facets;   // 分面 -> 取值 -> 商品数
+
+    public FacetPageVO() {
+    }
+
+    public FacetPageVO(Integer page, Integer size, Integer total, List<T> list,
+                       Map<String, Map<String, Integer>> facets) {
+        super(page, size, total, list);
+        this.facets = facets;
+    }
+
+    public Map<String, Map<String, Integer>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, Map<String, Integer>> facets) {
+        this.facets = facets;
+    }
+
+    @Override
+    public String toString() {
+        return "FacetPageVO{" +
+                "page=" + getPage() +
+                ", size=" + getSize() +
+                ", total=" + getTotal() +
+                ", list=" + getList() +
+                ", facets=" + facets +
+                '}';
+    }
+}
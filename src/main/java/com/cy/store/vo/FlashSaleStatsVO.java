@@ -0,0 +1,53 @@
+package com.cy.store.vo;
+
+import java.io.Serializable;
+
+/** 秒杀商品的库存情况 */
+public class FlashSaleStatsVO implements Serializable {
+    private Integer pid;            // 商品id
+    private Integer reserved;       // 开始秒杀时扣下的库存
+    private Integer remaining;      // 剩余的库存
+
+    public FlashSaleStatsVO() {
+    }
+
+    public FlashSaleStatsVO(Integer pid, Integer reserved, Integer remaining) {
+        this.pid = pid;
+        this.reserved = reserved;
+        this.remaining = remaining;
+    }
+
+    // getter/setter
+    public Integer getPid() {
+        return pid;
+    }
+
+    public void setPid(Integer pid) {
+        this.pid = pid;
+    }
+
+    public Integer getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(Integer reserved) {
+        this.reserved = reserved;
+    }
+
+    public Integer getRemaining() {
+        return remaining;
+    }
+
+    public void setRemaining(Integer remaining) {
+        this.remaining = remaining;
+    }
+
+    @Override
+    public String toString() {
+        return "FlashSaleStatsVO{" +
+                "pid=" + pid +
+                ", reserved=" + reserved +
+                ", remaining=" + remaining +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.cy.store.vo;
+
+import java.io.Serializable;
+import java.util.List;
+
+/** 秒杀的运行情况：各商品的库存和订单写入情况 */
+public class FlashSaleSummaryVO implements Serializable {
+    private List<FlashSaleStatsVO> products;    // 正在秒杀的商品的库存情况
+    private Integer pending;                    // 尚未写入数据库的订单数
+    private Integer retrying;                   // 写入失败、等待重试的订单数
+
+    public FlashSaleSummaryVO() {
+    }
+
+    public FlashSaleSummaryVO(List<FlashSaleStatsVO> products, Integer pending, Integer retrying) {
+        this.products = products;
+        this.pending = pending;
+        this.retrying = retrying;
+    }
+
+    // getter/setter
+    public List<FlashSaleStatsVO> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<FlashSaleStatsVO> products) {
+        this.products = products;
+    }
+
+    public Integer getPending() {
+        return pending;
+    }
+
+    public void setPending(Integer pending) {
+        this.pending = pending;
+    }
+
+    public Integer getRetrying() {
+        return retrying;
+    }
+
+    public void setRetrying(Integer retrying) {
+        this.retrying = retrying;
+    }
+
+    @Override
+    public String toString() {
+        return "FlashSaleSummaryVO{" +
+                "products=" + products +
+                ", pending=" + pending +
+                ", retrying=" + retrying +
+                '}';
+    }
+}
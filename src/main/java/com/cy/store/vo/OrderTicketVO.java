@@ -0,0 +1,75 @@
+package com.cy.store.vo;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+
+import java.io.Serializable;
+
+/** 异步下单的受理凭证，客户端用token查询订单是否已创建 */
+public class OrderTicketVO implements Serializable {
+    /** 排队中 */
+    public static final int PENDING = 0;
+    /** 订单已创建 */
+    public static final int CREATED = 1;
+    /** 下单失败 */
+    public static final int FAILED = 2;
+
+    private String token;           // 凭证
+    private Integer status;         // 状态：0-排队中，1-已创建，2-失败
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long oid;               // 创建的订单id，已创建时才有
+    private String message;         // 失败的原因
+
+    public OrderTicketVO() {
+    }
+
+    public OrderTicketVO(String token, Integer status, Long oid, String message) {
+        this.token = token;
+        this.status = status;
+        this.oid = oid;
+        this.message = message;
+    }
+
+    // getter/setter
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public Long getOid() {
+        return oid;
+    }
+
+    public void setOid(Long oid) {
+        this.oid = oid;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderTicketVO{" +
+                "token='" + token + '\'' +
+                ", status=" + status +
+                ", oid=" + oid +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
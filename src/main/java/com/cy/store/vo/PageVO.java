@@ -0,0 +1,65 @@
+package com.cy.store.vo;
+
+import java.io.Serializable;
+import java.util.List;
+
+/** 分页数据的VO类 */
+public class PageVO<T> implements Serializable {
+    private Integer page;       // 当前页码，从1开始
+    private Integer size;       // 每页条数
+    private Integer total;      // 总条数
+    private List<T> list;       // 当前页的数据
+
+    public PageVO() {
+    }
+
+    public PageVO(Integer page, Integer size, Integer total, List<T> list) {
+        this.page = page;
+        this.size = size;
+        this.total = total;
+        this.list = list;
+    }
+
+    // getter/setter
+    public Integer getPage() {
+        return page;
+    }
+
+    public void setPage(Integer page) {
+        this.page = page;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public List<T> getList() {
+        return list;
+    }
+
+    public void setList(List<T> list) {
+        this.list = list;
+    }
+
+    @Override
+    public String toString() {
+        return "PageVO{" +
+                "page=" + page +
+                ", size=" + size +
+                ", total=" + total +
+                ", list=" + list +
+                '}';
+    }
+}
@@ -0,0 +1,87 @@
+package com.cy.store.vo;
+
+import java.io.Serializable;
+
+/** 商品浏览次数计数器的运行数据 */
+public class ViewCounterStatsVO implements Serializable {
+    private Long flushLag;          // 距上次成功写入数据库的毫秒数
+    private Long pending;           // 尚未写入数据库的浏览次数
+    private Integer products;       // 内存中计数的商品数
+    private Long lastFlushRows;     // 上次写入的商品数
+    private Long lastFlushMillis;   // 上次写入的耗时（毫秒）
+    private Long flushFailures;     // 写入失败的次数
+
+    public ViewCounterStatsVO() {
+    }
+
+    public ViewCounterStatsVO(Long flushLag, Long pending, Integer products,
+                              Long lastFlushRows, Long lastFlushMillis, Long flushFailures) {
+        this.flushLag = flushLag;
+        this.pending = pending;
+        this.products = products;
+        this.lastFlushRows = lastFlushRows;
+        this.lastFlushMillis = lastFlushMillis;
+        this.flushFailures = flushFailures;
+    }
+
+    // getter/setter
+    public Long getFlushLag() {
+        return flushLag;
+    }
+
+    public void setFlushLag(Long flushLag) {
+        this.flushLag = flushLag;
+    }
+
+    public Long getPending() {
+        return pending;
+    }
+
+    public void setPending(Long pending) {
+        this.pending = pending;
+    }
+
+    public Integer getProducts() {
+        return products;
+    }
+
+    public void setProducts(Integer products) {
+        this.products = products;
+    }
+
+    public Long getLastFlushRows() {
+        return lastFlushRows;
+    }
+
+    public void setLastFlushRows(Long lastFlushRows) {
+        this.lastFlushRows = lastFlushRows;
+    }
+
+    public Long getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    public void setLastFlushMillis(Long lastFlushMillis) {
+        this.lastFlushMillis = lastFlushMillis;
+    }
+
+    public Long getFlushFailures() {
+        return flushFailures;
+    }
+
+    public void setFlushFailures(Long flushFailures) {
+        this.flushFailures = flushFailures;
+    }
+
+    @Override
+    public String toString() {
+        return "ViewCounterStatsVO{" +
+                "flushLag=" + flushLag +
+                ", pending=" + pending +
+                ", products=" + products +
+                ", lastFlushRows=" + lastFlushRows +
+                ", lastFlushMillis=" + lastFlushMillis +
+                ", flushFailures=" + flushFailures +
+                '}';
+    }
+}
@@ -0,0 +1,70 @@
+package com.cy.store.Controller;
+
+import com.cy.store.entity.Category;
+import com.cy.store.mapper.CategoryMapper;
+import com.cy.store.service.ICategoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/** 分类树的条件GET：ETag未变化时返回304，分类表变化后返回新的分类树 */
+@SpringBootTest
+@AutoConfigureMockMvc
+class CategoryControllerTests {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ICategoryService categoryService;
+    @MockBean
+    private CategoryMapper categoryMapper;
+
+    @Test
+    void conditionalGet() throws Exception {
+        when(categoryMapper.findVersion()).thenReturn("2-2-100");
+        when(categoryMapper.findAll()).thenReturn(Arrays.asList(
+                category(1, 0, "电脑、办公", 1, 1),
+                category(2, 1, "笔记本", 1, 1)));
+        categoryService.reload();
+        clearInvocations(categoryMapper);
+
+        mockMvc.perform(get("/categories"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2-2-100\""))
+                .andExpect(jsonPath("$.data[0].children[0].name").value("笔记本"));
+        mockMvc.perform(get("/categories").header("If-None-Match", "\"2-2-100\""))
+                .andExpect(status().isNotModified());
+
+        // 分类表变化后重新构建，旧的ETag失效
+        when(categoryMapper.findVersion()).thenReturn("3-3-200");
+        when(categoryMapper.findAll()).thenReturn(Arrays.asList(
+                category(1, 0, "电脑、办公", 1, 1),
+                category(2, 1, "笔记本", 1, 1),
+                category(3, 1, "台式机", 1, 2)));
+        categoryService.reload();
+        mockMvc.perform(get("/categories").header("If-None-Match", "\"2-2-100\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3-3-200\""))
+                .andExpect(jsonPath("$.data[0].children.length()").value(2));
+        // 请求分类树不访问数据库，只有重新构建时才查询
+        verify(categoryMapper, times(1)).findAll();
+    }
+
+    private static Category category(int id, int parentId, String name, int status, int sortOrder) {
+        Category c = new Category();
+        c.setId(id);
+        c.setParentId(parentId);
+        c.setName(name);
+        c.setStatus(status);
+        c.setSortOrder(sortOrder);
+        return c;
+    }
+}
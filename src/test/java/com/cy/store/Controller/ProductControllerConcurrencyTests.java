@@ -0,0 +1,108 @@
+package com.cy.store.Controller;
+
+import com.cy.store.entity.Product;
+import com.cy.store.mapper.ProductMapper;
+import com.cy.store.util.JsonResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/** 冷缓存下大量并发请求同一商品详情时，数据库只被查询一次 */
+@SpringBootTest
+class ProductControllerConcurrencyTests {
+    private static final int THREADS = 200;
+
+    @Autowired
+    private ProductController productController;
+    @MockBean
+    private ProductMapper productMapper;
+
+    @Test
+    void concurrentColdLoadsAreCoalesced() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        when(productMapper.findById(eq(10000017))).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            Thread.sleep(200);  // 模拟一次较慢的数据库查询
+            Product product = new Product();
+            product.setId(10000017);
+            product.setTitle("爆款商品");
+            product.setPrice(100L);
+            return product;
+        });
+
+        List<Object> results = runConcurrently(() -> productController.getById(10000017, null).getData());
+
+        assertEquals(1, queries.get(), "并发冷加载应只查询一次数据库");
+        Object first = results.get(0);
+        for (Object result : results) {
+            assertSame(first, result);
+        }
+    }
+
+    @Test
+    void waitersShareTheLoaderError() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        RuntimeException failure = new IllegalStateException("数据库连接失败");
+        when(productMapper.findById(eq(10000018))).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            Thread.sleep(200);
+            throw failure;
+        });
+
+        List<Object> results = runConcurrently(() -> {
+            try {
+                JsonResult<Product> result = productController.getById(10000018, null);
+                return result.getData();
+            } catch (RuntimeException e) {
+                return e;
+            }
+        });
+
+        assertEquals(1, queries.get(), "等待者应共享加载线程的异常，而不是各自重新查询");
+        for (Object result : results) {
+            assertSame(failure, result);
+        }
+    }
+
+    /** 让THREADS个线程同时开始执行task，返回每个线程的结果 */
+    private static List<Object> runConcurrently(Callable<Object> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch ready = new CountDownLatch(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    return task.call();
+                }));
+            }
+            ready.await();
+            long start = System.nanoTime();
+            go.countDown();
+            List<Object> results = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                results.add(future.get());
+            }
+            System.out.println(THREADS + "个并发请求耗时：" + (System.nanoTime() - start) / 1000000 + "ms");
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
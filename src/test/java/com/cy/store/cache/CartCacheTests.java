@@ -0,0 +1,258 @@
+package com.cy.store.cache;
+
+import com.cy.store.entity.Cart;
+import com.cy.store.mapper.CartMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class CartCacheTests {
+    /** 模拟t_cart：cid -> 数量 */
+    private final Map<Integer, Integer> table = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCid = new AtomicInteger(1);
+    private final CartMapper mapper = mock(CartMapper.class);
+
+    CartCacheTests() {
+        when(mapper.findByUid(anyInt())).thenAnswer(invocation -> {
+            Integer uid = invocation.getArgument(0);
+            List<Cart> carts = new ArrayList<>();
+            table.forEach((cid, num) -> {
+                if (cid % 1000 == uid) {
+                    carts.add(cart(cid, uid, cid, num));
+                }
+            });
+            return carts;
+        });
+        when(mapper.updateNums(any())).thenAnswer(this::updateNums);
+    }
+
+    /** 与updateNums的SQL一致：累加变化量，数量最少为1 */
+    private Integer updateNums(InvocationOnMock invocation) {
+        List<Cart> carts = invocation.getArgument(0);
+        for (Cart cart : carts) {
+            table.merge(cart.getCid(), cart.getNum(), (num, delta) -> Math.max(1, num + delta));
+        }
+        return carts.size();
+    }
+
+    static Cart cart(int cid, int uid, int pid, int num) {
+        Cart cart = new Cart();
+        cart.setCid(cid);
+        cart.setUid(uid);
+        cart.setPid(pid);
+        cart.setNum(num);
+        cart.setPrice(100L);
+        return cart;
+    }
+
+    /** 插入一条新数据，cid的后三位为uid */
+    private Cart insert(int uid, int pid, int num) {
+        int cid = nextCid.getAndIncrement() * 1000 + uid;
+        table.put(cid, num);
+        return cart(cid, uid, pid, num);
+    }
+
+    @Test
+    void changesAreCoalescedUntilFlush() {
+        CartCache cache = new CartCache(mapper, 100);
+        int cid = insert(7, 10000017, 1).getCid();
+        assertEquals(Integer.valueOf(2), cache.addNumByCid(7, cid, 1, "test"));
+        assertEquals(Integer.valueOf(3), cache.addNumByCid(7, cid, 1, "test"));
+        assertEquals(Integer.valueOf(2), cache.addNumByCid(7, cid, -1, "test"));
+        assertNull(cache.addNumByCid(8, cid, 1, "test"), "其他用户的购物车数据");
+        assertEquals(Integer.valueOf(1), table.get(cid), "写入前数据库不变");
+        assertEquals(Integer.valueOf(2), cache.getCarts(7).get(0).getNum());
+
+        cache.flush(7);
+        assertEquals(Integer.valueOf(2), table.get(cid));
+        verify(mapper, times(1)).updateNums(any());
+        assertEquals(0, cache.dirtyUsers());
+        // 没有新的修改时不访问数据库
+        assertEquals(0, cache.flush());
+        verify(mapper, times(1)).updateNums(any());
+        verify(mapper, times(2)).findByUid(anyInt());
+    }
+
+    @Test
+    void flushInsideTransactionIsRejected() {
+        CartCache cache = new CartCache(mapper, 100);
+        int cid = insert(7, 10000017, 1).getCid();
+        cache.addNumByCid(7, cid, 1, "test");
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThrows(IllegalStateException.class, () -> cache.flush(7));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        verify(mapper, never()).updateNums(any());
+        assertEquals(1, cache.dirtyUsers());
+    }
+
+    @Test
+    void numNeverDropsBelowOne() {
+        CartCache cache = new CartCache(mapper, 100);
+        int cid = insert(7, 10000017, 2).getCid();
+        for (int i = 0; i < 5; i++) {
+            cache.addNumByCid(7, cid, -1, "test");
+        }
+        assertEquals(Integer.valueOf(1), cache.getCarts(7).get(0).getNum());
+    }
+
+    @Test
+    void addByPidInsertsOnceThenAccumulates() {
+        CartCache cache = new CartCache(mapper, 100);
+        AtomicInteger inserts = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            cache.addByPid(7, 10000017, 2, "test", () -> {
+                inserts.incrementAndGet();
+                return insert(7, 10000017, 2);
+            });
+        }
+        assertEquals(1, inserts.get());
+        assertEquals(Integer.valueOf(6), cache.getCarts(7).get(0).getNum());
+        cache.flush();
+        assertEquals(Integer.valueOf(6), table.values().iterator().next());
+
+        // 数量最少为1，与数据库中的数量一致
+        assertEquals(Integer.valueOf(1), cache.addByPid(7, 10000017, -50, "test", () -> fail("不应插入")));
+        cache.flush();
+        assertEquals(Integer.valueOf(1), table.values().iterator().next());
+    }
+
+    @Test
+    void reloadKeepsPendingChanges() {
+        CartCache cache = new CartCache(mapper, 100);
+        int cid = insert(7, 10000017, 1).getCid();
+        cache.addNumByCid(7, cid, 1, "test");
+        // 批量修改直接写入数据库的变化量和新数据
+        table.merge(cid, 3, Integer::sum);
+        int added = insert(7, 10000018, 1).getCid();
+
+        Map<Integer, Integer> nums = new HashMap<>();
+        for (Cart cart : cache.reload(7)) {
+            nums.put(cart.getCid(), cart.getNum());
+        }
+        assertEquals(2, nums.size());
+        assertEquals(Integer.valueOf(5), nums.get(cid));
+        assertEquals(Integer.valueOf(1), nums.get(added));
+        // 未写入的变化量仍然只写入一次
+        cache.flush();
+        assertEquals(Integer.valueOf(5), table.get(cid));
+        assertEquals(0, cache.flush());
+    }
+
+    @Test
+    void evictedUsersKeepPendingChanges() {
+        CartCache cache = new CartCache(mapper, 2);
+        int cid = insert(1, 10000017, 1).getCid();
+        cache.addNumByCid(1, cid, 4, "test");
+        // 用户1被淘汰，但修改尚未写入
+        cache.getCarts(2);
+        cache.getCarts(3);
+        assertEquals(Integer.valueOf(5), cache.getCarts(1).get(0).getNum());
+        assertEquals(1, cache.dirtyUsers());
+        cache.flush();
+        assertEquals(Integer.valueOf(5), table.get(cid));
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        CartCache cache = new CartCache(mapper, 100);
+        int cid = insert(7, 10000017, 1).getCid();
+        cache.addNumByCid(7, cid, 1, "test");
+        doThrow(new IllegalStateException("数据库连接失败")).when(mapper).updateNums(any());
+        cache.scheduledFlush();
+        assertEquals(1, cache.dirtyUsers());
+        assertEquals(Integer.valueOf(1), table.get(cid));
+
+        reset(mapper);
+        when(mapper.updateNums(any())).thenAnswer(this::updateNums);
+        cache.flush();
+        assertEquals(Integer.valueOf(2), table.get(cid));
+    }
+
+    @Test
+    void concurrentWritesElsewhereAreKept() {
+        CartCache cache = new CartCache(mapper, 100);
+        int cid = insert(7, 10000017, 1).getCid();
+        cache.addNumByCid(7, cid, 2, "test");
+        // 写入之前，另一个实例把数量加了5
+        table.merge(cid, 5, Integer::sum);
+        cache.flush(7);
+        assertEquals(Integer.valueOf(8), table.get(cid));
+    }
+
+    @Test
+    void userFlushDoesNotWaitForWholeSweep() throws Exception {
+        CartCache cache = new CartCache(mapper, 100);
+        int slowCid = insert(1, 10000017, 1).getCid();
+        int cid = insert(2, 10000017, 1).getCid();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            List<Cart> carts = invocation.getArgument(0);
+            if (carts.get(0).getCid() == slowCid) {
+                writing.countDown();
+                release.await();
+            }
+            return updateNums(invocation);
+        }).when(mapper).updateNums(any());
+        cache.addNumByCid(1, slowCid, 1, "test");
+        ExecutorService sweeper = Executors.newSingleThreadExecutor();
+        Future<Integer> sweep = sweeper.submit(() -> cache.flush());
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // 定时写入卡在用户1的这一批上，用户2下单前的写入不受影响
+        cache.addNumByCid(2, cid, 1, "test");
+        cache.flush(2);
+        assertEquals(Integer.valueOf(2), table.get(cid));
+
+        release.countDown();
+        assertEquals(Integer.valueOf(1), sweep.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), table.get(slowCid));
+        sweeper.shutdown();
+    }
+
+    @Test
+    void concurrentClicksAreNotLost() throws Exception {
+        CartCache cache = new CartCache(mapper, 100);
+        int cid = insert(7, 10000017, 1).getCid();
+        int threads = 8;
+        int clicks = 100000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < clicks; i++) {
+                    cache.addNumByCid(7, cid, 1, "test");
+                }
+            });
+        }
+        pool.shutdown();
+        // 后台写入与点击同时进行
+        while (!pool.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            cache.flush();
+        }
+        long elapsed = System.nanoTime() - start;
+        cache.flush(7);
+        assertEquals(Integer.valueOf(1 + threads * clicks), table.get(cid));
+        System.out.println(threads * clicks + "次数量修改耗时：" + elapsed / 1000000 + "ms");
+    }
+}
@@ -0,0 +1,60 @@
+package com.cy.store.cache;
+
+import com.cy.store.entity.Category;
+import com.cy.store.vo.CategoryVO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryTreeTests {
+    static Category category(int id, int parentId, String name, int status, int sortOrder) {
+        Category c = new Category();
+        c.setId(id);
+        c.setParentId(parentId);
+        c.setName(name);
+        c.setStatus(status);
+        c.setSortOrder(sortOrder);
+        return c;
+    }
+
+    @Test
+    void buildsSortedTreeWithoutDeletedBranches() {
+        List<Category> all = Arrays.asList(
+                category(161, 0, "电脑、办公", 1, 2),
+                category(1, 0, "图书、音像", 1, 1),
+                category(163, 161, "电脑整机", 1, 2),
+                category(162, 161, "电脑配件", 1, 1),
+                category(164, 161, "已删除", 0, 3),
+                category(165, 164, "已删除分类的子分类", 1, 1),
+                category(238, 163, "笔记本", 1, 1));
+        CategoryTree tree = CategoryTree.build(all, "7-238-1");
+
+        List<String> roots = new ArrayList<>();
+        for (CategoryVO node : tree.getRoots()) {
+            roots.add(node.getName());
+        }
+        assertEquals(Arrays.asList("图书、音像", "电脑、办公"), roots);
+        CategoryVO computers = tree.getNode(161);
+        assertEquals(2, computers.getChildren().size());
+        assertEquals(Integer.valueOf(162), computers.getChildren().get(0).getId());
+        assertEquals("笔记本", tree.getNode(163).getChildren().get(0).getName());
+        assertTrue(tree.getNode(238).getChildren().isEmpty());
+        assertNull(tree.getNode(164));
+        assertNull(tree.getNode(165));
+        assertEquals(5, tree.size());
+        assertEquals("\"7-238-1\"", tree.getEtag());
+    }
+
+    @Test
+    void cycleDoesNotRecurseForever() {
+        CategoryTree tree = CategoryTree.build(Arrays.asList(
+                category(1, 0, "根", 1, 1),
+                category(2, 3, "甲", 1, 1),
+                category(3, 2, "乙", 1, 1)), "v");
+        assertEquals(1, tree.size());
+    }
+}
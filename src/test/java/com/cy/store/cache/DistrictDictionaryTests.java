@@ -0,0 +1,52 @@
+package com.cy.store.cache;
+
+import com.cy.store.entity.District;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistrictDictionaryTests {
+
+    private static District district(Integer id, String parent, String code, String name) {
+        District d = new District();
+        d.setId(id);
+        d.setParent(parent);
+        d.setCode(code);
+        d.setName(name);
+        return d;
+    }
+
+    @Test
+    void buildAndLookup() {
+        DistrictDictionary dictionary = DistrictDictionary.build(Arrays.asList(
+                district(3, "610000", "610200", "铜川市"),
+                district(1, "86", "610000", "陕西省"),
+                district(2, "610000", "610100", "西安市")), "3-3-0");
+
+        List<District> cities = dictionary.getChildren("610000");
+        assertEquals(2, cities.size());
+        // 子区域按code升序，并且不带id和parent
+        assertEquals("610100", cities.get(0).getCode());
+        assertEquals("610200", cities.get(1).getCode());
+        assertNull(cities.get(0).getId());
+        assertNull(cities.get(0).getParent());
+
+        assertEquals("陕西省", dictionary.getName("610000"));
+        assertNull(dictionary.getName("999999"));
+        assertTrue(dictionary.getChildren("999999").isEmpty());
+        assertTrue(dictionary.getChildren(null).isEmpty());
+        assertEquals(3, dictionary.size());
+        assertEquals("3-3-0", dictionary.getVersion());
+    }
+
+    @Test
+    void childrenAreReadOnly() {
+        DistrictDictionary dictionary = DistrictDictionary.build(Arrays.asList(
+                district(1, "86", "610000", "陕西省")), "1-1-0");
+        assertThrows(UnsupportedOperationException.class,
+                () -> dictionary.getChildren("86").clear());
+    }
+}
@@ -0,0 +1,88 @@
+package com.cy.store.cache;
+
+import com.cy.store.Controller.BaseController;
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import com.cy.store.rank.SalesRanking;
+import com.cy.store.service.IProductService;
+import com.cy.store.util.JsonResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** 热销列表的响应体与列表一致，只有库存变化时不重建 */
+@SpringBootTest
+class HotListCacheTests {
+    @Autowired
+    private HotListCache hotListCache;
+    @Autowired
+    private IProductService productService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ApplicationEventPublisher publisher;
+    @MockBean
+    private ProductMapper productMapper;
+    /** 没有销量数据，列表按显示优先级取 */
+    @MockBean
+    private SalesRanking salesRanking;
+
+    private static Product product(int id, String title, int num) {
+        Product p = new Product();
+        p.setId(id);
+        p.setTitle(title);
+        p.setPrice(100L);
+        p.setNum(num);
+        p.setStatus(1);
+        p.setPriority(10);
+        return p;
+    }
+
+    @Test
+    void servedBytesMatchFreshSerialization() throws Exception {
+        when(productMapper.findHotList()).thenReturn(Arrays.asList(
+                product(1, "联想笔记本", 50), product(2, "戴尔笔记本", 8)));
+        hotListCache.refresh();
+
+        List<Product> list = productService.findHotList();
+        assertEquals(2, list.size());
+        assertEquals("联想笔记本", list.get(0).getTitle());
+        // 列表中的商品不含库存和冗余数据
+        assertNull(list.get(0).getNum());
+        assertNull(list.get(0).getPriority());
+        byte[] expected = objectMapper.writeValueAsBytes(new JsonResult<>(BaseController.OK, list));
+        assertArrayEquals(expected, productService.findHotListJson());
+    }
+
+    @Test
+    void stockOnlyChangesDoNotRebuild() throws InterruptedException {
+        when(productMapper.findHotList()).thenReturn(Collections.singletonList(product(1, "联想笔记本", 50)));
+        hotListCache.refresh();
+        clearInvocations(productMapper);
+
+        publisher.publishEvent(ProductChangedEvent.stock(this, Collections.singletonList(1)));
+        verify(productMapper, after(500).never()).findHotList();
+
+        when(productMapper.findHotList()).thenReturn(Collections.singletonList(product(1, "联想小新笔记本", 50)));
+        publisher.publishEvent(new ProductChangedEvent(this, 1));
+        verify(productMapper, timeout(2000)).findHotList();
+        // 等待后台重建替换快照
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!"联想小新笔记本".equals(hotListCache.getList().get(0).getTitle())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("联想小新笔记本", hotListCache.getList().get(0).getTitle());
+    }
+}
@@ -0,0 +1,227 @@
+package com.cy.store.cache;
+
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import com.cy.store.vo.CacheStatsVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductCacheTests {
+    private ProductMapper productMapper;
+
+    @BeforeEach
+    void setUp() {
+        productMapper = mock(ProductMapper.class);
+        when(productMapper.findById(anyInt())).thenAnswer(invocation -> {
+            Integer id = invocation.getArgument(0);
+            if (id < 0) {
+                return null;
+            }
+            return product(id);
+        });
+    }
+
+    private static Product product(Integer id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setTitle("商品" + id);
+        product.setPriority(1);
+        product.setCreatedUser("admin");
+        product.setCreatedTime(new Date());
+        return product;
+    }
+
+    @Test
+    void loadsOnceAndStripsFields() {
+        ProductCache cache = new ProductCache(productMapper, 100, 60000);
+        Product first = cache.get(1);
+        Product second = cache.get(1);
+
+        assertSame(first, second);
+        assertNull(first.getPriority());
+        assertNull(first.getCreatedUser());
+        assertNull(first.getCreatedTime());
+        verify(productMapper, times(1)).findById(1);
+
+        CacheStatsVO stats = cache.getStats();
+        assertEquals(1L, stats.getHits());
+        assertEquals(1L, stats.getMisses());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    void getAllLoadsMissesInOneQuery() {
+        when(productMapper.findByIds(anyCollection())).thenAnswer(invocation -> {
+            List<Product> found = new ArrayList<>();
+            for (Integer id : invocation.<Collection<Integer>>getArgument(0)) {
+                if (id > 0) {
+                    found.add(product(id));
+                }
+            }
+            return found;
+        });
+        ProductCache cache = new ProductCache(productMapper, 100, 60000);
+        cache.get(2);
+
+        Map<Integer, Product> products = cache.getAll(Arrays.asList(3, 2, -1, 3, 4));
+        assertEquals(3, products.size());
+        assertNull(products.get(-1));
+        assertNull(products.get(4).getCreatedUser());
+        verify(productMapper, times(1)).findByIds(eq(new LinkedHashSet<>(Arrays.asList(3, -1, 4))));
+
+        // 批量加载的商品已放入缓存
+        assertSame(products.get(3), cache.get(3));
+        verify(productMapper, never()).findById(3);
+    }
+
+    @Test
+    void missingProductIsNotCached() {
+        ProductCache cache = new ProductCache(productMapper, 100, 60000);
+        assertNull(cache.get(-1));
+        assertNull(cache.get(-1));
+        assertNull(cache.get(null));
+        verify(productMapper, times(2)).findById(-1);
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    void expiredEntryIsReloaded() throws InterruptedException {
+        ProductCache cache = new ProductCache(productMapper, 100, 20);
+        cache.get(1);
+        Thread.sleep(40);
+        cache.get(1);
+        verify(productMapper, times(2)).findById(1);
+    }
+
+    @Test
+    void invalidation() {
+        ProductCache cache = new ProductCache(productMapper, 100, 60000);
+        cache.get(1);
+        cache.get(2);
+        cache.invalidate(1);
+        assertNull(cache.getIfPresent(1));
+        assertNotNull(cache.getIfPresent(2));
+
+        cache.onProductChanged(new ProductChangedEvent(this, 2));
+        assertNull(cache.getIfPresent(2));
+
+        cache.get(3);
+        cache.onProductChanged(new ProductChangedEvent(this));
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    void invalidatingOtherProductKeepsLoad() {
+        ProductCache cache = new ProductCache(productMapper, 100, 60000);
+        when(productMapper.findById(1)).thenAnswer(invocation -> {
+            // 加载期间其他商品发生变化
+            cache.invalidate(2);
+            return product(1);
+        });
+        cache.get(1);
+        assertNotNull(cache.getIfPresent(1));
+
+        when(productMapper.findById(3)).thenAnswer(invocation -> {
+            cache.invalidate(3);
+            return product(3);
+        });
+        cache.get(3);
+        assertNull(cache.getIfPresent(3), "加载期间发生过失效的数据不放入缓存");
+    }
+
+    @Test
+    void stockChangeInvalidatesWithoutQuerying() {
+        int[] num = {10};
+        when(productMapper.findById(anyInt())).thenAnswer(invocation -> {
+            Product product = product(invocation.getArgument(0));
+            product.setNum(num[0]);
+            return product;
+        });
+        ProductCache cache = new ProductCache(productMapper, 100, 60000);
+        cache.get(1);
+        num[0] = 9;
+        cache.onProductChanged(ProductChangedEvent.stock(this, Arrays.asList(1, 2)));
+
+        // 发布事件的线程不访问数据库
+        verify(productMapper, times(1)).findById(1);
+        verify(productMapper, never()).findByIds(anyCollection());
+        assertNull(cache.getIfPresent(1));
+        assertEquals(Integer.valueOf(9), cache.get(1).getNum());
+    }
+
+    @Test
+    void frequentEntriesSurviveScan() {
+        ProductCache cache = new ProductCache(productMapper, 100, 60000);
+        // 100个热门商品各访问多次
+        for (int round = 0; round < 5; round++) {
+            for (int id = 1; id <= 100; id++) {
+                cache.get(id);
+            }
+        }
+        // 大量只访问一次的商品不能把热门商品挤出缓存
+        for (int id = 1000; id < 3000; id++) {
+            cache.get(id);
+        }
+        int survived = 0;
+        for (int id = 1; id <= 100; id++) {
+            if (cache.getIfPresent(id) != null) {
+                survived++;
+            }
+        }
+        assertTrue(survived >= 95, "热门商品只保留了" + survived + "个");
+        assertEquals(100, cache.getStats().getSize());
+    }
+
+    @Test
+    void evictsWhenCandidateIsHotter() {
+        ProductCache cache = new ProductCache(productMapper, 2, 60000);
+        cache.get(1);
+        cache.get(2);
+        for (int i = 0; i < 5; i++) {
+            cache.get(3);
+        }
+        assertNotNull(cache.getIfPresent(3));
+        assertEquals(2, cache.getStats().getSize());
+        assertEquals(1L, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void concurrentHitsKeepEntries() throws InterruptedException {
+        ProductCache cache = new ProductCache(productMapper, 10, 60000);
+        for (int id = 1; id <= 10; id++) {
+            cache.get(id);
+        }
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    assertNotNull(cache.getIfPresent(i % 10 + 1));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80000L, cache.getStats().getHits());
+        // 访问记录处理后，热门商品仍能挡住偶发访问的商品
+        cache.get(100);
+        assertNull(cache.getIfPresent(100));
+        assertEquals(10, cache.getStats().getSize());
+    }
+}
@@ -0,0 +1,61 @@
+package com.cy.store.cache;
+
+import com.cy.store.entity.Product;
+import com.cy.store.mapper.ProductMapper;
+import com.cy.store.sale.FlashSaleStock;
+import com.cy.store.service.IProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/** 修改库存后发布ProductChangedEvent，缓存的商品详情随之失效 */
+@SpringBootTest
+class ProductStockInvalidationTests {
+    private static final int PID = 10000019;
+
+    @Autowired
+    private IProductService productService;
+    @Autowired
+    private FlashSaleStock flashSaleStock;
+    @MockBean
+    private ProductMapper productMapper;
+
+    /** 模拟t_product中该商品的库存 */
+    private final AtomicInteger stock = new AtomicInteger(10);
+
+    @Test
+    void stockChangeIsVisibleThroughFindById() {
+        when(productMapper.findById(eq(PID))).thenAnswer(invocation -> {
+            Product product = new Product();
+            product.setId(PID);
+            product.setTitle("秒杀商品");
+            product.setPrice(100L);
+            product.setNum(stock.get());
+            return product;
+        });
+        when(productMapper.decreaseNum(eq(PID), anyInt())).thenAnswer(invocation -> {
+            stock.addAndGet(-invocation.<Integer>getArgument(1));
+            return 1;
+        });
+        when(productMapper.increaseNum(eq(PID), anyInt())).thenAnswer(invocation -> {
+            stock.addAndGet(invocation.<Integer>getArgument(1));
+            return 1;
+        });
+
+        assertEquals(Integer.valueOf(10), productService.findById(PID).getNum());
+        // 开始秒杀时库存被全部扣下
+        flashSaleStock.start(PID);
+        assertEquals(Integer.valueOf(0), productService.findById(PID).getNum());
+        // 结束时未售出的库存归还
+        flashSaleStock.end(PID);
+        assertEquals(Integer.valueOf(10), productService.findById(PID).getNum());
+    }
+}
@@ -0,0 +1,44 @@
+package com.cy.store.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentlyViewedTests {
+    @Test
+    void newestFirstAndRepeatsMoveToFront() {
+        RecentlyViewed recent = new RecentlyViewed(5, 1000);
+        recent.record(7, 1);
+        recent.record(7, 2);
+        recent.record(7, 3);
+        recent.record(7, 1);
+        assertArrayEquals(new int[]{1, 3, 2}, recent.get(7));
+        assertArrayEquals(new int[0], recent.get(8));
+    }
+
+    @Test
+    void keepsOnlyTheLatestPerUser() {
+        RecentlyViewed recent = new RecentlyViewed(3, 1000);
+        for (int pid = 1; pid <= 10; pid++) {
+            recent.record(7, pid);
+        }
+        assertArrayEquals(new int[]{10, 9, 8}, recent.get(7));
+        // 缓冲区绕回之后再重复浏览较早的商品
+        recent.record(7, 8);
+        assertArrayEquals(new int[]{8, 10, 9}, recent.get(7));
+        recent.record(7, 11);
+        assertArrayEquals(new int[]{11, 8, 10}, recent.get(7));
+    }
+
+    @Test
+    void evictsIdleUsersWhenFull() {
+        // 16个分段，每段最多1个用户
+        RecentlyViewed recent = new RecentlyViewed(4, 16);
+        for (int uid = 1; uid <= 10000; uid++) {
+            recent.record(uid, uid);
+        }
+        assertTrue(recent.users() <= 16);
+        assertArrayEquals(new int[]{10000}, recent.get(10000));
+        assertArrayEquals(new int[0], recent.get(1));
+    }
+}
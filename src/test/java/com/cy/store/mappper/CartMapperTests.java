@@ -60,4 +60,11 @@ public class CartMapperTests {
         Integer[] cids = {1,3,5,7};
         System.out.println(cartMapper.findVOByCid(cids));
     }
+
+    @Test
+    public void findVOByUidAndCids(){
+        // cid为4、5的数据属于其他用户，不会被查出
+        Integer[] cids = {1,3,4,5};
+        System.out.println(cartMapper.findVOByUidAndCids(21, cids));
+    }
 }
@@ -5,12 +5,14 @@ package com.cy.store.mappper;
 import com.cy.store.entity.Order;
 import com.cy.store.entity.OrderItem;
 import com.cy.store.mapper.OrderMapper;
+import com.cy.store.util.IdGenerator;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -20,20 +22,24 @@ public class OrderMapperTests {
 
     @Autowired
     private OrderMapper orderMapper;
+    @Autowired
+    private IdGenerator idGenerator;
     @Test
-    public void insertOrder() {
+    public void insertOrders() {
         Order order = new Order();
+        order.setOid(idGenerator.nextId());
         order.setUid(22);
         order.setRecvName("明明");
         order.setRecvPhone("17857704444");
-        orderMapper.insertOrder(order);
+        orderMapper.insertOrders(Collections.singletonList(order));
     }
     @Test
-    public void insertOrderItem() {
+    public void insertOrderItems() {
         OrderItem orderItem = new OrderItem();
-        orderItem.setOid(1);
+        orderItem.setId(idGenerator.nextId());
+        orderItem.setOid(1L);
         orderItem.setPid(10000003);
         orderItem.setTitle("AAAA");
-        orderMapper.insertOrderItem(orderItem);
+        orderMapper.insertOrderItems(Collections.singletonList(orderItem));
     }
 }
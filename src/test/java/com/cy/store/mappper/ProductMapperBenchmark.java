@@ -0,0 +1,79 @@
+package com.cy.store.mappper;
+
+// 使用JUnit 4测试，需要连接数据库
+// 类名不以Tests结尾，不在默认的测试中执行，需单独运行：mvn test -Dtest=ProductMapperBenchmark
+
+import com.cy.store.mapper.ProductMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.cy.store.mappper.ProductMapperTests.CATEGORY_ID;
+import static com.cy.store.mappper.ProductMapperTests.PAGE_SIZE;
+import static org.junit.Assert.*;
+
+/** 分类商品列表的分页延迟：键集分页的深页与第一页相当，OFFSET分页随页数增长 */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@Transactional  // 测试数据在测试结束后回滚
+public class ProductMapperBenchmark {
+    private static final int ROWS = 100000;
+
+    @Autowired
+    private ProductMapper productMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** 只有一个测试，数据只插入一次 */
+    private List<int[]> expected;
+
+    @Before
+    public void insertProducts() {
+        expected = ProductMapperTests.insertProducts(jdbcTemplate, ROWS);
+    }
+
+    @Test
+    public void latencyAcrossPageDepths() {
+        int[] depths = {0, 10, 100, 1000, 4000};
+        long[] keyset = new long[depths.length];
+        long[] offset = new long[depths.length];
+        for (int d = 0; d < depths.length; d++) {
+            int page = depths[d];
+            Integer lastPriority = page == 0 ? null : expected.get(page * PAGE_SIZE - 1)[0];
+            Integer lastId = page == 0 ? null : expected.get(page * PAGE_SIZE - 1)[1];
+            keyset[d] = median(() -> productMapper.findByCategory(CATEGORY_ID, lastPriority, lastId, PAGE_SIZE));
+            offset[d] = median(() -> jdbcTemplate.queryForList("SELECT * FROM t_product "
+                    + "WHERE category_id=? AND status=1 ORDER BY priority DESC, id DESC LIMIT ?, ?",
+                    CATEGORY_ID, page * PAGE_SIZE, PAGE_SIZE));
+            System.out.println("第" + (page + 1) + "页：键集分页" + keyset[d] / 1000 + "us，OFFSET分页" + offset[d] / 1000 + "us");
+        }
+        // 深页的延迟与第一页相当（留出2ms的测量抖动）
+        for (int d = 1; d < depths.length; d++) {
+            assertTrue("第" + (depths[d] + 1) + "页过慢：" + Arrays.toString(keyset),
+                    keyset[d] <= keyset[0] * 3 + 2000000);
+        }
+    }
+
+    /** 执行21次，返回耗时的中位数（纳秒） */
+    private static long median(Runnable query) {
+        for (int i = 0; i < 5; i++) {
+            query.run();
+        }
+        long[] times = new long[21];
+        for (int i = 0; i < times.length; i++) {
+            long start = System.nanoTime();
+            query.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[times.length / 2];
+    }
+}
@@ -0,0 +1,106 @@
+package com.cy.store.mappper;
+
+// 使用JUnit 4测试，需要连接数据库
+
+import com.cy.store.entity.Product;
+import com.cy.store.mapper.ProductMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分类商品列表的键集分页：结果正确，且按索引顺序读取、不需要额外排序
+ * 深页与第一页的延迟对比见ProductMapperBenchmark，不在默认的测试中执行
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@Transactional  // 测试数据在测试结束后回滚
+public class ProductMapperTests {
+    static final int CATEGORY_ID = 99901;
+    private static final int ROWS = 1000;
+    static final int PAGE_SIZE = 20;
+    private static final int FIRST_ID = 900000000;
+
+    @Autowired
+    private ProductMapper productMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** 按priority、id降序排列的测试数据，每项为{priority, id} */
+    private List<int[]> expected;
+
+    @Before
+    public void insertProducts() {
+        expected = insertProducts(jdbcTemplate, ROWS);
+    }
+
+    /**
+     * 在测试分类中插入商品，每10个商品有1个下架
+     * @return 上架商品按priority、id降序排列，每项为{priority, id}
+     */
+    static List<int[]> insertProducts(JdbcTemplate jdbcTemplate, int count) {
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>();
+        List<int[]> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int id = FIRST_ID + i;
+            int priority = random.nextInt(100);  // 大量重复的优先级，检验id作为第二排序键
+            int status = i % 10 == 0 ? 2 : 1;
+            rows.add(new Object[]{id, CATEGORY_ID, "压测商品" + i, 100L, 99999, status, priority});
+            if (status == 1) {
+                expected.add(new int[]{priority, id});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO t_product (id, category_id, title, price, num, status, priority) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        expected.sort(Comparator.<int[]>comparingInt(e -> e[0]).thenComparingInt(e -> e[1]).reversed());
+        return expected;
+    }
+
+    @Test
+    public void walkAllPages() {
+        List<Integer> ids = new ArrayList<>();
+        Integer lastPriority = null;
+        Integer lastId = null;
+        while (true) {
+            List<Product> page = productMapper.findByCategory(CATEGORY_ID, lastPriority, lastId, PAGE_SIZE);
+            for (Product product : page) {
+                ids.add(product.getId());
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            Product last = page.get(page.size() - 1);
+            lastPriority = last.getPriority();
+            lastId = last.getId();
+        }
+        assertEquals(expected.size(), ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(expected.get(i)[1], ids.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void usesCompositeIndex() {
+        int[] cursor = expected.get(ROWS / 2);
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN SELECT * FROM t_product "
+                + "WHERE category_id=? AND status=1 AND priority <= ? AND (priority < ? OR id < ?) "
+                + "ORDER BY priority DESC, id DESC LIMIT 20", CATEGORY_ID, cursor[0], cursor[0], cursor[1]);
+        assertEquals("idx_category_status_priority", plan.get(0).get("key"));
+        String extra = String.valueOf(plan.get(0).get("Extra"));
+        assertFalse("不应出现额外的排序：" + extra, extra.contains("filesort"));
+    }
+}
@@ -0,0 +1,237 @@
+package com.cy.store.order;
+
+import com.cy.store.entity.Order;
+import com.cy.store.entity.OrderItem;
+import com.cy.store.mapper.OrderMapper;
+import com.cy.store.mapper.ProductMapper;
+import com.cy.store.rank.AlsoBoughtIndex;
+import com.cy.store.rank.SalesRanking;
+import com.cy.store.vo.OrderTicketVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class OrderIntakeTests {
+    /** 模拟t_product的库存：pid -> 数量 */
+    private final Map<Integer, Integer> stock = new ConcurrentHashMap<>();
+    /** 每次insertOrders写入的订单数 */
+    private final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong nextOid = new AtomicLong(1);
+    private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+    private final OrderMapper orderMapper = mock(OrderMapper.class);
+    private final ProductMapper productMapper = mock(ProductMapper.class);
+    private OrderIntake intake;
+
+    OrderIntakeTests() {
+        when(productMapper.decreaseNum(anyInt(), anyInt())).thenAnswer(invocation -> {
+            int pid = invocation.getArgument(0);
+            int amount = invocation.getArgument(1);
+            int[] rows = {0};
+            stock.computeIfPresent(pid, (k, num) -> {
+                if (num < amount) {
+                    return num;
+                }
+                rows[0] = 1;
+                return num - amount;
+            });
+            return rows[0];
+        });
+        when(productMapper.increaseNum(anyInt(), anyInt())).thenAnswer(invocation -> {
+            stock.merge(invocation.getArgument(0), invocation.<Integer>getArgument(1), Integer::sum);
+            return 1;
+        });
+        when(orderMapper.insertOrders(any())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            // 第一批写入时阻塞，让后续订单在队列中积压
+            if (batches.isEmpty()) {
+                batches.add(orders.size());
+                firstBatchStarted.countDown();
+                releaseFirstBatch.await(5, TimeUnit.SECONDS);
+            } else {
+                batches.add(orders.size());
+            }
+            return orders.size();
+        });
+        when(orderMapper.insertOrderItems(any())).thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+    }
+
+    private void start(int capacity) {
+        intake = new OrderIntake(orderMapper, productMapper, mock(SalesRanking.class), mock(AlsoBoughtIndex.class),
+                mock(ApplicationEventPublisher.class), mock(PlatformTransactionManager.class), capacity, 100, 600000);
+        intake.start();
+    }
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        releaseFirstBatch.countDown();
+        intake.stop();
+    }
+
+    /** 订单的oid按提交顺序从1开始 */
+    private Order order() {
+        Order order = new Order();
+        order.setOid(nextOid.getAndIncrement());
+        return order;
+    }
+
+    private static List<OrderItem> items(int... pidAndNum) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < pidAndNum.length; i += 2) {
+            OrderItem item = new OrderItem();
+            item.setPid(pidAndNum[i]);
+            item.setNum(pidAndNum[i + 1]);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private OrderTicketVO await(int uid, OrderTicketVO ticket) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            OrderTicketVO current = intake.getTicket(uid, ticket.getToken());
+            if (current.getStatus() != OrderTicketVO.PENDING) {
+                return current;
+            }
+            Thread.sleep(10);
+        }
+        fail("订单没有写入");
+        return null;
+    }
+
+    @Test
+    void queuedOrdersAreCommittedTogether() throws Exception {
+        stock.put(1, 100);
+        start(100);
+        OrderTicketVO first = intake.submit(7, order(), items(1, 1));
+        assertEquals(OrderTicketVO.PENDING, first.getStatus().intValue());
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+
+        List<OrderTicketVO> tickets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tickets.add(intake.submit(7, order(), items(1, 1)));
+        }
+        releaseFirstBatch.countDown();
+        for (OrderTicketVO ticket : tickets) {
+            assertEquals(OrderTicketVO.CREATED, await(7, ticket).getStatus().intValue());
+        }
+        assertEquals(Long.valueOf(1), await(7, first).getOid());
+        // 第一批写入期间到达的20个订单合并为一批
+        assertEquals(Collections.singletonList(20), batches.subList(1, batches.size()));
+        assertEquals(Integer.valueOf(79), stock.get(1));
+        assertNull(intake.getTicket(8, first.getToken()));
+    }
+
+    @Test
+    void outOfStockOrderIsRejectedAndItsStockRestored() throws Exception {
+        stock.put(1, 100);
+        stock.put(2, 5);
+        stock.put(3, 0);
+        start(100);
+        intake.submit(7, order(), items(1, 1));
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+
+        OrderTicketVO ok = intake.submit(7, order(), items(2, 2));
+        OrderTicketVO rejected = intake.submit(7, order(), items(2, 1, 3, 1));
+        releaseFirstBatch.countDown();
+
+        assertEquals(OrderTicketVO.CREATED, await(7, ok).getStatus().intValue());
+        OrderTicketVO result = await(7, rejected);
+        assertEquals(OrderTicketVO.FAILED, result.getStatus().intValue());
+        assertNull(result.getOid());
+        assertEquals(Integer.valueOf(3), stock.get(2));
+        assertEquals(Integer.valueOf(0), stock.get(3));
+    }
+
+    @Test
+    void stockHeldByAFailingOrderIsRetriedForOthers() throws Exception {
+        stock.put(1, 100);
+        stock.put(3, 2);
+        stock.put(5, 0);
+        start(100);
+        intake.submit(7, order(), items(1, 1));
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+
+        // Y先扣下pid 3的全部库存，X在pid 3上失败；Y随后在pid 5上失败并归还pid 3
+        OrderTicketVO y = intake.submit(7, order(), items(3, 2, 5, 1));
+        OrderTicketVO x = intake.submit(7, order(), items(3, 1));
+        releaseFirstBatch.countDown();
+
+        assertEquals(OrderTicketVO.FAILED, await(7, y).getStatus().intValue());
+        assertEquals(OrderTicketVO.CREATED, await(7, x).getStatus().intValue());
+        assertEquals(Integer.valueOf(1), stock.get(3));
+        assertEquals(Integer.valueOf(0), stock.get(5));
+    }
+
+    @Test
+    void missingItemRowsFailTheOrder() throws Exception {
+        stock.put(1, 10);
+        releaseFirstBatch.countDown();
+        doReturn(0).when(orderMapper).insertOrderItems(any());
+        start(10);
+        OrderTicketVO ticket = await(7, intake.submit(7, order(), items(1, 1)));
+        assertEquals(OrderTicketVO.FAILED, ticket.getStatus().intValue());
+        assertNull(ticket.getOid());
+    }
+
+    @Test
+    void fullQueueFallsBackToSynchronousWrite() throws Exception {
+        stock.put(1, 100);
+        start(2);
+        intake.submit(7, order(), items(1, 1));
+        assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+        intake.submit(7, order(), items(1, 1));
+        intake.submit(7, order(), items(1, 1));
+
+        // 队列已满，在调用线程中写入，返回时已有结果
+        OrderTicketVO ticket = intake.submit(7, order(), items(1, 1));
+        assertEquals(OrderTicketVO.CREATED, ticket.getStatus().intValue());
+        assertNotNull(ticket.getOid());
+        verify(orderMapper, times(2)).insertOrders(any());
+    }
+
+    @Test
+    void ordersSubmittedDuringStopAreNotLeftPending() throws Exception {
+        stock.put(1, 100000);
+        releaseFirstBatch.countDown();
+        start(1000);
+        List<OrderTicketVO> tickets = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch submitting = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                submitting.countDown();
+                for (int i = 0; i < 500; i++) {
+                    tickets.add(intake.submit(7, order(), items(1, 1)));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        submitting.await();
+        intake.stop();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 停止之后提交的订单同步写入，停止之前入队的订单都已写入
+        for (OrderTicketVO ticket : tickets) {
+            assertEquals(OrderTicketVO.CREATED, intake.getTicket(7, ticket.getToken()).getStatus().intValue());
+        }
+        assertEquals(2000, tickets.size());
+    }
+}
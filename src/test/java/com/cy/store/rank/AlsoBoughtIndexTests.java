@@ -0,0 +1,67 @@
+package com.cy.store.rank;
+
+import com.cy.store.entity.OrderItem;
+import com.cy.store.mapper.OrderMapper;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AlsoBoughtIndexTests {
+    private static OrderItem item(long oid, int pid) {
+        OrderItem item = new OrderItem();
+        item.setOid(oid);
+        item.setPid(pid);
+        return item;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void feed(ResultHandler<OrderItem> handler, OrderItem item) {
+        ResultContext<OrderItem> context = mock(ResultContext.class);
+        when(context.getResultObject()).thenReturn(item);
+        handler.handleResult(context);
+    }
+
+    @Test
+    void recordBeforeLoadIsNoop() {
+        OrderMapper orderMapper = mock(OrderMapper.class);
+        AlsoBoughtIndex index = new AlsoBoughtIndex(orderMapper, 10);
+        index.record(Arrays.asList(1, 2));
+        verify(orderMapper, never()).scanOrderItems(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordDuringRebuildIsKept() {
+        OrderMapper orderMapper = mock(OrderMapper.class);
+        AlsoBoughtIndex index = new AlsoBoughtIndex(orderMapper, 10);
+        doAnswer(invocation -> {
+            ResultHandler<OrderItem> handler = invocation.getArgument(0);
+            feed(handler, item(1L, 1));
+            // 扫描期间提交的新订单
+            index.record(Arrays.asList(7, 8));
+            feed(handler, item(1L, 2));
+            return null;
+        }).when(orderMapper).scanOrderItems(any());
+
+        index.rebuild();
+        assertEquals(Collections.singletonList(2), index.find(1, 10));
+        assertEquals(Collections.singletonList(8), index.find(7, 10));
+    }
+
+    @Test
+    void nonPositiveIdHasNoResult() {
+        OrderMapper orderMapper = mock(OrderMapper.class);
+        AlsoBoughtIndex index = new AlsoBoughtIndex(orderMapper, 10);
+        assertTrue(index.find(0, 10).isEmpty());
+        assertTrue(index.find(-1, 10).isEmpty());
+        assertTrue(index.find(null, 10).isEmpty());
+        verify(orderMapper, never()).scanOrderItems(any());
+    }
+}
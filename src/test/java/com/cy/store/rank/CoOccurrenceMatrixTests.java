@@ -0,0 +1,62 @@
+package com.cy.store.rank;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoOccurrenceMatrixTests {
+    @Test
+    void neighboursOrderedByCount() {
+        CoOccurrenceMatrix matrix = new CoOccurrenceMatrix(10);
+        matrix.addBasket(new int[]{1, 2, 3});
+        matrix.addBasket(new int[]{1, 3});
+        matrix.addBasket(new int[]{1, 3, 4});
+        matrix.addBasket(new int[]{5});
+
+        assertArrayEquals(new int[]{3, 2, 4}, matrix.neighbours(1, 10));
+        assertArrayEquals(new int[]{3}, matrix.neighbours(1, 1));
+        assertEquals(3, matrix.count(3, 1));
+        assertEquals(0, matrix.count(2, 4));
+        assertEquals(0, matrix.neighbours(5, 10).length);
+        assertEquals(0, matrix.neighbours(6, 10).length);
+    }
+
+    @Test
+    void cappedRowsKeepFrequentNeighbours() {
+        CoOccurrenceMatrix matrix = new CoOccurrenceMatrix(8);
+        Random random = new Random(3);
+        for (int i = 0; i < 5000; i++) {
+            // 商品1经常和2、3一起购买，偶尔和大量其他商品一起购买
+            int other = i % 5 == 0 ? 2 : i % 5 == 1 ? 3 : 100 + random.nextInt(10000);
+            matrix.addBasket(new int[]{1, other});
+        }
+        int[] top = matrix.neighbours(1, 2);
+        assertTrue((top[0] == 2 && top[1] == 3) || (top[0] == 3 && top[1] == 2));
+        assertTrue(matrix.count(1, 2) >= 1000);
+    }
+
+    @Test
+    void manyProducts() {
+        CoOccurrenceMatrix matrix = new CoOccurrenceMatrix(20);
+        Random random = new Random(5);
+        for (int i = 0; i < 100000; i++) {
+            int a = 10000000 + random.nextInt(20000);
+            matrix.addBasket(new int[]{a, a + 1, 10000000 + random.nextInt(20000)});
+        }
+        assertTrue(matrix.size() > 19000);
+        for (int pid = 10000001; pid < 10000100; pid++) {
+            // 相邻id的商品总是一起购买
+            int[] top = matrix.neighbours(pid, 2);
+            assertTrue(top[0] == pid - 1 || top[0] == pid + 1);
+        }
+        long start = System.nanoTime();
+        int total = 0;
+        for (int i = 0; i < 100000; i++) {
+            total += matrix.neighbours(10000000 + i % 20000, 10).length;
+        }
+        System.out.println("共同购买查询平均耗时：" + (System.nanoTime() - start) / 100000 + "ns");
+        assertTrue(total > 0);
+    }
+}
@@ -0,0 +1,104 @@
+package com.cy.store.rank;
+
+import com.cy.store.mapper.ProductStatMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductViewCounterTests {
+    /** 模拟t_product_stat：累加写入的次数 */
+    private final Map<Integer, Long> table = new ConcurrentHashMap<>();
+    private final AtomicInteger statements = new AtomicInteger();
+    private final ProductStatMapper mapper = mock(ProductStatMapper.class);
+    private volatile boolean failing;
+
+    ProductViewCounterTests() {
+        when(mapper.addViewCounts(any())).thenAnswer(invocation -> {
+            if (failing) {
+                throw new IllegalStateException("数据库连接失败");
+            }
+            Map<Integer, Long> views = invocation.getArgument(0);
+            statements.incrementAndGet();
+            views.forEach((pid, count) -> table.merge(pid, count, Long::sum));
+            return views.size();
+        });
+    }
+
+    @Test
+    void flushesOnlyTheIncrementsInBatches() {
+        ProductViewCounter counter = new ProductViewCounter(mapper);
+        for (int pid = 1; pid <= 1200; pid++) {
+            counter.record(pid);
+        }
+        counter.record(1);
+        assertEquals(1201, counter.pending());
+        assertEquals(1200, counter.flush());
+        assertEquals(3, statements.get(), "每条语句最多写入500个商品");
+        assertEquals(2L, table.get(1));
+        assertEquals(0, counter.pending());
+
+        // 没有新的浏览时不访问数据库
+        assertEquals(0, counter.flush());
+        assertEquals(3, statements.get());
+        counter.record(1);
+        assertEquals(1, counter.flush());
+        assertEquals(3L, table.get(1));
+    }
+
+    @Test
+    void failedFlushIsRetriedWithoutDoubleCounting() {
+        ProductViewCounter counter = new ProductViewCounter(mapper);
+        counter.record(7);
+        counter.record(7);
+        failing = true;
+        counter.scheduledFlush();
+        assertEquals(2, counter.pending());
+        assertEquals(1L, counter.getStats().getFlushFailures());
+
+        failing = false;
+        counter.record(7);
+        counter.flush();
+        assertEquals(3L, table.get(7));
+        assertEquals(0, counter.pending());
+    }
+
+    @Test
+    void concurrentViewsAreNotLost() throws Exception {
+        ProductViewCounter counter = new ProductViewCounter(mapper);
+        int threads = 8;
+        int perThread = 200000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    counter.record(10000001 + (i & 15));
+                }
+            });
+        }
+        pool.shutdown();
+        // 写入与浏览同时进行
+        while (!pool.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+            counter.flush();
+        }
+        long elapsed = System.nanoTime() - start;
+        counter.flush();
+        long total = 0;
+        for (long count : table.values()) {
+            total += count;
+        }
+        assertEquals((long) threads * perThread, total);
+        System.out.println(threads + "个线程记录" + total + "次浏览耗时：" + elapsed / 1000000
+                + "ms，写入" + statements.get() + "次");
+    }
+}
@@ -0,0 +1,67 @@
+package com.cy.store.rank;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingTopKTests {
+    private static final long HOUR = 3600000L;
+    private static final long DAY = 24 * HOUR;
+
+    @Test
+    void findsHeavyHittersAmongNoise() {
+        SlidingTopK topK = new SlidingTopK(DAY, 24, 50, 1024);
+        Random random = new Random(7);
+        long now = 100 * DAY;
+        for (int i = 0; i < 200000; i++) {
+            topK.add(1000 + random.nextInt(50000), 1, now + random.nextInt((int) HOUR));
+        }
+        for (int i = 0; i < 300; i++) {
+            topK.add(1, 10, now);
+            topK.add(2, 8, now);
+            topK.add(3, 6, now);
+        }
+        assertEquals(Arrays.asList(1, 2, 3), topK.top(3, now + HOUR));
+        int estimate = topK.estimate(1, now + HOUR);
+        assertTrue(estimate >= 3000 && estimate < 3300, "估计值：" + estimate);
+    }
+
+    @Test
+    void oldSalesLeaveTheWindow() {
+        SlidingTopK topK = new SlidingTopK(DAY, 24, 10, 256);
+        long start = 10 * DAY;
+        topK.add(1, 100, start);
+        topK.add(2, 10, start + 12 * HOUR);
+        assertEquals(Arrays.asList(1, 2), topK.top(10, start + 12 * HOUR));
+
+        // 商品1的销量已超出24小时窗口
+        List<Integer> top = topK.top(10, start + DAY + HOUR);
+        assertEquals(Arrays.asList(2), top);
+        assertEquals(0, topK.estimate(1, start + DAY + HOUR));
+        assertEquals(10, topK.estimate(2, start + DAY + HOUR));
+
+        // 早于窗口起点的数据被忽略，窗口内较早的数据计入对应的时间段
+        topK.add(3, 50, start);
+        topK.add(4, 5, start + 20 * HOUR);
+        assertEquals(new HashSet<>(Arrays.asList(2, 4)), new HashSet<>(topK.top(10, start + DAY + HOUR)));
+        assertTrue(topK.top(10, start + 3 * DAY).isEmpty());
+    }
+
+    @Test
+    void capacityKeepsTheLargest() {
+        SlidingTopK topK = new SlidingTopK(DAY, 24, 3, 1024);
+        long now = DAY;
+        for (int key = 1; key <= 10; key++) {
+            topK.add(key, key, now);
+        }
+        assertEquals(Arrays.asList(10, 9, 8), topK.top(5, now));
+        // 候选之外的商品销量上升后进入排行
+        topK.add(1, 20, now);
+        assertEquals(Arrays.asList(1, 10, 9), topK.top(5, now));
+    }
+}
@@ -0,0 +1,68 @@
+package com.cy.store.sale;
+
+import com.cy.store.entity.Order;
+import com.cy.store.entity.OrderItem;
+import com.cy.store.mapper.OrderMapper;
+import com.cy.store.rank.SalesRanking;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class FlashSaleOrderWriterTests {
+    private static final long BAD_OID = 3L;
+
+    @Test
+    void failingOrderIsRetriedUntilWritten() {
+        // 含BAD_OID的写入前4次失败
+        AtomicInteger failures = new AtomicInteger(4);
+        OrderMapper orderMapper = mock(OrderMapper.class);
+        when(orderMapper.insertOrders(anyList())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            for (Order order : orders) {
+                if (order.getOid() == BAD_OID && failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("写入失败");
+                }
+            }
+            return orders.size();
+        });
+        when(orderMapper.insertOrderItems(anyList())).thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+        SalesRanking salesRanking = mock(SalesRanking.class);
+        FlashSaleOrderWriter writer = new FlashSaleOrderWriter(orderMapper, salesRanking,
+                mock(PlatformTransactionManager.class));
+        for (long oid = 1; oid <= 5; oid++) {
+            Order order = new Order();
+            order.setOid(oid);
+            order.setUid((int) oid);
+            order.setStatus(0);
+            OrderItem item = new OrderItem();
+            item.setOid(oid);
+            item.setPid(10000017);
+            item.setNum(1);
+            writer.submit(order, item);
+        }
+
+        // 同批的其他订单不受影响
+        assertEquals(4, writer.flush());
+        assertEquals(1, writer.pending());
+        assertEquals(1, writer.retrying());
+        verify(salesRanking, times(4)).record(anyInt(), anyInt());
+
+        // 失败的订单一直保留，不会被丢弃
+        assertEquals(0, writer.flush());
+        assertEquals(1, writer.pending());
+        assertEquals(1, writer.retrying());
+
+        // 关闭时反复写入，直到全部写入才返回
+        writer.destroy();
+        assertEquals(0, writer.pending());
+        assertEquals(0, writer.retrying());
+        verify(salesRanking, times(5)).record(anyInt(), anyInt());
+    }
+}
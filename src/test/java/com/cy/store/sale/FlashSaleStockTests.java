@@ -0,0 +1,186 @@
+package com.cy.store.sale;
+
+import com.cy.store.entity.Product;
+import com.cy.store.mapper.ProductMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class FlashSaleStockTests {
+    private static final int PID = 10000017;
+
+    /** 模拟t_product中该商品的库存 */
+    private final AtomicInteger table = new AtomicInteger();
+    private final ProductMapper mapper = mock(ProductMapper.class);
+
+    FlashSaleStockTests() {
+        when(mapper.findById(PID)).thenAnswer(invocation -> {
+            Product product = new Product();
+            product.setId(PID);
+            product.setNum(table.get());
+            return product;
+        });
+        when(mapper.decreaseNum(eq(PID), anyInt())).thenAnswer(invocation -> {
+            int amount = invocation.getArgument(1);
+            int num = table.get();
+            return num >= amount && table.compareAndSet(num, num - amount) ? 1 : 0;
+        });
+        when(mapper.increaseNum(eq(PID), anyInt())).thenAnswer(invocation ->
+                table.addAndGet(invocation.<Integer>getArgument(1)) > 0 ? 1 : 0);
+    }
+
+    @Test
+    void reservesStockAndReturnsTheRest() {
+        table.set(10);
+        FlashSaleStock stock = new FlashSaleStock(mapper, mock(ApplicationEventPublisher.class), 4, 0, new int[0]);
+        assertEquals(10, stock.start(PID));
+        assertEquals(0, table.get());
+        assertEquals(10, stock.start(PID));
+
+        for (int uid = 1; uid <= 3; uid++) {
+            assertEquals(FlashSaleStock.Admission.ADMITTED, stock.tryAcquire(PID, uid));
+        }
+        assertEquals(FlashSaleStock.Admission.REPEATED, stock.tryAcquire(PID, 1));
+        assertEquals(7, stock.getStats().get(0).getRemaining().intValue());
+
+        assertEquals(7, stock.end(PID));
+        assertEquals(7, table.get());
+        assertEquals(FlashSaleStock.Admission.NOT_ON_SALE, stock.tryAcquire(PID, 4));
+        // 不在秒杀中的商品不算售罄
+        assertFalse(stock.isSoldOut(PID));
+    }
+
+    @Test
+    void releasedStockCanBeBoughtAgain() {
+        table.set(1);
+        FlashSaleStock stock = new FlashSaleStock(mapper, mock(ApplicationEventPublisher.class), 4, 0, new int[0]);
+        stock.start(PID);
+        assertEquals(FlashSaleStock.Admission.ADMITTED, stock.tryAcquire(PID, 1));
+        assertEquals(FlashSaleStock.Admission.SOLD_OUT, stock.tryAcquire(PID, 2));
+        assertTrue(stock.isSoldOut(PID));
+
+        // 订单写入失败，退回的库存和购买资格都可再次使用
+        stock.release(PID, 1);
+        assertFalse(stock.isSoldOut(PID));
+        assertEquals(FlashSaleStock.Admission.ADMITTED, stock.tryAcquire(PID, 1));
+
+        // 秒杀结束后退回的库存直接归还数据库
+        assertEquals(0, stock.end(PID));
+        stock.release(PID, 1);
+        assertEquals(1, table.get());
+    }
+
+    @Test
+    void releaseDuringScanIsNotHiddenBySoldOut() throws Exception {
+        table.set(1);
+        FlashSaleStock stock = new FlashSaleStock(mapper, mock(ApplicationEventPublisher.class), 4, 0, new int[0]);
+        stock.start(PID);
+        int holder = 1;
+        assertEquals(FlashSaleStock.Admission.ADMITTED, stock.tryAcquire(PID, holder));
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 10000; round++) {
+                int buyer = round + 2;
+                int released = holder;
+                CountDownLatch go = new CountDownLatch(1);
+                Future<FlashSaleStock.Admission> acquire = pool.submit(() -> {
+                    go.await();
+                    return stock.tryAcquire(PID, buyer);
+                });
+                Future<?> release = pool.submit(() -> {
+                    go.await();
+                    stock.release(PID, released);
+                    return null;
+                });
+                go.countDown();
+                release.get();
+                if (acquire.get() == FlashSaleStock.Admission.ADMITTED) {
+                    holder = buyer;
+                    continue;
+                }
+                // 退回的库存必须还能抢到
+                assertFalse(stock.isSoldOut(PID), "round " + round);
+                assertEquals(FlashSaleStock.Admission.ADMITTED, stock.tryAcquire(PID, released));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredSaleEndsAndReturnsStock() throws InterruptedException {
+        table.set(10);
+        FlashSaleStock stock = new FlashSaleStock(mapper, mock(ApplicationEventPublisher.class), 4, 0, new int[0]);
+        stock.start(PID, 20);
+        assertEquals(FlashSaleStock.Admission.ADMITTED, stock.tryAcquire(PID, 1));
+        stock.endExpired();
+        assertEquals(1, stock.getStats().size(), "未到期");
+
+        Thread.sleep(40);
+        assertFalse(stock.isSoldOut(PID));
+        assertEquals(FlashSaleStock.Admission.NOT_ON_SALE, stock.tryAcquire(PID, 2));
+        stock.endExpired();
+        assertEquals(9, table.get());
+        assertTrue(stock.getStats().isEmpty());
+    }
+
+    @Test
+    void concurrentBuyersNeverOversell() throws Exception {
+        int stockSize = 1000;
+        int buyers = 200000;
+        int threads = 32;
+        table.set(stockSize);
+        FlashSaleStock stock = new FlashSaleStock(mapper, mock(ApplicationEventPublisher.class), 16, 0, new int[0]);
+        stock.start(PID);
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        long start;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    go.await();
+                    for (int uid = next.getAndIncrement(); uid < buyers; uid = next.getAndIncrement()) {
+                        FlashSaleStock.Admission admission = stock.tryAcquire(PID, uid);
+                        if (admission == FlashSaleStock.Admission.ADMITTED) {
+                            admitted.incrementAndGet();
+                        } else if (admission == FlashSaleStock.Admission.SOLD_OUT) {
+                            soldOut.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start = System.nanoTime();
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = Math.max(1, (System.nanoTime() - start) / 1000000);
+
+        assertEquals(stockSize, admitted.get());
+        assertEquals(buyers - stockSize, soldOut.get());
+        assertEquals(0, stock.end(PID));
+        assertEquals(0, table.get());
+        System.out.println(buyers + "次抢购耗时" + elapsed + "ms，" + buyers * 1000L / elapsed + "次/秒");
+    }
+}
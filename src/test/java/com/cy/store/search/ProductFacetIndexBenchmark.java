@@ -0,0 +1,79 @@
+package com.cy.store.search;
+
+// 类名不以Tests结尾，不在默认的测试中执行，需单独运行：mvn test -Dtest=ProductFacetIndexBenchmark
+
+import com.cy.store.entity.Product;
+import com.cy.store.mapper.ProductMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.cy.store.search.ProductFacetIndexTests.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductFacetIndexBenchmark {
+    private static final long[] PRICE_BANDS = {50, 200, 1000, 5000};
+
+    /** 100万个商品的构建时间和筛选延迟 */
+    @Test
+    void benchmarkOneMillionProducts() {
+        int n = 1000000;
+        Random random = new Random(42);
+        String[] itemTypes = new String[200];
+        for (int i = 0; i < itemTypes.length; i++) {
+            itemTypes[i] = "系列" + i;
+        }
+        List<Product> products = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            products.add(product(10000000 + i, 100 + random.nextInt(500), itemTypes[random.nextInt(itemTypes.length)],
+                    (long) Math.exp(random.nextDouble() * 10), random.nextInt(10) == 0 ? 2 : 1));
+        }
+        ProductMapper productMapper = mock(ProductMapper.class);
+        when(productMapper.findAll()).thenReturn(products);
+        ProductFacetIndex index = new ProductFacetIndex(productMapper, PRICE_BANDS);
+
+        long start = System.nanoTime();
+        index.rebuild();
+        long buildMs = (System.nanoTime() - start) / 1000000;
+
+        List<Map<String, List<String>>> queries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Map<String, List<String>> filters = new HashMap<>();
+            filters.put(ProductFacetIndex.STATUS, Collections.singletonList("1"));
+            filters.put(ProductFacetIndex.CATEGORY, Arrays.asList(
+                    String.valueOf(100 + random.nextInt(500)), String.valueOf(100 + random.nextInt(500))));
+            if (i % 2 == 0) {
+                filters.put(ProductFacetIndex.PRICE_BAND, Collections.singletonList("200-1000"));
+            }
+            queries.add(filters);
+        }
+        for (Map<String, List<String>> filters : queries) {
+            index.query(filters, 0, 20);   // 预热
+        }
+        long[] latencies = new long[queries.size()];
+        int total = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            long t = System.nanoTime();
+            total += index.query(queries.get(i), 0, 20).getTotal();
+            latencies[i] = System.nanoTime() - t;
+        }
+        Arrays.sort(latencies);
+        long t = System.nanoTime();
+        int all = index.query(Collections.singletonMap(ProductFacetIndex.STATUS, Collections.singletonList("1")), 0, 20).getTotal();
+        long broadUs = (System.nanoTime() - t) / 1000;
+
+        System.out.println("分面索引：" + n + "个商品，构建耗时" + buildMs + "ms，"
+                + "多条件筛选p50=" + latencies[latencies.length / 2] / 1000 + "us，"
+                + "p99=" + latencies[latencies.length * 99 / 100] / 1000 + "us，"
+                + "仅按状态筛选（" + all + "条）" + broadUs + "us");
+        assertTrue(total > 0);
+        assertTrue(all > n * 8 / 10);
+    }
+}
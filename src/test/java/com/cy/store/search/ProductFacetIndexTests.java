@@ -0,0 +1,132 @@
+package com.cy.store.search;
+
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class ProductFacetIndexTests {
+    private static final long[] PRICE_BANDS = {50, 200, 1000, 5000};
+
+    private ProductMapper productMapper;
+    private ProductFacetIndex index;
+
+    static Product product(int id, int categoryId, String itemType, long price, int status) {
+        Product p = new Product();
+        p.setId(id);
+        p.setCategoryId(categoryId);
+        p.setItemType(itemType);
+        p.setPrice(price);
+        p.setStatus(status);
+        return p;
+    }
+
+    @BeforeEach
+    void setUp() {
+        productMapper = mock(ProductMapper.class);
+        when(productMapper.findAll()).thenReturn(Arrays.asList(
+                product(1, 238, "联想笔记本", 4999, 1),
+                product(2, 238, "戴尔笔记本", 6299, 1),
+                product(3, 241, "计算器", 58, 1),
+                product(4, 238, "联想笔记本", 4399, 2),
+                product(5, 241, "计算器", 28, 1)));
+        index = new ProductFacetIndex(productMapper, PRICE_BANDS);
+        index.rebuild();
+    }
+
+    @Test
+    void priceBand() {
+        assertEquals("0-50", index.priceBand(28L));
+        assertEquals("50-200", index.priceBand(50L));
+        assertEquals("1000-5000", index.priceBand(4999L));
+        assertEquals("5000-", index.priceBand(6299L));
+    }
+
+    @Test
+    void filtersIntersectAcrossFacetsAndUnionWithin() {
+        FacetHits hits = index.query(filters(
+                ProductFacetIndex.CATEGORY, "238",
+                ProductFacetIndex.STATUS, "1"), 0, 10);
+        assertEquals(2, hits.getTotal());
+        assertEquals(Arrays.asList(1, 2), hits.getIds());
+
+        Map<String, List<String>> filters = new HashMap<>();
+        filters.put(ProductFacetIndex.PRICE_BAND, Arrays.asList("0-50", "5000-"));
+        assertEquals(Arrays.asList(2, 5), index.query(filters, 0, 10).getIds());
+    }
+
+    @Test
+    void countsIgnoreTheFacetsOwnSelection() {
+        FacetHits hits = index.query(filters(
+                ProductFacetIndex.CATEGORY, "238",
+                ProductFacetIndex.STATUS, "1"), 0, 10);
+        Map<String, Map<String, Integer>> counts = hits.getCounts();
+        // 分类的计数只受状态筛选的影响
+        assertEquals(Integer.valueOf(2), counts.get(ProductFacetIndex.CATEGORY).get("238"));
+        assertEquals(Integer.valueOf(2), counts.get(ProductFacetIndex.CATEGORY).get("241"));
+        // 其他分面的计数基于全部筛选条件
+        assertEquals(Integer.valueOf(1), counts.get(ProductFacetIndex.ITEM_TYPE).get("联想笔记本"));
+        assertNull(counts.get(ProductFacetIndex.ITEM_TYPE).get("计算器"));
+        assertEquals(Integer.valueOf(2), counts.get(ProductFacetIndex.STATUS).get("1"));
+        assertEquals(Integer.valueOf(1), counts.get(ProductFacetIndex.STATUS).get("2"));
+    }
+
+    @Test
+    void unknownValueMatchesNothing() {
+        FacetHits hits = index.query(filters(ProductFacetIndex.CATEGORY, "999"), 0, 10);
+        assertEquals(0, hits.getTotal());
+        assertTrue(hits.getIds().isEmpty());
+    }
+
+    @Test
+    void pagingWithoutFilters() {
+        FacetHits hits = index.query(Collections.<String, List<String>>emptyMap(), 2, 2);
+        assertEquals(5, hits.getTotal());
+        assertEquals(Arrays.asList(3, 4), hits.getIds());
+    }
+
+    @Test
+    void deepPagesSeekByRank() {
+        Map<String, List<String>> active = filters(ProductFacetIndex.STATUS, "1");
+        assertEquals(Arrays.asList(3, 5), index.query(active, 2, 10).getIds());
+        FacetHits beyond = index.query(active, 4, 10);
+        assertEquals(4, beyond.getTotal());
+        assertTrue(beyond.getIds().isEmpty());
+    }
+
+    @Test
+    void incrementalUpdate() throws InterruptedException {
+        // 商品5已删除，查询结果中没有
+        when(productMapper.findByIds(anyCollection())).thenReturn(
+                Collections.singletonList(product(3, 241, "计算器", 58, 2)));
+        index.onProductChanged(ProductChangedEvent.stock(this, Arrays.asList(1, 2)));
+        index.onProductChanged(new ProductChangedEvent(this, 3, 5));
+        index.awaitChanges();
+        verify(productMapper, times(1)).findByIds(anyCollection());
+
+        FacetHits hits = index.query(filters(ProductFacetIndex.CATEGORY, "241"), 0, 10);
+        assertEquals(Arrays.asList(3), hits.getIds());
+        assertEquals(Integer.valueOf(1), hits.getCounts().get(ProductFacetIndex.STATUS).get("2"));
+        assertNull(hits.getCounts().get(ProductFacetIndex.PRICE_BAND).get("0-50"));
+    }
+
+    private static Map<String, List<String>> filters(String... facetAndValue) {
+        Map<String, List<String>> filters = new HashMap<>();
+        for (int i = 0; i < facetAndValue.length; i += 2) {
+            filters.computeIfAbsent(facetAndValue[i], k -> new ArrayList<>()).add(facetAndValue[i + 1]);
+        }
+        return filters;
+    }
+}
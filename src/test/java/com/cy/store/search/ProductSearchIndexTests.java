@@ -0,0 +1,97 @@
+package com.cy.store.search;
+
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTests {
+    private ProductMapper productMapper;
+    private ProductSearchIndex index;
+
+    static Product product(int id, String title, String sellPoint, String itemType, int status, int priority) {
+        Product p = new Product();
+        p.setId(id);
+        p.setTitle(title);
+        p.setSellPoint(sellPoint);
+        p.setItemType(itemType);
+        p.setStatus(status);
+        p.setPriority(priority);
+        return p;
+    }
+
+    @BeforeEach
+    void setUp() {
+        productMapper = mock(ProductMapper.class);
+        when(productMapper.findAll()).thenReturn(Arrays.asList(
+                product(1, "联想（Lenovo）YOGA710 14英寸触控笔记本", "i7-7500U 8G 256GSSD", "联想笔记本", 1, 10),
+                product(2, "戴尔(DELL) XPS15升级版", "高性能轻薄笔记本", "戴尔笔记本", 1, 20),
+                product(3, "得力（deli）1548A商务办公桌面计算器", "太阳能双电源", "计算器", 1, 5),
+                product(4, "联想小新Air13 Pro 超轻薄笔记本电脑", "14.8mm", "联想笔记本", 2, 99)));
+        index = new ProductSearchIndex(productMapper);
+        index.rebuild();
+    }
+
+    @Test
+    void chineseKeyword() {
+        SearchHits hits = index.search("笔记本", 0, 10);
+        // 商品4已下架
+        assertEquals(2, hits.getTotal());
+        assertTrue(hits.getIds().containsAll(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    void titleAndItemTypeRankHigher() {
+        SearchHits hits = index.search("联想笔记本", 0, 10);
+        assertEquals(Integer.valueOf(1), hits.getIds().get(0));
+    }
+
+    @Test
+    void caseAndFullWidthInsensitive() {
+        assertEquals(Arrays.asList(2), index.search("ＤＥＬＬ", 0, 10).getIds());
+        assertEquals(Arrays.asList(2), index.search("xps", 0, 10).getIds());
+        assertEquals(Arrays.asList(3), index.search("计", 0, 10).getIds());
+    }
+
+    @Test
+    void queryTermsAreDistinctInOrder() {
+        assertEquals(Arrays.asList("笔记", "记本", "本笔"), NGramTokenizer.queryTerms("笔记本笔记本"));
+        assertEquals(Arrays.asList("aa"), NGramTokenizer.queryTerms(String.join("", Collections.nCopies(10000, "a"))));
+    }
+
+    @Test
+    void pagination() {
+        SearchHits first = index.search("笔记本", 0, 1);
+        SearchHits second = index.search("笔记本", 1, 1);
+        assertEquals(2, first.getTotal());
+        assertEquals(1, first.getIds().size());
+        assertEquals(1, second.getIds().size());
+        assertNotEquals(first.getIds(), second.getIds());
+        assertTrue(index.search("", 0, 10).getIds().isEmpty());
+        assertTrue(index.search("手机", 0, 10).getIds().isEmpty());
+    }
+
+    @Test
+    void incrementalUpdate() throws InterruptedException {
+        // 商品3已删除，查询结果中没有
+        when(productMapper.findByIds(anyCollection())).thenReturn(Collections.singletonList(
+                product(4, "联想小新Air13 Pro 超轻薄笔记本电脑", "14.8mm", "联想笔记本", 1, 99)));
+        index.onProductChanged(ProductChangedEvent.stock(this, Arrays.asList(1, 2)));
+        index.onProductChanged(new ProductChangedEvent(this, 4, 3));
+        index.awaitChanges();
+
+        assertEquals(3, index.search("笔记本", 0, 10).getTotal());
+        assertTrue(index.search("计算器", 0, 10).getIds().isEmpty());
+        assertEquals(3, index.size());
+        verify(productMapper, times(1)).findAll();
+        verify(productMapper, times(1)).findByIds(anyCollection());
+    }
+}
@@ -0,0 +1,98 @@
+package com.cy.store.search;
+
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.cy.store.search.ProductSearchIndexTests.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductSuggesterTests {
+
+    private static ProductSuggester suggester(List<Product> products) {
+        ProductMapper productMapper = mock(ProductMapper.class);
+        when(productMapper.findAll()).thenReturn(products);
+        ProductSuggester suggester = new ProductSuggester(productMapper);
+        suggester.rebuild();
+        return suggester;
+    }
+
+    @Test
+    void keys() {
+        assertEquals("联想yoga710", SuggestKeys.plain("联想 ＹＯＧＡ-710"));
+        assertEquals("lianxiangyoga", SuggestKeys.pinyin("联想 YOGA"));
+        assertEquals("lxyoga", SuggestKeys.initials("联想 YOGA"));
+    }
+
+    @Test
+    void chinesePinyinAndInitialsPrefixes() {
+        ProductSuggester suggester = suggester(Arrays.asList(
+                product(1, "联想小新Air13", null, null, 1, 10),
+                product(2, "联想YOGA710", null, null, 1, 50),
+                product(3, "戴尔XPS13", null, null, 1, 99),
+                product(4, "联想ThinkPad", null, null, 2, 100)));
+
+        // 按priority从高到低，下架商品不出现
+        assertEquals(Arrays.asList("联想YOGA710", "联想小新Air13"), suggester.suggest("联想", 10));
+        assertEquals(Arrays.asList("联想YOGA710", "联想小新Air13"), suggester.suggest("lianx", 10));
+        assertEquals(Arrays.asList("联想YOGA710", "联想小新Air13"), suggester.suggest("LX", 10));
+        assertEquals(Arrays.asList("联想小新Air13"), suggester.suggest("lxx", 10));
+        assertEquals(Arrays.asList("戴尔XPS13"), suggester.suggest("d", 10));
+        assertEquals(Arrays.asList("联想YOGA710"), suggester.suggest("联想", 1));
+        assertTrue(suggester.suggest("手机", 10).isEmpty());
+        assertTrue(suggester.suggest("", 10).isEmpty());
+        assertTrue(suggester.suggest(null, 10).isEmpty());
+    }
+
+    @Test
+    void changesAreCoalescedInBackground() throws InterruptedException {
+        ProductMapper productMapper = mock(ProductMapper.class);
+        when(productMapper.findAll()).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return Arrays.asList(product(1, "联想小新Air13", null, null, 1, 10));
+        });
+        ProductSuggester suggester = new ProductSuggester(productMapper);
+        suggester.rebuild();
+
+        suggester.onProductChanged(ProductChangedEvent.stock(this, Arrays.asList(1)));
+        suggester.awaitChanges();
+        verify(productMapper, times(1)).findAll();
+
+        for (int i = 0; i < 100; i++) {
+            suggester.onProductChanged(new ProductChangedEvent(this, 1));
+        }
+        suggester.awaitChanges();
+        verify(productMapper, atMost(3)).findAll();
+        assertEquals(Arrays.asList("联想小新Air13"), suggester.suggest("lx", 10));
+    }
+
+    @Test
+    void lookupLatency() {
+        String[] brands = {"联想", "戴尔", "华硕", "惠普", "宏碁", "小米", "苹果", "华为"};
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            products.add(product(i, brands[i % brands.length] + "笔记本电脑" + i, null, null, 1, i % 100));
+        }
+        long buildStart = System.nanoTime();
+        ProductSuggester suggester = suggester(products);
+        long buildMillis = (System.nanoTime() - buildStart) / 1000000;
+
+        String[] prefixes = {"联", "lx", "daier", "hs", "笔记本", "xiaomi", "pg", "hw"};
+        int rounds = 200000;
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < rounds; i++) {
+            found += suggester.suggest(prefixes[i % prefixes.length], 10).size();
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / rounds;
+        System.out.println("2万个商品构建耗时：" + buildMillis + "ms，每次联想查询平均耗时：" + micros + "μs");
+        assertTrue(found > 0);
+        assertTrue(micros < 1000, "联想查询应在1毫秒以内");
+    }
+}
@@ -0,0 +1,70 @@
+package com.cy.store.search;
+
+// 类名不以Tests结尾，不在默认的测试中执行，需单独运行：mvn test -Dtest=SimilarTitleIndexBenchmark
+
+import com.cy.store.entity.Product;
+import com.cy.store.mapper.ProductMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.cy.store.search.SimilarTitleIndexTests.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SimilarTitleIndexBenchmark {
+    /** 100万个商品的构建时间和查询延迟 */
+    @Test
+    void benchmarkOneMillionProducts() {
+        String[] brands = {"联想", "戴尔", "惠普", "华硕", "宏碁", "苹果", "小米", "华为", "得力", "广博", "齐心", "晨光"};
+        String[] kinds = {"笔记本电脑", "台式机", "显示器", "记事本", "计算器", "圆珠笔", "文件袋", "打印机", "键盘", "鼠标"};
+        String[] colors = {"黑色", "银色", "金色", "白色", "红色", "蓝色"};
+        String[] editions = {"标准版", "高配版", "尊贵版", "学习版", "旗舰版"};
+        Random random = new Random(11);
+        int n = 1000000;
+        List<Product> products = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            // 每个型号有若干种颜色和版本，型号之间文本差异较大
+            int model = i / 20;
+            String title = brands[model % brands.length] + "（" + Integer.toString(model * 7919, 36).toUpperCase() + "）"
+                    + kinds[(model / brands.length) % kinds.length] + " " + (model % 97 + 10) + "寸"
+                    + editions[random.nextInt(editions.length)] + colors[random.nextInt(colors.length)];
+            products.add(product(10000000 + i, title, "型号" + model));
+        }
+        ProductMapper productMapper = mock(ProductMapper.class);
+        when(productMapper.findAll()).thenReturn(products);
+        SimilarTitleIndex index = new SimilarTitleIndex(productMapper, 100);
+        long start = System.nanoTime();
+        index.rebuild();
+        long buildMs = (System.nanoTime() - start) / 1000000;
+
+        int queries = 2000;
+        long[] latencies = new long[queries];
+        int found = 0;
+        for (int q = 0; q < queries + 200; q++) {
+            Product product = products.get(random.nextInt(n));
+            long t = System.nanoTime();
+            List<Integer> similar = index.find(product, 10);
+            if (q >= 200) {
+                latencies[q - 200] = System.nanoTime() - t;
+                // 同一型号的其他颜色、版本应被找到
+                int model = (product.getId() - 10000000) / 20;
+                for (Integer pid : similar) {
+                    if ((pid - 10000000) / 20 == model) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+        }
+        Arrays.sort(latencies);
+        System.out.println("相似商品索引：" + n + "个商品，构建耗时" + buildMs + "ms，"
+                + "查询p50=" + latencies[queries / 2] / 1000 + "us，p99=" + latencies[queries * 99 / 100] / 1000 + "us，"
+                + "找到同型号商品的比例" + found * 100 / queries + "%");
+        assertEquals(n, index.size());
+        assertTrue(found > queries * 9 / 10);
+    }
+}
@@ -0,0 +1,83 @@
+package com.cy.store.search;
+
+import com.cy.store.entity.Product;
+import com.cy.store.event.ProductChangedEvent;
+import com.cy.store.mapper.ProductMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class SimilarTitleIndexTests {
+    private ProductMapper productMapper;
+    private SimilarTitleIndex index;
+
+    static Product product(int id, String title, String sellPoint) {
+        Product p = new Product();
+        p.setId(id);
+        p.setTitle(title);
+        p.setSellPoint(sellPoint);
+        p.setStatus(1);
+        return p;
+    }
+
+    @BeforeEach
+    void setUp() {
+        productMapper = mock(ProductMapper.class);
+        when(productMapper.findAll()).thenReturn(Arrays.asList(
+                product(1, "戴尔(DELL)XPS13-9360-R1609 13.3高配版银色", "仅上海，广州，沈阳仓有货！预购从速！"),
+                product(2, "戴尔(DELL)XPS13-9360-R1609 13.3高配版金色", "仅上海，广州，沈阳仓有货！预购从速！"),
+                product(3, "戴尔(DELL)XPS13-9360-R1609 13.3尊贵版银色", "仅上海，广州，沈阳仓有货！预购从速！"),
+                product(4, "得力（deli）1548A商务办公桌面计算器 太阳能双电源", "经典回顾！超值特惠！"),
+                product(5, "广博(GuangBo)皮面日程本子 计划记事本效率手册米色FB60322", "经典回顾！超值特惠！")));
+        index = new SimilarTitleIndex(productMapper, 100);
+        index.rebuild();
+    }
+
+    @Test
+    void findsNearDuplicates() {
+        List<Integer> similar = index.find(product(1, "戴尔(DELL)XPS13-9360-R1609 13.3高配版银色",
+                "仅上海，广州，沈阳仓有货！预购从速！"), 10);
+        assertEquals(2, similar.size(), similar.toString());
+        assertTrue(similar.containsAll(Arrays.asList(2, 3)));
+        assertTrue(index.find(product(4, "得力（deli）1548A商务办公桌面计算器 太阳能双电源", "经典回顾！超值特惠！"), 10).isEmpty());
+    }
+
+    @Test
+    void incrementalUpdates() {
+        Product added = product(6, "广博(GuangBo)皮面日程本子 计划记事本效率手册蓝色FB60321", "经典回顾！超值特惠！");
+        index.update(6, added);
+        index.update(3, null);
+        assertEquals(Arrays.asList(5), index.find(added, 10));
+        assertEquals(Arrays.asList(2), index.find(product(1, "戴尔(DELL)XPS13-9360-R1609 13.3高配版银色",
+                "仅上海，广州，沈阳仓有货！预购从速！"), 10));
+
+        // 重建后增量数据合并到快照中
+        when(productMapper.findAll()).thenReturn(Arrays.asList(
+                product(1, "戴尔(DELL)XPS13-9360-R1609 13.3高配版银色", "仅上海，广州，沈阳仓有货！预购从速！"),
+                product(5, "广博(GuangBo)皮面日程本子 计划记事本效率手册米色FB60322", "经典回顾！超值特惠！"),
+                added));
+        index.rebuild();
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList(6), index.find(product(5, "广博(GuangBo)皮面日程本子 计划记事本效率手册米色FB60322",
+                "经典回顾！超值特惠！"), 10));
+    }
+
+    @Test
+    void changesAreLoadedInBackground() throws InterruptedException {
+        Product added = product(6, "广博(GuangBo)皮面日程本子 计划记事本效率手册蓝色FB60321", "经典回顾！超值特惠！");
+        when(productMapper.findByIds(anyCollection())).thenReturn(Collections.singletonList(added));
+        index.onProductChanged(ProductChangedEvent.stock(this, Arrays.asList(1, 2)));
+        index.onProductChanged(new ProductChangedEvent(this, 6));
+        index.awaitChanges();
+
+        verify(productMapper, times(1)).findByIds(anyCollection());
+        assertEquals(Arrays.asList(5), index.find(added, 10));
+    }
+}
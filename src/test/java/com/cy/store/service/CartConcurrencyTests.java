@@ -0,0 +1,214 @@
+package com.cy.store.service;
+
+// 使用JUnit 4测试，需要连接数据库
+
+import com.cy.store.entity.Cart;
+import com.cy.store.mapper.CartMapper;
+import com.cy.store.service.ex.AccessDeniedException;
+import com.cy.store.service.ex.CartNotFoundException;
+import com.cy.store.vo.CartOperation;
+import com.cy.store.vo.CartVO;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/** 并发修改购物车：加入同一商品不产生重复数据，数量的增减不丢失 */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class CartConcurrencyTests {
+    private static final int LEGACY_UID = 99900;
+    /** 直接调用cartMapper.upsert，不经过内存购物车 */
+    private static final int UPSERT_UID = 99899;
+    /** 内存购物车在测试之间保留，每个测试使用新的用户 */
+    private static final AtomicInteger NEXT_UID = new AtomicInteger(99901);
+    private static final int PID = 10000017;
+    private static final int THREADS = 16;
+    private static final int ADDS_PER_THREAD = 50;
+
+    @Autowired
+    private ICartService cartService;
+    @Autowired
+    private CartMapper cartMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final int uid = NEXT_UID.getAndIncrement();
+
+    @After
+    public void deleteCarts() {
+        cartService.flush(uid);
+        jdbcTemplate.update("DELETE FROM t_cart WHERE uid IN (?, ?, ?)", uid, LEGACY_UID, UPSERT_UID);
+    }
+
+    @Test
+    public void concurrentAddsKeepOneRow() throws Exception {
+        long elapsed = runConcurrently(() -> cartService.addToCArt(uid, PID, 1, "test"));
+        cartService.flush(uid);
+
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM t_cart WHERE uid = ? AND pid = ?", Integer.class, uid, PID);
+        assertEquals(Integer.valueOf(1), rows);
+        assertEquals(Integer.valueOf(THREADS * ADDS_PER_THREAD), cartMapper.findByUidAndPid(uid, PID).getNum());
+        System.out.println("内存购物车：" + THREADS * ADDS_PER_THREAD * 1000L / Math.max(1, elapsed) + "次/秒");
+    }
+
+    /** 单条upsert语句的并发写入：依赖(uid, pid)唯一索引，不产生重复数据，数量不丢失 */
+    @Test
+    public void concurrentUpsertsKeepOneRow() throws Exception {
+        long elapsed = runConcurrently(() -> {
+            Cart cart = new Cart();
+            cart.setUid(UPSERT_UID);
+            cart.setPid(PID);
+            cart.setNum(1);
+            cart.setPrice(100L);
+            Date now = new Date();
+            cart.setCreatedUser("test");
+            cart.setCreatedTime(now);
+            cart.setModifiedUser("test");
+            cart.setModifiedTime(now);
+            cartMapper.upsert(cart);
+        });
+
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM t_cart WHERE uid = ? AND pid = ?", Integer.class, UPSERT_UID, PID);
+        assertEquals(Integer.valueOf(1), rows);
+        assertEquals(Integer.valueOf(THREADS * ADDS_PER_THREAD), cartMapper.findByUidAndPid(UPSERT_UID, PID).getNum());
+        System.out.println("单条语句：" + THREADS * ADDS_PER_THREAD * 1000L / Math.max(1, elapsed) + "次/秒");
+    }
+
+    /** 对照：原先先查询再插入或更新的写法，需要多次往返，且没有唯一索引时会产生重复数据 */
+    @Test
+    public void cartCacheIsFasterThanQueryThenWrite() throws Exception {
+        long legacy = runConcurrently(() -> {
+            Cart cart = cartMapper.findByUidAndPid(LEGACY_UID, PID);
+            if (cart == null) {
+                cart = new Cart();
+                cart.setUid(LEGACY_UID);
+                cart.setPid(PID);
+                cart.setNum(1);
+                cart.setPrice(100L);
+                try {
+                    cartMapper.insert(cart);
+                } catch (RuntimeException e) {
+                    // 唯一索引拒绝了并发插入的重复数据，这次添加丢失
+                }
+            } else {
+                cartMapper.updateNumByCid(cart.getCid(), cart.getNum() + 1, "test", new Date());
+            }
+        });
+        long cached = runConcurrently(() -> cartService.addToCArt(uid, PID, 1, "test"));
+        cartService.flush(uid);
+
+        int total = THREADS * ADDS_PER_THREAD;
+        System.out.println("先查询再写入：" + total * 1000L / Math.max(1, legacy) + "次/秒，数量为"
+                + cartMapper.findByUidAndPid(LEGACY_UID, PID).getNum() + "/" + total);
+        System.out.println("内存购物车：" + total * 1000L / Math.max(1, cached) + "次/秒，数量为"
+                + cartMapper.findByUidAndPid(uid, PID).getNum() + "/" + total);
+        assertEquals(Integer.valueOf(total), cartMapper.findByUidAndPid(uid, PID).getNum());
+    }
+
+    @Test
+    public void concurrentIncrementsAreNotLost() throws Exception {
+        cartService.addToCArt(uid, PID, 1, "test");
+        Integer cid = cartMapper.findByUidAndPid(uid, PID).getCid();
+
+        runConcurrently(() -> cartService.addNum(cid, uid, "test"));
+        cartService.flush(uid);
+        assertEquals(Integer.valueOf(1 + THREADS * ADDS_PER_THREAD), cartMapper.findByCid(cid).getNum());
+
+        runConcurrently(() -> cartService.reduceNum(cid, uid, "test"));
+        cartService.flush(uid);
+        // 减到1后不再减少
+        assertEquals(Integer.valueOf(1), cartMapper.findByCid(cid).getNum());
+        assertEquals(Integer.valueOf(2), cartService.addNum(cid, uid, "test"));
+        assertEquals(Integer.valueOf(1), cartService.reduceNum(cid, uid, "test"));
+        assertEquals(Integer.valueOf(1), cartService.reduceNum(cid, uid, "test"));
+    }
+
+    @Test
+    public void otherUsersCartIsRejected() {
+        cartService.addToCArt(uid, PID, 3, "test");
+        Integer cid = cartMapper.findByUidAndPid(uid, PID).getCid();
+        try {
+            cartService.addNum(cid, LEGACY_UID, "test");
+            fail();
+        } catch (AccessDeniedException e) {
+            // 预期的结果
+        }
+        try {
+            cartService.reduceNum(Integer.MAX_VALUE, uid, "test");
+            fail();
+        } catch (CartNotFoundException e) {
+            // 预期的结果
+        }
+        assertEquals(Integer.valueOf(3), cartMapper.findByCid(cid).getNum());
+    }
+
+    @Test
+    public void batchUpdateIsAllOrNothing() {
+        cartService.addToCArt(uid, PID, 1, "test");
+        Integer cid = cartMapper.findByUidAndPid(uid, PID).getCid();
+
+        List<CartVO> list = cartService.batchUpdate(uid, Arrays.asList(
+                new CartOperation(cid, 5, null, null),
+                new CartOperation(null, null, 10000001, 2),
+                new CartOperation(null, null, 10000001, 1)), "test");
+        assertEquals(2, list.size());
+        // 已写入数据库，不需要flush
+        assertEquals(Integer.valueOf(5), cartMapper.findByCid(cid).getNum());
+        assertEquals(Integer.valueOf(3), cartMapper.findByUidAndPid(uid, 10000001).getNum());
+
+        try {
+            cartService.batchUpdate(uid, Arrays.asList(
+                    new CartOperation(cid, 9, null, null),
+                    new CartOperation(Integer.MAX_VALUE, 1, null, null)), "test");
+            fail();
+        } catch (CartNotFoundException e) {
+            // 预期的结果
+        }
+        assertEquals(Integer.valueOf(5), cartMapper.findByCid(cid).getNum());
+        assertEquals(Integer.valueOf(5), cartService.getVOByUid(uid).get(1).getNum());
+    }
+
+    /** THREADS个线程同时开始，每个线程执行ADDS_PER_THREAD次task，返回总耗时（毫秒） */
+    private static long runConcurrently(Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    go.await();
+                    for (int j = 0; j < ADDS_PER_THREAD; j++) {
+                        task.run();
+                    }
+                    return null;
+                }));
+            }
+            long start = System.currentTimeMillis();
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.currentTimeMillis() - start;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.cy.store.service;
+
+// 使用JUnit 4测试，需要连接数据库
+// 类名不以Tests结尾，不在默认的测试中执行，需单独运行：mvn test -Dtest=OrderCreateBenchmark
+
+import com.cy.store.entity.Order;
+import com.cy.store.entity.OrderItem;
+import com.cy.store.mapper.OrderMapper;
+import com.cy.store.util.IdGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static com.cy.store.service.OrderCreateTests.UID;
+import static com.cy.store.service.OrderCreateTests.cleanupOrder;
+import static com.cy.store.service.OrderCreateTests.fillCart;
+import static com.cy.store.service.OrderCreateTests.prepareOrder;
+
+/**
+ * 下单的写入方式对比：逐条自动提交插入订单项（N+1次提交）与一个事务内各用一条语句写入订单和全部订单项（1次提交）
+ * 分别测量1、10、50个订单项的订单
+ */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class OrderCreateBenchmark {
+    private static final int ROUNDS = 50;
+    private static final int[] LINES = {1, 10, 50};
+
+    @Autowired
+    private IOrderService orderService;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private IdGenerator idGenerator;
+
+    private Integer aid;
+    private final List<Integer> pids = new ArrayList<>();
+    /** 测试前的库存，下单会扣减库存，结束后恢复 */
+    private final List<Integer> stocks = new ArrayList<>();
+
+    @Before
+    public void prepare() {
+        aid = prepareOrder(jdbcTemplate, pids, stocks);
+    }
+
+    @After
+    public void cleanup() {
+        cleanupOrder(jdbcTemplate, pids, stocks);
+    }
+
+    @Test
+    public void compareOneTenFiftyLines() {
+        for (int lines : LINES) {
+            Integer[] cids = fillCart(jdbcTemplate, pids, lines);
+            // 预热
+            orderService.create(aid, UID, "test", cids);
+            insertOneByOne(lines);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                insertOneByOne(lines);
+            }
+            long legacy = (System.nanoTime() - start) / ROUNDS;
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                orderService.create(aid, UID, "test", cids);
+            }
+            long batched = (System.nanoTime() - start) / ROUNDS;
+            System.out.printf("%d个订单项：逐条提交 %.2fms，事务内批量写入 %.2fms（含查询购物车和地址）%n",
+                    lines, legacy / 1e6, batched / 1e6);
+        }
+    }
+
+    /** 原先的写法：不在事务中，订单和每个订单项各自提交 */
+    private void insertOneByOne(int lines) {
+        Order order = new Order();
+        order.setOid(idGenerator.nextId());
+        order.setUid(UID);
+        order.setRecvName("压测");
+        order.setTotalPrice(100L * lines);
+        order.setStatus(0);
+        order.setOrderTime(new Date());
+        orderMapper.insertOrders(Collections.singletonList(order));
+        for (int i = 0; i < lines; i++) {
+            OrderItem item = new OrderItem();
+            item.setId(idGenerator.nextId());
+            item.setOid(order.getOid());
+            item.setPid(pids.get(i));
+            item.setTitle("压测商品");
+            item.setPrice(100L);
+            item.setNum(1);
+            item.setCreatedTime(new Date());
+            orderMapper.insertOrderItems(Collections.singletonList(item));
+        }
+    }
+}
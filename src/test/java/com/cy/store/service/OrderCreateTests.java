@@ -0,0 +1,103 @@
+package com.cy.store.service;
+
+// 使用JUnit 4测试，需要连接数据库
+
+import com.cy.store.entity.Order;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** 下单在一个事务内写入订单和全部订单项 */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class OrderCreateTests {
+    static final int UID = 99911;
+
+    @Autowired
+    private IOrderService orderService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Integer aid;
+    private final List<Integer> pids = new ArrayList<>();
+    /** 测试前的库存，下单会扣减库存，结束后恢复 */
+    private final List<Integer> stocks = new ArrayList<>();
+
+    @Before
+    public void prepare() {
+        aid = prepareOrder(jdbcTemplate, pids, stocks);
+    }
+
+    @After
+    public void cleanup() {
+        cleanupOrder(jdbcTemplate, pids, stocks);
+    }
+
+    @Test
+    public void createIsAtomicAndBatched() {
+        Integer[] cids = fillCart(jdbcTemplate, pids, 10);
+        Order order = orderService.create(aid, UID, "test", cids);
+        Integer items = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM t_order_item WHERE oid = ?", Integer.class, order.getOid());
+        assertEquals(Integer.valueOf(10), items);
+
+        // 地址不属于该用户时整个订单回滚，不留下没有订单项的订单
+        Integer orders = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_order WHERE uid = ?", Integer.class, UID);
+        try {
+            orderService.create(aid, UID + 1, "test", cids);
+            fail();
+        } catch (RuntimeException e) {
+            // 预期的结果
+        }
+        assertEquals(orders, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM t_order WHERE uid = ?", Integer.class, UID));
+    }
+
+    /**
+     * 插入收货地址，记录前50个商品及其库存
+     * @return 收货地址的aid
+     */
+    static Integer prepareOrder(JdbcTemplate jdbcTemplate, List<Integer> pids, List<Integer> stocks) {
+        jdbcTemplate.update("INSERT INTO t_address (uid, name, address, phone, is_default) "
+                + "VALUES (?, '压测', '压测地址', '13800000000', 0)", UID);
+        pids.addAll(jdbcTemplate.queryForList("SELECT id FROM t_product ORDER BY id LIMIT 50", Integer.class));
+        assertEquals(50, pids.size());
+        stocks.addAll(jdbcTemplate.queryForList("SELECT num FROM t_product ORDER BY id LIMIT 50", Integer.class));
+        return jdbcTemplate.queryForObject("SELECT MAX(aid) FROM t_address WHERE uid = ?", Integer.class, UID);
+    }
+
+    /** 删除测试数据，恢复商品库存 */
+    static void cleanupOrder(JdbcTemplate jdbcTemplate, List<Integer> pids, List<Integer> stocks) {
+        jdbcTemplate.update("DELETE FROM t_order_item WHERE oid IN (SELECT oid FROM t_order WHERE uid = ?)", UID);
+        jdbcTemplate.update("DELETE FROM t_order WHERE uid = ?", UID);
+        jdbcTemplate.update("DELETE FROM t_cart WHERE uid = ?", UID);
+        jdbcTemplate.update("DELETE FROM t_address WHERE uid = ?", UID);
+        for (int i = 0; i < pids.size(); i++) {
+            jdbcTemplate.update("UPDATE t_product SET num = ? WHERE id = ?", stocks.get(i), pids.get(i));
+        }
+    }
+
+    /** 将前lines个商品放入购物车，返回cid */
+    static Integer[] fillCart(JdbcTemplate jdbcTemplate, List<Integer> pids, int lines) {
+        jdbcTemplate.update("DELETE FROM t_cart WHERE uid = ?", UID);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            rows.add(new Object[]{UID, pids.get(i), 100L, 1, "test", new Date()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO t_cart (uid, pid, price, num, created_user, created_time) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", rows);
+        List<Integer> cids = jdbcTemplate.queryForList("SELECT cid FROM t_cart WHERE uid = ?", Integer.class, UID);
+        return cids.toArray(new Integer[0]);
+    }
+}
@@ -0,0 +1,57 @@
+package com.cy.store.service;
+
+// 使用JUnit 4测试，需要连接数据库
+// 类名不以Tests结尾，不在默认的测试中执行，需单独运行：mvn test -Dtest=OrderStockContentionBenchmark
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.cy.store.service.OrderStockContentionTests.cleanupBuyers;
+import static com.cy.store.service.OrderStockContentionTests.prepareBuyers;
+import static com.cy.store.service.OrderStockContentionTests.rush;
+
+/** 大量用户同时抢购同一商品时的下单吞吐量 */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class OrderStockContentionBenchmark {
+    private static final int BUYERS = 300;
+    private static final int STOCK = 100;
+
+    @Autowired
+    private IOrderService orderService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Integer originalStock;
+    private final List<Integer> aids = new ArrayList<>();
+    private final List<Integer> cids = new ArrayList<>();
+
+    @Before
+    public void prepare() {
+        originalStock = prepareBuyers(jdbcTemplate, BUYERS, STOCK, aids, cids);
+    }
+
+    @After
+    public void cleanup() {
+        cleanupBuyers(jdbcTemplate, BUYERS, originalStock);
+    }
+
+    @Test
+    public void throughput() throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        long elapsed = Math.max(1, rush(orderService, aids, cids, sold, rejected) / 1000000);
+        System.out.println(BUYERS + "个买家抢购" + STOCK + "件库存，成功" + sold.get() + "单，耗时" + elapsed + "ms，"
+                + BUYERS * 1000L / elapsed + "单/秒");
+    }
+}
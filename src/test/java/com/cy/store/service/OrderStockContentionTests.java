@@ -0,0 +1,141 @@
+package com.cy.store.service;
+
+// 使用JUnit 4测试，需要连接数据库
+
+import com.cy.store.service.ex.StockNotEnoughException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/** 大量用户同时抢购同一商品：成功的订单数等于库存，库存不会变成负数 */
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class OrderStockContentionTests {
+    static final int FIRST_UID = 99500;
+    private static final int BUYERS = 300;
+    private static final int STOCK = 100;
+    static final int PID = 10000017;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private IOrderService orderService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Integer originalStock;
+    /** 第i个买家的收货地址和购物车数据 */
+    private final List<Integer> aids = new ArrayList<>();
+    private final List<Integer> cids = new ArrayList<>();
+
+    @Before
+    public void prepare() {
+        originalStock = prepareBuyers(jdbcTemplate, BUYERS, STOCK, aids, cids);
+    }
+
+    @After
+    public void cleanup() {
+        cleanupBuyers(jdbcTemplate, BUYERS, originalStock);
+    }
+
+    @Test
+    public void stockNeverGoesNegative() throws Exception {
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        rush(orderService, aids, cids, sold, rejected);
+
+        assertEquals(STOCK, sold.get());
+        assertEquals(BUYERS - STOCK, rejected.get());
+        assertEquals(Integer.valueOf(0),
+                jdbcTemplate.queryForObject("SELECT num FROM t_product WHERE id = ?", Integer.class, PID));
+        // 库存不足的订单整体回滚，不留下订单数据
+        assertEquals(Integer.valueOf(STOCK), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM t_order WHERE uid BETWEEN ? AND ?", Integer.class, FIRST_UID, FIRST_UID + BUYERS - 1));
+    }
+
+    /**
+     * 为每个买家插入收货地址和一条购物车数据，并把商品库存设为stock
+     * @return 商品原来的库存，清理时恢复
+     */
+    static Integer prepareBuyers(JdbcTemplate jdbcTemplate, int buyers, int stock, List<Integer> aids, List<Integer> cids) {
+        Integer originalStock = jdbcTemplate.queryForObject("SELECT num FROM t_product WHERE id = ?", Integer.class, PID);
+        jdbcTemplate.update("UPDATE t_product SET num = ? WHERE id = ?", stock, PID);
+        List<Object[]> addresses = new ArrayList<>();
+        List<Object[]> carts = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            addresses.add(new Object[]{FIRST_UID + i});
+            carts.add(new Object[]{FIRST_UID + i, PID, 100L, 1, "test", new Date()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO t_address (uid, name, address, phone, is_default) "
+                + "VALUES (?, '抢购', '抢购地址', '13800000000', 0)", addresses);
+        jdbcTemplate.batchUpdate("INSERT INTO t_cart (uid, pid, price, num, created_user, created_time) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", carts);
+        for (int i = 0; i < buyers; i++) {
+            aids.add(jdbcTemplate.queryForObject("SELECT aid FROM t_address WHERE uid = ?", Integer.class, FIRST_UID + i));
+            cids.add(jdbcTemplate.queryForObject("SELECT cid FROM t_cart WHERE uid = ?", Integer.class, FIRST_UID + i));
+        }
+        return originalStock;
+    }
+
+    static void cleanupBuyers(JdbcTemplate jdbcTemplate, int buyers, Integer originalStock) {
+        int last = FIRST_UID + buyers - 1;
+        jdbcTemplate.update("DELETE FROM t_order_item WHERE oid IN "
+                + "(SELECT oid FROM t_order WHERE uid BETWEEN ? AND ?)", FIRST_UID, last);
+        jdbcTemplate.update("DELETE FROM t_order WHERE uid BETWEEN ? AND ?", FIRST_UID, last);
+        jdbcTemplate.update("DELETE FROM t_cart WHERE uid BETWEEN ? AND ?", FIRST_UID, last);
+        jdbcTemplate.update("DELETE FROM t_address WHERE uid BETWEEN ? AND ?", FIRST_UID, last);
+        jdbcTemplate.update("UPDATE t_product SET num = ? WHERE id = ?", originalStock, PID);
+    }
+
+    /**
+     * 全部买家同时下单，每人购买1件
+     * @return 从开始下单到全部完成的耗时（纳秒）
+     */
+    static long rush(IOrderService orderService, List<Integer> aids, List<Integer> cids,
+                     AtomicInteger sold, AtomicInteger rejected) throws Exception {
+        int buyers = aids.size();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    go.await();
+                    for (int i = next.getAndIncrement(); i < buyers; i = next.getAndIncrement()) {
+                        try {
+                            orderService.create(aids.get(i), FIRST_UID + i, "test", new Integer[]{cids.get(i)});
+                            sold.incrementAndGet();
+                        } catch (StockNotEnoughException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            long start = System.nanoTime();
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
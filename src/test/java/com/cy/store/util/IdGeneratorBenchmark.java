@@ -0,0 +1,46 @@
+package com.cy.store.util;
+
+// 类名不以Tests结尾，不在默认的测试中执行，需单独运行：mvn test -Dtest=IdGeneratorBenchmark
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class IdGeneratorBenchmark {
+    /** 单线程和16个线程同时生成id的吞吐量 */
+    @Test
+    void throughput() throws Exception {
+        for (int threads : new int[]{1, 16}) {
+            IdGenerator generator = new IdGenerator(1);
+            int perThread = 1000000;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                // 预热
+                for (int i = 0; i < 100000; i++) {
+                    generator.nextId();
+                }
+                List<Future<?>> futures = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(pool.submit(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            generator.nextId();
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                long elapsed = Math.max(1, (System.nanoTime() - start) / 1000000);
+                System.out.println(threads + "个线程生成" + threads * perThread + "个id耗时：" + elapsed + "ms，"
+                        + threads * perThread / elapsed + "个/ms");
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.cy.store.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTests {
+    @Test
+    void idsIncreaseAndCarryNodeAndTime() {
+        IdGenerator generator = new IdGenerator(37);
+        long before = System.currentTimeMillis();
+        long prev = 0;
+        // 远超每毫秒4096个序号，序号用完时借用下一毫秒
+        for (int i = 0; i < 100000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > prev);
+            assertEquals(37, IdGenerator.nodeOf(id));
+            prev = id;
+        }
+        assertTrue(IdGenerator.timestampOf(prev) >= before);
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(IdGenerator.MAX_NODE + 1));
+    }
+
+    @Test
+    void concurrentIdsAreUnique() throws Exception {
+        IdGenerator generator = new IdGenerator(1);
+        int threads = 16;
+        int perThread = 50000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+}
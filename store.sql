@@ -69,7 +69,8 @@ CREATE TABLE `t_cart`  (
   `created_time` datetime NULL DEFAULT NULL COMMENT '创建时间',
   `modified_user` varchar(20) CHARACTER SET utf8mb3 COLLATE utf8mb3_general_ci NULL DEFAULT NULL COMMENT '修改人',
   `modified_time` datetime NULL DEFAULT NULL COMMENT '修改时间',
-  PRIMARY KEY (`cid`) USING BTREE
+  PRIMARY KEY (`cid`) USING BTREE,
+  UNIQUE INDEX `uk_uid_pid`(`uid`, `pid`) USING BTREE COMMENT '同一用户的同一商品只有一条购物车数据'
 ) ENGINE = InnoDB AUTO_INCREMENT = 6 CHARACTER SET = utf8mb3 COLLATE = utf8mb3_general_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -3625,7 +3626,7 @@ INSERT INTO `t_dict_district` VALUES (3523, '86', '820000', '澳门特别行政
 -- ----------------------------
 DROP TABLE IF EXISTS `t_order`;
 CREATE TABLE `t_order`  (
-  `oid` int NOT NULL AUTO_INCREMENT COMMENT '订单id',
+  `oid` bigint NOT NULL COMMENT '订单id（应用生成的64位id）',
   `uid` int NOT NULL COMMENT '用户id',
   `recv_name` varchar(20) CHARACTER SET utf8mb3 COLLATE utf8mb3_general_ci NOT NULL COMMENT '收货人姓名',
   `recv_phone` varchar(20) CHARACTER SET utf8mb3 COLLATE utf8mb3_general_ci NULL DEFAULT NULL COMMENT '收货人电话',
@@ -3642,7 +3643,7 @@ CREATE TABLE `t_order`  (
   `modified_user` varchar(20) CHARACTER SET utf8mb3 COLLATE utf8mb3_general_ci NULL DEFAULT NULL COMMENT '修改人',
   `modified_time` datetime NULL DEFAULT NULL COMMENT '修改时间',
   PRIMARY KEY (`oid`) USING BTREE
-) ENGINE = InnoDB AUTO_INCREMENT = 6 CHARACTER SET = utf8mb3 COLLATE = utf8mb3_general_ci ROW_FORMAT = Dynamic;
+) ENGINE = InnoDB CHARACTER SET = utf8mb3 COLLATE = utf8mb3_general_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
 -- Records of t_order
@@ -3658,8 +3659,8 @@ INSERT INTO `t_order` VALUES (5, 21, '彬', '13622273171', '广东省', NULL, '
 -- ----------------------------
 DROP TABLE IF EXISTS `t_order_item`;
 CREATE TABLE `t_order_item`  (
-  `id` int NOT NULL AUTO_INCREMENT COMMENT '订单中的商品记录的id',
-  `oid` int NOT NULL COMMENT '所归属的订单的id',
+  `id` bigint NOT NULL COMMENT '订单中的商品记录的id（应用生成的64位id）',
+  `oid` bigint NOT NULL COMMENT '所归属的订单的id',
   `pid` int NOT NULL COMMENT '商品的id',
   `title` varchar(100) CHARACTER SET utf8mb3 COLLATE utf8mb3_general_ci NOT NULL COMMENT '商品标题',
   `image` varchar(500) CHARACTER SET utf8mb3 COLLATE utf8mb3_general_ci NULL DEFAULT NULL COMMENT '商品图片',
@@ -3669,8 +3670,10 @@ CREATE TABLE `t_order_item`  (
   `created_time` datetime NULL DEFAULT NULL COMMENT '创建时间',
   `modified_user` varchar(20) CHARACTER SET utf8mb3 COLLATE utf8mb3_general_ci NULL DEFAULT NULL COMMENT '修改人',
   `modified_time` datetime NULL DEFAULT NULL COMMENT '修改时间',
-  PRIMARY KEY (`id`) USING BTREE
-) ENGINE = InnoDB AUTO_INCREMENT = 10 CHARACTER SET = utf8mb3 COLLATE = utf8mb3_general_ci ROW_FORMAT = Dynamic;
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_oid`(`oid`) USING BTREE,
+  INDEX `idx_created_time`(`created_time`) USING BTREE COMMENT '启动时按时间汇总近期销量'
+) ENGINE = InnoDB CHARACTER SET = utf8mb3 COLLATE = utf8mb3_general_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
 -- Records of t_order_item
@@ -3699,12 +3702,14 @@ CREATE TABLE `t_product`  (
   `num` int NULL DEFAULT NULL COMMENT '库存数量',
   `image` varchar(500) CHARACTER SET utf8mb3 COLLATE utf8mb3_general_ci NULL DEFAULT NULL COMMENT '图片路径',
   `status` int NULL DEFAULT 1 COMMENT '商品状态  1：上架   2：下架   3：删除',
-  `priority` int NULL DEFAULT NULL COMMENT '显示优先级',
+  `priority` int NOT NULL DEFAULT 0 COMMENT '显示优先级',
   `created_time` datetime NULL DEFAULT NULL COMMENT '创建时间',
   `modified_time` datetime NULL DEFAULT NULL COMMENT '最后修改时间',
   `created_user` varchar(50) CHARACTER SET utf8mb3 COLLATE utf8mb3_general_ci NULL DEFAULT NULL COMMENT '创建人',
   `modified_user` varchar(50) CHARACTER SET utf8mb3 COLLATE utf8mb3_general_ci NULL DEFAULT NULL COMMENT '最后修改人',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_category_status_priority`(`category_id`, `status`, `priority`, `id`) USING BTREE COMMENT '按分类列出商品（键集分页）',
+  INDEX `idx_status_priority`(`status`, `priority`, `id`) USING BTREE COMMENT '热销排行'
 ) ENGINE = InnoDB CHARACTER SET = utf8mb3 COLLATE = utf8mb3_general_ci ROW_FORMAT = Dynamic;
 
 -- ----------------------------
@@ -4971,6 +4976,17 @@ INSERT INTO `t_product_category` VALUES (1180, 1175, '体育赛事', 1, 5, 0, '2
 INSERT INTO `t_product_category` VALUES (1181, 1175, '舞蹈芭蕾', 1, 6, 0, '2017-10-25 15:00:55', '2017-10-25 15:00:55', 'admin', 'admin');
 INSERT INTO `t_product_category` VALUES (1182, 1175, '戏曲综艺', 1, 7, 0, '2017-10-25 15:00:55', '2017-10-25 15:00:55', 'admin', 'admin');
 
+-- ----------------------------
+-- Table structure for t_product_stat
+-- ----------------------------
+DROP TABLE IF EXISTS `t_product_stat`;
+CREATE TABLE `t_product_stat`  (
+  `pid` int NOT NULL COMMENT '商品id',
+  `view_count` bigint NOT NULL DEFAULT 0 COMMENT '累计浏览次数',
+  `modified_time` datetime NULL DEFAULT NULL COMMENT '最后写入时间',
+  PRIMARY KEY (`pid`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb3 COLLATE = utf8mb3_general_ci ROW_FORMAT = Dynamic;
+
 -- ----------------------------
 -- Table structure for t_user
 -- ----------------------------